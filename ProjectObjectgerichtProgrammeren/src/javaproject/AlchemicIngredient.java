@@ -1,7 +1,7 @@
 package javaproject;
 
-import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
@@ -20,8 +20,8 @@ import quantity.*;
  * 			| isValidTemperature(getTemperature())
  * @invar	Type must be valid
  * 			| isValidType(getType())
- * @invar	Quantity must be valid
- * 			| isValidQuantity(getQuantity())
+ * @invar	Quantity must be valid, unless all there is of this ingredient is a remainder of transmogrifications
+ * 			| isValidQuantity(getQuantity()) || isOnlyRemainder()
  * @invar	Quantity is carried over from smaller quantities to larger quantities
  * 			| isCarriedOver()
  * @invar	Is not terminated
@@ -77,8 +77,7 @@ public class AlchemicIngredient {
 		}
 		setState(getType().getState());
 		setQuantity(quantity);
-		setHotness(getType().getStandardTemperature()[1]);
-		setColdness(getType().getStandardTemperature()[0]);
+		setTemperatureValue(getType().getStandardTemperatureValue());
 		createVolatility();
 	}
 	
@@ -126,9 +125,10 @@ public class AlchemicIngredient {
 	 * 			| this.setSpecialName(ingredient.getSpecialName())
 	 *			| this.setQuantity(ingredient.getQuantity())
 	 * 			| this.setState(ingredient.getState())
-	 * 			| this.setColdness(ingredient.getColdness())
-	 * 			| this.setHotness(ingredient.getHotness())
+	 * 			| this.setTemperatureValue(ingredient.getTemperatureValue())
 	 * 			| this.setCharacteristicVolatility(ingredient.getCharVolatility())
+	 * @post	The remainder of earlier transmogrifications is not copied, it stays with the given ingredient
+	 * 			| new.getTransmogrificationRemainder() == 0
 	 * 
 	 * @note	We are deliberately not implementing java's clone method, see:
 	 * 			https://dzone.com/articles/java-cloning-copy-constructor-vs-cloning
@@ -137,12 +137,11 @@ public class AlchemicIngredient {
 	
 	public AlchemicIngredient(AlchemicIngredient ingredient) {
 		this.type = ingredient.getType();
-		this.mixList = ingredient.getIngredientMixList();
+		this.mixSet = ingredient.mixSet;
 		this.setSpecialName(ingredient.getSpecialName());
 		this.setState(ingredient.getState());
 		this.setQuantity(ingredient.getQuantity());
-		this.setColdness(ingredient.getColdness());
-		this.setHotness(ingredient.getHotness());
+		this.setTemperatureValue(ingredient.getTemperatureValue());
 		this.setCharacteristicVolatility(ingredient.getCharVolatility());
 	}
 	
@@ -156,16 +155,25 @@ public class AlchemicIngredient {
 	 * @return	This ingredient has a valid volatility, temperature, type, quantity, 
 	 * 			the quantity is carried over and this ingredient has not been terminated
 	 * 			|isValidCharVolatility(getCharVolatility()) && isValidTemperature(getTemperature())
-	 *			| && isValidType(getType()) && isValidQuantity(getQuantity()) && isCarriedOver()
+	 *			| && isValidType(getType()) && (isValidQuantity(getQuantity()) || isOnlyRemainder()) && isCarriedOver()
 	 *			| 	&& !isTerminated()
 	 */
 	
 	public boolean isValidIngredient() {
 		return isValidCharVolatility(getCharVolatility()) && isValidTemperature(getTemperature())
-				&& isValidType(getType()) && isValidQuantity(getQuantity()) && isCarriedOver()
+				&& isValidType(getType()) && (isValidQuantity(getQuantity()) || isOnlyRemainder()) && isCarriedOver()
 					&& !isTerminated();
 	}
 	
+	/**
+	 * Check whether all there is of this ingredient is a remainder of transmogrifications, less than one lowest unit
+	 * 
+	 * @return	| result == (giveInLowestUnit() == 0 && getTransmogrificationRemainder() > 0)
+	 */
+	public boolean isOnlyRemainder() {
+		return giveInLowestUnit() == 0 && getTransmogrificationRemainder() > 0;
+	}
+	
 	/***************************************************************
 	 * NAME CHECKS
 	 ***************************************************************/
@@ -194,48 +202,64 @@ public class AlchemicIngredient {
 	
 	
 	/**
-	 * A list containing all the ingredients mixed into this alchemic ingredient
+	 * The set of all the ingredient types mixed into this alchemic ingredient
 	 */
 	
-	private ArrayList<IngredientType> mixList = new ArrayList<IngredientType>();
+	private MixSet mixSet = MixSet.EMPTY;
 	
 	/**
 	 * Add an ingredient type to the mixList
 	 * 
 	 * @param	type
 	 * 			The ingredient type which is added
-	 * @post	An ingredient type is added to the mix list
-	 * 			| new.get(old.size()) == type
+	 * @post	The ingredient type is in the mix set
+	 * 			| new.getMixSet() == getMixSet().with(type)
 	 */
 	@Model
 	protected void addToMixList(IngredientType type) {
-		mixList.add(type);
+		mixSet = mixSet.with(type);
 	}
 	
 	/**
-	 * Return a copy of the list of mixed ingredients
+	 * Set the set of mixed ingredient types
+	 * 
+	 * @param	mixSet
+	 * 			The new mix set
+	 * @post	| new.getMixSet() == mixSet
+	 */
+	@Model
+	protected void setMixSet(MixSet mixSet) {
+		this.mixSet = mixSet;
+	}
+	
+	/**
+	 * Return the set of mixed ingredient types
 	 */
 	@Basic @Raw
+	public MixSet getMixSet() {
+		return this.mixSet;
+	}
+	
+	/**
+	 * Return a copy of the list of mixed ingredients
+	 * 
+	 * @return	| result.equals(getMixSet().getTypes())
+	 */
+	@Raw
 	protected ArrayList<IngredientType> getIngredientMixList() {
-		return new ArrayList<IngredientType>(mixList);
+		return new ArrayList<IngredientType>(mixSet.getTypes());
 	}
 	
 	/**
 	 * Get a list of the alphabetically sorted names of all the types mixed in this alchemic ingredient
 	 * 
-	 * @return	A list of the alphabetically sorted names of all the types mixed in this alchemic ingredient
-	 * 			| for each type in getMixList()
-	 * 			|		result.contains(type.getName())
+	 * @return	A list of the alphabetically sorted names of all the named types mixed in this alchemic ingredient
+	 * 			| result.equals(getMixSet().getNames())
 	 * 
 	 */
 	
 	public ArrayList<String> createMixList() {
-		ArrayList<String> resultList = new ArrayList<String>();
-		for (IngredientType type : getIngredientMixList()) {
-			resultList.add(type.getName());
-		}
-		Collections.sort(resultList);
-		return resultList;
+		return new ArrayList<String>(mixSet.getNames());
 	}
 	
 	/**
@@ -283,21 +307,7 @@ public class AlchemicIngredient {
 	 * 			| createMixList().isEmpty()
  	 */
 	public String getMixedName() {
-		ArrayList<String> stringList = createMixList();
-		if (stringList.isEmpty()) {
-			throw new IllegalArgumentException("No mixed ingredients in this alchemic ingredient");
-		}
-		if (stringList.size() == 1) {
-			return stringList.get(0);
-		}
-		String resultString = stringList.get(0).concat(" mixed with ").concat(stringList.get(1));
-		if (stringList.size() == 2) {
-			return resultString;
-		}
-		for (int i = 2; i < stringList.size() - 1; i++) {
-			resultString = resultString.concat(", ").concat(stringList.get(i));
-		}
-		return resultString.concat(" and ").concat(stringList.get(stringList.size() - 1));
+		return mixSet.getMixedName();
 	}
 	
 	/**
@@ -531,23 +541,6 @@ public class AlchemicIngredient {
 	}
 
 	
-	/**
-	 * Return a list showing each unit in its lowest unit (pinches or drops)
-	 * 
-	 * @return	A list containing the product of the previous factors
-	 * 			| result.get(index) ==
-	 * 			| result.get(index - 1) * getConversionList().getCVal(index)
-	 */
-	private ArrayList<Integer> factorialList() {
-		ArrayList<Integer> factorialList = new ArrayList<Integer>();
-		int product = 1;
-		for (Quant quant : getConversionList()) {
-			product *= quant.getCVal();
-			factorialList.add(product);
-		}
-		return factorialList;
-	}
-	
 	/**
 	 * Give unit in lowest unit
 	 * 
@@ -555,10 +548,10 @@ public class AlchemicIngredient {
 	 * 			The index that you're unit takes up (if you have a unit, use getConversionList().indexOf(unit))
 	 * 
 	 * @return	An integer representing the unit in the lowest quantity
-	 * 			| factorialList().get(getConversionList().indexOf(unit))
+	 * 			| getState().convertToLowestUnit(unit)
 	 */
 	public Integer convertToLowestUnit(Quant unit) {
-		return factorialList().get(getConversionList().indexOf(unit));
+		return getState().convertToLowestUnit(unit);
 	}
 	
 	
@@ -581,7 +574,7 @@ public class AlchemicIngredient {
 		if (unit.getType() != getState()) {
 			return false;
 		}
-		return 0 >= giveInLowestUnit().compareTo(convertToLowestUnit(unit));
+		return giveInLowestUnit() <= getState().convertToLowestUnit(unit);
 	}
 	
 	/**
@@ -600,10 +593,10 @@ public class AlchemicIngredient {
 	 * Return the second highest unit of this alchemic Ingredient
 	 * 
 	 * @return	The second highest unit of this alchemic Ingredient
-	 * 			| getState().getQuantities().get(getSize() - 2)
+	 * 			| getState().getLargestContainer()
 	 */
 	public Quant getHighestContainerQuantity() {
-		return getState().getQuantities().get(getSize() - 2);
+		return getState().getLargestContainer();
 	}
 	
 	/**
@@ -613,6 +606,8 @@ public class AlchemicIngredient {
 	 * 			The quantity in the lowest unit
 	 * @post	This alchemic ingredient's quantity is now equal to the given quantity
 	 * 			| quantity == new.giveInLowestUnit()
+	 * @post	The remainder of earlier transmogrifications belonged to the old quantity and is cleared
+	 * 			| new.getTransmogrificationRemainder() == 0
 	 */
 	@Model
 	protected void	setQuantityTo(int quantity)	{
@@ -620,6 +615,7 @@ public class AlchemicIngredient {
 		for (int index = 1; index < getSize(); index++) {
 			setItemAt(index, 0);
 		}
+		this.transmogrificationRemainder = 0;
 	}
 	
 	
@@ -628,15 +624,15 @@ public class AlchemicIngredient {
 	 * 
 	 * @return	The quantity in the lowest quantity
 	 * 			| sum( for (index in 1..getSize())
-	 * 			|			this.getItemAt(index) * factorialList.get(index)	)			
+	 * 			|			this.getItemAt(index) * getState().getCapacityAt(index)	)			
 	 *
 	 */
 	
 	public Integer giveInLowestUnit() {
 		int sum = 0;
-		ArrayList<Integer> factorialList = factorialList();
+		State state = getState();
 		for (int index = 0; index < getSize(); index++) {
-			sum += this.getQuantityAt(index) * factorialList.get(index);
+			sum += this.getQuantityAt(index) * state.getCapacityAt(index);
 		}
 		return sum;
 	}
@@ -655,27 +651,117 @@ public class AlchemicIngredient {
 	 * Convert to storerooms as a double
 	 * 
 	 * @return	the quantity in storerooms
-	 * 			| giveInLowestUnit() / factorialList().get(factorialList().size() - 1)
+	 * 			| giveInLowestUnit() / getState().getCapacityAt(getSize() - 1)
  	 */
 	public double giveInStoreRooms() {
-		return (double) giveInLowestUnit() / (double) factorialList().get(factorialList().size() - 1);
+		return (double) giveInLowestUnit() / (double) getState().getCapacityAt(getSize() - 1);
 	}	
 	
 	
 	
 	
+	/**
+	 * The number of parts a spoon is divided in so that both a drop and a pinch are a whole number of parts
+	 */
+	public static final int SPOON_PARTS = LQuant.SPOON.getCVal() * SQuant.SPOON.getCVal();
+	
+	/**
+	 * Return the number of spoon parts in one lowest unit of the given state
+	 * 
+	 * @return	result == SPOON_PARTS / state.getQuantities().get(1).getCVal()
+	 */
+	private static int getPartsPerLowestUnit(State state) {
+		return SPOON_PARTS / state.getQuantities().get(1).getCVal();
+	}
+	
+	/**
+	 * Return the total amount of this ingredient in spoon parts, including what was left over by earlier transmogrifications
+	 * 
+	 * @return	result == giveInLowestUnit() * getPartsPerLowestUnit(getState()) + getTransmogrificationRemainder()
+	 */
+	private long giveInSpoonParts() {
+		return (long) giveInLowestUnit() * getPartsPerLowestUnit(getState()) + getTransmogrificationRemainder();
+	}
+	
 	/**
 	 * Find the transmogrified quantity of the given ingredient
 	 * 
-	 * @return	An arrayList which contains in the first element the amount of ingredient in spoons multiplied with the amount
-	 * 			the new amount makes up in the new state and round down to make an integer representing the lowest unit
-	 * 			| if (i == 0) {
-	 * 			|	result.get(i) == (int) (ingredient.giveInSpoons() * state.getQuantities().get(1).getCVal())
-	 * 			| else
-	 * 			|	result.get(i) == 0
+	 * @return	The amount of ingredient, including the remainder of earlier transmogrifications, expressed in the lowest unit of
+	 * 			the given state and rounded down, computed exactly in integer arithmetic
+	 * 			| result == (giveInLowestUnit() * getPartsPerLowestUnit(getState()) + getTransmogrificationRemainder())
+	 * 			|		/ getPartsPerLowestUnit(state)
+	 * @throws	ArithmeticException
+	 * 			The result does not fit in an int
+	 */
+	public Integer getTransmogrifiedQuant(State state) throws ArithmeticException {
+		return Math.toIntExact(giveInSpoonParts() / getPartsPerLowestUnit(state));
+	}
+	
+	/**
+	 * Return the part of a lowest unit of the given state that is left over when transmogrifying to that state
+	 * 
+	 * @return	The remainder in spoon parts
+	 * 			| result == (giveInLowestUnit() * getPartsPerLowestUnit(getState()) + getTransmogrificationRemainder())
+	 * 			|		% getPartsPerLowestUnit(state)
+	 */
+	public int getTransmogrifiedRemainder(State state) {
+		return (int) (giveInSpoonParts() % getPartsPerLowestUnit(state));
+	}
+	
+	/**
+	 * The part of a lowest unit, in spoon parts, left over by earlier transmogrifications
+	 */
+	private int transmogrificationRemainder = 0;
+	
+	/**
+	 * Return the part of a lowest unit, in spoon parts, left over by earlier transmogrifications
+	 */
+	@Basic @Raw
+	public int getTransmogrificationRemainder() {
+		return transmogrificationRemainder;
+	}
+	
+	/**
+	 * Add the given remainder of transmogrifications to this ingredient
+	 * 
+	 * @param	parts
+	 * 			The remainder in spoon parts, taken over from an ingredient that was merged into this one or split off from it
+	 * @post	Whole lowest units of the total remainder are added to the quantity, the rest is kept as remainder
+	 * 			| new.giveInLowestUnit() == giveInLowestUnit()
+	 * 			|		+ (getTransmogrificationRemainder() + parts) / getPartsPerLowestUnit(getState())
+	 * 			| && new.getTransmogrificationRemainder() == (getTransmogrificationRemainder() + parts) % getPartsPerLowestUnit(getState())
 	 */
-	public Integer getTransmogrifiedQuant(State state) {
-		return (int) (this.giveInSpoons() * state.getQuantities().get(1).getCVal());
+	@Model
+	protected void addTransmogrificationRemainder(long parts) {
+		long total = getTransmogrificationRemainder() + parts;
+		int perUnit = getPartsPerLowestUnit(getState());
+		if (total >= perUnit) {
+			setQuantityTo(Math.toIntExact(giveInLowestUnit() + total / perUnit));
+			carryOver();
+		}
+		this.transmogrificationRemainder = (int) (total % perUnit);
+	}
+	
+	/**
+	 * Transmogrify this ingredient to the given state
+	 * 
+	 * @param	state
+	 * 			The state to which this ingredient is transmogrified
+	 * @post	The state is the given state
+	 * 			| new.getState() == state
+	 * @post	The quantity is the exact transmogrified quantity, properly carried over
+	 * 			| new.giveInLowestUnit() == getTransmogrifiedQuant(state) && new.isCarriedOver()
+	 * @post	What does not make up a whole lowest unit is kept as remainder, also when that is all there is
+	 * 			| new.getTransmogrificationRemainder() == getTransmogrifiedRemainder(state)
+	 */
+	@Model
+	protected void transmogrify(State state) {
+		int quantity = getTransmogrifiedQuant(state);
+		int remainder = getTransmogrifiedRemainder(state);
+		setState(state);
+		setQuantityTo(quantity);
+		carryOver();
+		this.transmogrificationRemainder = remainder;
 	}
 	
 
@@ -759,16 +845,22 @@ public class AlchemicIngredient {
 	}
 	
 	/**
-	 * The coldness of this ingredient
+	 * Array to temperature
+	 * 
+	 * @param	temperature
+	 * 			An array containing coldness and hotness
+	 * @return	The temperature as hotness minus coldness
+	 * 			| result == temperature[1] - temperature[0]
 	 */
-	
-	private long coldness = 0;
+	public static long temperatureToLong(long[] temperature) {
+		return temperature[1] - temperature[0];
+	}
 	
 	/**
-	 * The hotness of this ingredient
+	 * The temperature of this ingredient as hotness minus coldness
 	 */
 	
-	private long hotness = 0;
+	private long temperature = 0;
 	
 	/**
 	 * The max value of coldness and hotness
@@ -810,9 +902,17 @@ public class AlchemicIngredient {
 			maxTemp = Long.min(maxTemp, Long.MAX_VALUE);
 			maxTemp = Long.max(maxTemp, 0);
 		}
-		maxvalue = maxTemp;
+		if (maxTemp != maxvalue) {
+			maxvalue = maxTemp;
+			limitsEpoch++;
+		}
 	}
 	
+	/**
+	 * The number of times the max temperature changed, cached volatilities of an earlier epoch are recomputed
+	 */
+	private static volatile long limitsEpoch = 0;
+	
 	/**
 	 * Check whether coldness and hotness are valid
 	 * 
@@ -827,48 +927,59 @@ public class AlchemicIngredient {
 				&& (temperature[1] == 0 || temperature[0] == 0);
 	}
 	
+	/**
+	 * Check whether a temperature given as hotness minus coldness is valid
+	 * 
+	 * @param	temperature
+	 * 			The temperature to be checked
+	 * @return	True if coldness and hotness are below the max value
+	 * 			| result == isValidTemperature(temperatureToArray(temperature))
+	 */
+	public static boolean isValidTemperature(long temperature) {
+		return -getMaxTemperature() < temperature && temperature < getMaxTemperature();
+	}
+	
 	/**
 	 * Return the coldness
+	 * 
+	 * @return	| result == Long.max(-getTemperatureValue(), 0)
 	 */
-	@Basic @Raw
+	@Raw
 	public long getColdness() {
-		return coldness;
+		return temperature < 0 ? -temperature : 0;
 	}
 	
 	/**
 	 * Return the hotness
+	 * 
+	 * @return	| result == Long.max(getTemperatureValue(), 0)
 	 */
-	@Basic @Raw
+	@Raw
 	public long getHotness() {
-		return hotness;
+		return temperature > 0 ? temperature : 0;
 	}
 	
 	/**
-	 * Set the coldness
-	 * 
-	 * @param	coldness
-	 * 			The coldness to which we're setting this
-	 * @post	The new coldness is equal to the given coldness, unless the coldness is 
-	 * 			out of bounds in which case we set it to the closest bound
-	 * 			| new.getColdness() == long.min(long.max(coldness, 0), getMaxTemperature());
+	 * Return the temperature as hotness minus coldness
 	 */
-	@Model @Raw
-	private void setColdness(long coldness) {
-		this.coldness = Long.min(Long.max(coldness, 0), getMaxTemperature());
+	@Basic @Raw
+	public long getTemperatureValue() {
+		return temperature;
 	}
 	
 	/**
-	 * Set the hotness
+	 * Set the temperature
 	 * 
-	 * @param	hotness
-	 * 			The hotness to which we're setting this
-	 * @post	The new hotness is equal to the given hotness, unless the hotness is 
+	 * @param	temperature
+	 * 			The temperature as hotness minus coldness
+	 * @post	The new temperature is equal to the given temperature, unless the coldness or hotness is 
 	 * 			out of bounds in which case we set it to the closest bound
-	 * 			| new.getHotness() == Long.min(Long.max(hotness, 0), getMaxTemperature());
+	 * 			| new.getTemperatureValue() == Long.min(Long.max(temperature, -getMaxTemperature()), getMaxTemperature())
 	 */
 	@Model @Raw
-	private void setHotness(long hotness) {
-		this.hotness = Long.min(Long.max(hotness, 0), getMaxTemperature());
+	private void setTemperatureValue(long temperature) {
+		this.temperature = Long.min(Long.max(temperature, -getMaxTemperature()), getMaxTemperature());
+		this.volatilityCache = null;
 	}
 	
 
@@ -878,43 +989,35 @@ public class AlchemicIngredient {
 	 * 
 	 * @param	temp
 	 * 			The temperature with which we cool
-	 * @effect	The hotness is increased with the given heat minus the coldness if the temperature is higher than the coldness,
-	 * 			else the coldness is decrease with the temp
-	 * 			| if (getHotness() > temp):
-	 * 			| 		setColdness(0)
-	 * 			| 		setHotness(getHotness() - temp)
-	 * 			| else
-	 * 			| 		setHotness(0)
-	 * 			| 		setColdness(takeSumAndBringDownToMax(getColdness(), temp)  - getHotness())	
+	 * @effect	The temperature is lowered by the given temperature
+	 * 			| setTemperatureValue(takeSumAndBringDownToMax(getTemperatureValue(), -temp))
 	 * @note	Cooling with -30 degrees is interpreted as doing nothing
 	 * 			
 	 * 			
 	 */
 	public void cool(long temp) {
-		if (temp <= 0) {
-			// Do nothing
-		} else if (getHotness() > temp) {
-			setHotness(getHotness() - temp);
-			setColdness(0);
-		} else {
-			setColdness(takeSumAndBringDownToMax(getColdness(), temp)  - getHotness());
-			setHotness(0);
+		if (temp > 0) {
+			setTemperatureValue(takeSumAndBringDownToMax(getTemperatureValue(), -temp));
 		}
 	}
 	
 	/**
-	 * Check whether the sum of two longs will not exceed Long.MAX_VALUE
+	 * Check whether the sum of two longs will not exceed the range of a long
 	 * 
 	 * @param	term1
 	 * 			The long which we're adding to the other long
 	 * @param	term2
 	 * 			The long which we're adding to the other long
-	 * @effect	Take the sum of both terms, then if they are larger than Long.MAX_VALUE, set them to Long.MAX_VALUE
-	 * 			|  (BigInteger.valueOf((long) term1).add(BigInteger.valueOf((long) term2))).min(BigInteger.valueOf(Long.MAX_VALUE)).longValue()
+	 * @return	The sum of both terms, Long.MAX_VALUE if it is larger and Long.MIN_VALUE if it is smaller
+	 * 			| result == Long.min(Long.max(term1 + term2, Long.MIN_VALUE), Long.MAX_VALUE)
 	 */
 	// mocht static zijn
 	public static long takeSumAndBringDownToMax(long term1, long term2) {
-		return (BigInteger.valueOf((long) term1).add(BigInteger.valueOf((long) term2))).min(BigInteger.valueOf(Long.MAX_VALUE)).longValue();
+		try {
+			return Math.addExact(term1, term2);
+		} catch (ArithmeticException exc) {
+			return term1 < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+		}
 	}
 	
 	/**
@@ -923,27 +1026,14 @@ public class AlchemicIngredient {
 	 * @param	temp
 	 * 			The temperature with which we heat
 	 * 
-	 * @effect	The hotness is increased with the given heat minus the coldness if the temperature is higher than the coldness,
-	 * 			else the coldness is decrease with the temp
-	 * 
-	 * 			| if (getColdness() > temp):
-	 * 			| 		setHotness(0)
-	 * 			| 		setColdness(getColdness() - temp)
-	 * 			| else
-	 * 			| 		setColdness(0)
-	 * 			| 		setColdness(takeSumAndBringDownToMax(getColdness(), temp)  - getHotness())
+	 * @effect	The temperature is raised by the given temperature
+	 * 			| setTemperatureValue(takeSumAndBringDownToMax(getTemperatureValue(), temp))
 	 * @note	Heating with -30 degrees is interpreted as doing nothing
 	 * 			
 	 */
 	public void heat(long temp) {
-		if (temp <= 0) {
-			// Do nothing
-		} else if (getColdness() > temp) {
-			setColdness(getColdness() - temp);
-			setHotness(0);
-		} else {
-			setHotness(takeSumAndBringDownToMax(getHotness(), temp) - getColdness());
-			setColdness(0);
+		if (temp > 0) {
+			setTemperatureValue(takeSumAndBringDownToMax(getTemperatureValue(), temp));
 		}
 	}
 	
@@ -952,6 +1042,7 @@ public class AlchemicIngredient {
 	 * 
 	 * @return	An array containing coldness and hotness
 	 * 			| result == (new long[] {getColdness(), getHotness()})
+	 * @note	A new array is made on every call, getTemperatureValue() does not allocate
 	 */
 	public long[] getTemperature() {
 		return new long[] {getColdness(), getHotness()};
@@ -971,9 +1062,10 @@ public class AlchemicIngredient {
 	 * 
 	 */			
 	public Temperature getTemperatureState() {
-		if (compareTemperature(getTemperature(),getType().getStandardTemperature()) > 0) {
+		long difference = getTemperatureValue() - getType().getStandardTemperatureValue();
+		if (difference > 0) {
 			return Temperature.HEATED;
-		} else if (compareTemperature(getTemperature(),getType().getStandardTemperature()) < 0) {
+		} else if (difference < 0) {
 			return Temperature.COOLED;
 		} else
 			assert (getHotness() == getType().getStandardTemperature()[1]);
@@ -1057,7 +1149,20 @@ public class AlchemicIngredient {
 	 */
 	public void changeTempTo(long[] targetTemp) {
 		if (AlchemicIngredient.isValidTemperature(targetTemp)) {
-			long difference = differenceTemperature(targetTemp, this.getTemperature());
+			changeTempTo(temperatureToLong(targetTemp));
+		}
+	}
+	
+	/**
+	 * Adjust the temperature to the given temperature, given as hotness minus coldness, through heating or cooling
+	 * 
+	 * @param	targetTemp
+	 * 			the temperature which we want our alchemic ingredient to have
+	 * @effect	| changeTempTo(temperatureToArray(targetTemp))
+	 */
+	public void changeTempTo(long targetTemp) {
+		if (AlchemicIngredient.isValidTemperature(targetTemp)) {
+			long difference = targetTemp - getTemperatureValue();
 			if (difference > 0) {
 				heat(difference);
 			} else {
@@ -1102,6 +1207,7 @@ public class AlchemicIngredient {
 	private void createVolatility()	 {
 		this.characteristicvolatility =
 			Double.max(Double.min((getType().getVolatility() * (1 + (Math.random() - 0.5)/5) )  ,0.9999999), 0);	
+		this.volatilityCache = null;
 	}
 	/**
 	 * Set a characteristic volatility for this AlchemicIngredient (used in Kettle)
@@ -1120,6 +1226,84 @@ public class AlchemicIngredient {
 			throw new IllegalStateException("Volatility must be between 0 and 1!");
 		}
 		this.characteristicvolatility = volatility;
+		this.volatilityCache = null;
+	}
+	
+	/**
+	 * The effective volatility and the volatility state as last computed, null if the temperature or 
+	 * the characteristic volatility changed since
+	 * 
+	 * @note	The values are published together in one immutable cache, so a thread reading this ingredient 
+	 * 			never sees the volatility of one computation with the state of another
+	 */
+	private volatile VolatilityCache volatilityCache = null;
+	
+	/**
+	 * An effective volatility and volatility state, computed in the given epoch of the max temperature
+	 */
+	private static final class VolatilityCache {
+		
+		private VolatilityCache(double volatility, Volatility state, long epoch) {
+			this.volatility = volatility;
+			this.state = state;
+			this.epoch = epoch;
+		}
+		
+		private final double volatility;
+		
+		private final Volatility state;
+		
+		private final long epoch;
+	}
+	
+	/**
+	 * Compute the volatility again if the temperature, the characteristic volatility or the max temperature changed
+	 * 
+	 * @return	| result.volatility == computed effective volatility && result.state == computed volatility state
+	 */
+	@Model
+	private VolatilityCache refreshVolatility() {
+		long epoch = limitsEpoch;
+		VolatilityCache cache = volatilityCache;
+		if (cache != null && cache.epoch == epoch) {
+			return cache;
+		}
+		long standardHotness = getType().getStandardTemperature()[1];
+		double standard = getStandardVolatility();
+		double effective;
+		if (getHotness() > standardHotness) {
+			effective = standard + 300 * (getHotness() - standardHotness) / standardHotness * getCharVolatility();
+		} else if (getHotness() < standardHotness) {
+			effective = standard * Math.pow(getCharVolatility(), (standardHotness - getTemperatureValue()) / standardHotness);
+		} else {
+			effective = standard;
+		}
+		Volatility state;
+		if (standard > 1000) {
+			state = Volatility.DANGER;
+		} else if (effective > 1000) {
+			state = Volatility.VOLATILE;
+		} else if (effective < standard/100 && effective < 100) {
+			state = Volatility.INERT;
+		} else {
+			state = Volatility.NONE;
+		}
+		cache = new VolatilityCache(effective, state, epoch);
+		this.volatilityCache = cache;
+		return cache;
+	}
+	
+	/**
+	 * Compute the volatility of all given ingredients that are out of date, for instance after the max temperature changed
+	 * 
+	 * @param	ingredients
+	 * 			The ingredients whose volatility is brought up to date
+	 * @effect	| for each ingredient in ingredients: ingredient.refreshVolatility()
+	 */
+	public static void refreshVolatilities(Collection<? extends AlchemicIngredient> ingredients) {
+		for (AlchemicIngredient ingredient : ingredients) {
+			ingredient.refreshVolatility();
+		}
 	}
 	
 	/**
@@ -1138,22 +1322,14 @@ public class AlchemicIngredient {
 	 *			|				/ getType().getStandardTemperature()[1]);		
 	 *			| else 
 	 *			|	result == getStandardVolatility();
+	 * @note	The volatility is cached until the temperature or the characteristic volatility changes
 	 */
 	
 	public double getVolatility() {
 		if (!isValidCharVolatility(getCharVolatility())) {
 			throw new IllegalStateException("Invalid characteristic volatility");
 		}
-		if (getHotness() > getType().getStandardTemperature()[1]) {
-			return  getStandardVolatility() + 300 * (getHotness() - getType().getStandardTemperature()[1]) / getType().getStandardTemperature()[1] 
-					* getCharVolatility();
-		} else if (getHotness() < getType().getStandardTemperature()[1]) {
-			return getStandardVolatility() * Math.pow(getCharVolatility(), (getType().getStandardTemperature()[1] - (getHotness() - getColdness())) 
-					/ getType().getStandardTemperature()[1]);
-			
-		} else {
-			return getStandardVolatility();
-		}
+		return refreshVolatility().volatility;
 	}
 	
 	/**
@@ -1169,20 +1345,14 @@ public class AlchemicIngredient {
 	/**
 	 * Return the state of this volatility
 	 * 
-	 * 
+	 * @return	| if (getStandardVolatility() > 1000) result == Volatility.DANGER
+	 * 			| else if (getVolatility() > 1000) result == Volatility.VOLATILE
+	 * 			| else if (getVolatility() < getStandardVolatility()/100 && getVolatility() < 100) result == Volatility.INERT
+	 * 			| else result == Volatility.NONE
 	 */
 	@Basic
 	public Volatility getVolatilityState() {
-		if 	(getStandardVolatility() > 1000) {
-			return Volatility.DANGER;
-		}
-		if (getVolatility() > 1000) {
-			return Volatility.VOLATILE;
-		}
-		if (getVolatility() < getStandardVolatility()/100 && getVolatility() < 100) {
-			return Volatility.INERT;
-		}
-		return Volatility.NONE;
+		return refreshVolatility().state;
 	}
 	
 	/**
@@ -1256,7 +1426,7 @@ public class AlchemicIngredient {
 	 * 			| this.isTerminated() == true
 	 */
 	public void terminate() {
-		this.terminated = false;
+		this.terminated = true;
 	}
 	
 	
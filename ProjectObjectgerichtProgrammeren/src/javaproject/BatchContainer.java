@@ -0,0 +1,114 @@
+package javaproject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import be.kuleuven.cs.som.annotate.Raw;
+
+/**
+ * A row of the largest containers of a state, holding a batch that is too large for one container
+ *
+ * A batch container is used for the intermediate results of multiplied recipes. Its capacity is the largest container
+ * of the state of its contents, and it stands for as many of those containers as are needed to hold the contents.
+ * It can be split into ordinary containers at any time.
+ *
+ * @invar	The contents fit the containers this batch container stands for
+ * 			| canHaveAsContents(getContents())
+ *
+ * @author Jonas
+ *
+ */
+public class BatchContainer extends IngredientContainer {
+
+	/**
+	 * Initialize a batch container holding the given ingredient
+	 *
+	 * @param	name
+	 * 			The name of this container
+	 * @param	content
+	 * 			The ingredient in this container
+	 * @post	The capacity is the largest container of the state of the ingredient, and there are as many containers
+	 * 			as are needed to hold it
+	 * 			| new.getCapacity() == content.getHighestContainerQuantity()
+	 * 			| && new.getNbContainers() == max(1, ceil(content.giveInLowestUnit() / content.convertToLowestUnit(new.getCapacity())))
+	 * @post	| new.getContents() == content
+	 * @throws	IllegalArgumentException
+	 * 			There is no ingredient
+	 * 			| content == null
+	 */
+	public BatchContainer(String name, AlchemicIngredient content) throws IllegalArgumentException {
+		super(name, checkContent(content).getHighestContainerQuantity(), content);
+		int size = content.convertToLowestUnit(getCapacity());
+		this.nbContainers = Integer.max(1, (content.giveInLowestUnit() + size - 1) / size);
+	}
+
+	/**
+	 * Return the given ingredient if it is not null
+	 */
+	private static AlchemicIngredient checkContent(AlchemicIngredient content) throws IllegalArgumentException {
+		if (content == null) {
+			throw new IllegalArgumentException("A batch container needs contents");
+		}
+		return content;
+	}
+
+	/**
+	 * The number of largest containers this batch container stands for
+	 */
+	private final int nbContainers;
+
+	/**
+	 * Return the number of largest containers this batch container stands for
+	 */
+	@Basic @Raw @Immutable
+	public int getNbContainers() {
+		return nbContainers;
+	}
+
+	/**
+	 * Check whether the given ingredient fits the containers this batch container stands for
+	 *
+	 * @return	| result == (content == null || content.getState() == getCapacity().getType()
+	 * 			|	&& content.giveInLowestUnit() <= getNbContainers() * content.convertToLowestUnit(getCapacity()))
+	 */
+	@Override
+	public boolean canHaveAsContents(AlchemicIngredient content) {
+		return content == null || content.getState() == getCapacity().getType()
+				&& content.giveInLowestUnit() <= (long) getNbContainers() * content.convertToLowestUnit(getCapacity());
+	}
+
+	/**
+	 * Split the contents of this batch container over ordinary containers
+	 *
+	 * @return	Containers with the name of this container holding the contents together, all but the last one
+	 * 			filled to the largest container, nothing if this container is empty
+	 * 			| sum(for each container in result: container.getContents().giveInLowestUnit()) == getContents().giveInLowestUnit()
+	 * 			| && for each container in result: IngredientContainer.isValidCapacity(container.getCapacity())
+	 * @post	This container is empty
+	 * 			| new.getContents() == null
+	 */
+	public List<IngredientContainer> split() {
+		ArrayList<IngredientContainer> pieces = new ArrayList<IngredientContainer>(nbContainers);
+		AlchemicIngredient content = getContents();
+		if (content == null) {
+			return pieces;
+		}
+		ContainerFactory factory = new ContainerFactory(getName());
+		int size = content.convertToLowestUnit(getCapacity());
+		int left = content.giveInLowestUnit();
+		int remainder = content.getTransmogrificationRemainder();
+		while (left > size) {
+			AlchemicIngredient piece = new AlchemicIngredient(content);
+			piece.setQuantityTo(size);
+			pieces.add(factory.wrap(piece));
+			left -= size;
+		}
+		content.setQuantityTo(left);
+		content.addTransmogrificationRemainder(remainder);
+		pieces.add(factory.wrap(content));
+		empty();
+		return pieces;
+	}
+}
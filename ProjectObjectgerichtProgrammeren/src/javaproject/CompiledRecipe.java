@@ -0,0 +1,287 @@
+package javaproject;
+
+import java.util.Arrays;
+import java.util.List;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import be.kuleuven.cs.som.annotate.Raw;
+import javaproject.Recipe.Amount;
+import quantity.Quant;
+
+/**
+ * A recipe translated into a program of instructions with the amounts already resolved
+ * 
+ * @invar	Every add instruction refers to existing amounts
+ * 			| for each I in 0..getLength()-1:
+ * 			|	getInstruction(I) != Instruction.ADD 
+ * 			|		|| 0 <= getOperand(I) && getOperand(I) + getCount(I) <= getNbAmounts()
+ * @invar	Every heat or cool instruction has a strictly positive number of degrees as operand
+ * 			| for each I in 0..getLength()-1:
+ * 			|	getInstruction(I) != Instruction.HEAT && getInstruction(I) != Instruction.COOL || getOperand(I) > 0
+ * 
+ * @author Jonas
+ *
+ */
+public class CompiledRecipe {
+	
+	/**
+	 * Compile the given recipe
+	 * 
+	 * @param	recipe
+	 * 			The recipe which is compiled
+	 * @post	The recipe is set to the given recipe
+	 * 			| new.getRecipe() == recipe
+	 * @post	The program contains the parsed instructions of the recipe
+	 * 			| for each I in 0..recipe.getInstructions().size()-1:
+	 * 			|	new.getInstruction(I) == Instruction.parse(recipe.getInstructions().get(I))
+	 * @post	The I'th add instruction takes the I'th amount
+	 * @post	Heat and cool instructions change the temperature by the default number of degrees
+	 * 			| for each I in 0..getLength()-1:
+	 * 			|	getInstruction(I) == Instruction.ADD || getOperand(I) == ExecutiveRecipe.DEFAULT_DEGREES
+	 * @throws	IllegalArgumentException
+	 * 			One of the instructions is unknown
+	 * 			| for some instruction in recipe.getInstructions(): Instruction.parse(instruction) throws
+	 * @throws	IllegalArgumentException
+	 * 			There are more add instructions than amounts, or an amount has no ingredient type or unit
+	 * @throws	IllegalArgumentException
+	 * 			An instruction other than add is found when nothing has been added yet
+	 */
+	protected CompiledRecipe(Recipe recipe) throws IllegalArgumentException {
+		this.recipe = recipe;
+		List<String> instructions = recipe.getInstructionView();
+		List<Amount> amounts = recipe.getAmountView();
+		this.program = new Instruction[instructions.size()];
+		this.operands = new int[instructions.size()];
+		this.counts = new int[instructions.size()];
+		this.names = new String[amounts.size()];
+		this.units = new Quant[amounts.size()];
+		this.quantities = new int[amounts.size()];
+		this.types = new IngredientType[amounts.size()];
+		for (int index = 0; index < amounts.size(); index++) {
+			Amount amount = amounts.get(index);
+			if (amount.getIngredientType() == null || amount.getUnit() == null) {
+				throw new IllegalArgumentException("Amount " + index + " is incomplete");
+			}
+			types[index] = amount.getIngredientType();
+			names[index] = amount.getIngredientType().getName();
+			units[index] = amount.getUnit();
+			quantities[index] = amount.getQuantity();
+		}
+		int nbAdded = 0;
+		int depth = 0;
+		for (int pc = 0; pc < program.length; pc++) {
+			Instruction instruction = Instruction.parse(instructions.get(pc));
+			if (instruction == Instruction.ADD) {
+				if (nbAdded == amounts.size()) {
+					throw new IllegalArgumentException("Instruction " + pc + " adds more amounts than the recipe has");
+				}
+				operands[pc] = nbAdded++;
+				depth++;
+			} else if (depth == 0) {
+				throw new IllegalArgumentException("Instruction " + pc + " has nothing to " + instruction.getName());
+			} else if (instruction == Instruction.MIX) {
+				depth = 1;
+			} else {
+				operands[pc] = ExecutiveRecipe.DEFAULT_DEGREES;
+			}
+			program[pc] = instruction;
+			counts[pc] = 1;
+		}
+	}
+	
+	/**
+	 * Initialize a program for the given recipe with the given instructions and the amounts of the given program
+	 */
+	private CompiledRecipe(CompiledRecipe original, Instruction[] program, int[] operands, int[] counts) {
+		this.recipe = original.recipe;
+		this.program = program;
+		this.operands = operands;
+		this.counts = counts;
+		this.names = original.names;
+		this.units = original.units;
+		this.quantities = original.quantities;
+		this.types = original.types;
+	}
+	
+	/**
+	 * Return an optimized version of this program
+	 * 
+	 * @return	A program with the same recipe and amounts in which
+	 * 			consecutive heat and cool instructions are replaced by one instruction with their net number of degrees, 
+	 * 			or left out if they cancel each other;
+	 * 			consecutive add instructions are replaced by one add instruction taking all their amounts at once;
+	 * 			a mix at the end is left out, since the laboratory mixes everything after the last instruction anyway
+	 * 			| result.getRecipe() == getRecipe() && result.getNbAmounts() == getNbAmounts()
+	 * 			| && result.getLength() <= getLength()
+	 */
+	public CompiledRecipe optimize() {
+		Instruction[] newProgram = new Instruction[program.length];
+		int[] newOperands = new int[program.length];
+		int[] newCounts = new int[program.length];
+		int length = 0;
+		int pc = 0;
+		while (pc < program.length) {
+			Instruction instruction = program[pc];
+			if (instruction == Instruction.ADD) {
+				int count = 0;
+				while (pc < program.length && program[pc] == Instruction.ADD) {
+					count += counts[pc];
+					pc++;
+				}
+				newProgram[length] = Instruction.ADD;
+				newOperands[length] = operands[pc - 1] + counts[pc - 1] - count;
+				newCounts[length] = count;
+				length++;
+			} else if (instruction == Instruction.HEAT || instruction == Instruction.COOL) {
+				long degrees = 0;
+				while (pc < program.length && (program[pc] == Instruction.HEAT || program[pc] == Instruction.COOL)) {
+					degrees += program[pc] == Instruction.HEAT ? operands[pc] : -operands[pc];
+					pc++;
+				}
+				if (degrees != 0) {
+					newProgram[length] = degrees > 0 ? Instruction.HEAT : Instruction.COOL;
+					newOperands[length] = Math.toIntExact(Math.abs(degrees));
+					newCounts[length] = 1;
+					length++;
+				}
+			} else {
+				newProgram[length] = instruction;
+				newCounts[length] = 1;
+				length++;
+				pc++;
+			}
+		}
+		if (length > 0 && newProgram[length - 1] == Instruction.MIX) {
+			length--;
+		}
+		return new CompiledRecipe(this, Arrays.copyOf(newProgram, length), 
+				Arrays.copyOf(newOperands, length), Arrays.copyOf(newCounts, length));
+	}
+	
+	/**
+	 * The recipe which is compiled
+	 */
+	private final Recipe recipe;
+	
+	/**
+	 * Return the recipe which is compiled
+	 */
+	@Raw @Basic @Immutable
+	public Recipe getRecipe() {
+		return this.recipe;
+	}
+	
+	/**
+	 * The instructions of this program
+	 */
+	private final Instruction[] program;
+	
+	/**
+	 * The operand of each instruction, the index of the first amount for add instructions 
+	 * and the number of degrees for heat and cool instructions
+	 */
+	private final int[] operands;
+	
+	/**
+	 * The number of amounts each add instruction takes
+	 */
+	private final int[] counts;
+	
+	/**
+	 * The resolved names, units, quantities and types of the amounts
+	 */
+	private final String[] names;
+	private final Quant[] units;
+	private final int[] quantities;
+	private final IngredientType[] types;
+	
+	/**
+	 * Return the number of instructions in this program
+	 */
+	@Basic @Immutable
+	public int getLength() {
+		return program.length;
+	}
+	
+	/**
+	 * Return the instruction at the given index
+	 */
+	@Basic @Immutable
+	public Instruction getInstruction(int index) {
+		return program[index];
+	}
+	
+	/**
+	 * Return the operand of the instruction at the given index
+	 */
+	@Basic @Immutable
+	public int getOperand(int index) {
+		return operands[index];
+	}
+	
+	/**
+	 * Return the number of amounts taken by the instruction at the given index
+	 */
+	@Basic @Immutable
+	public int getCount(int index) {
+		return counts[index];
+	}
+	
+	/**
+	 * Return the number of amounts in this program
+	 */
+	@Basic @Immutable
+	public int getNbAmounts() {
+		return names.length;
+	}
+	
+	/**
+	 * Return the name of the ingredient of the amount at the given index
+	 */
+	@Basic @Immutable
+	public String getName(int amount) {
+		return names[amount];
+	}
+	
+	/**
+	 * Return the unit of the amount at the given index
+	 */
+	@Basic @Immutable
+	public Quant getUnit(int amount) {
+		return units[amount];
+	}
+	
+	/**
+	 * Return the quantity of the amount at the given index
+	 */
+	@Basic @Immutable
+	public int getQuantity(int amount) {
+		return quantities[amount];
+	}
+	
+	/**
+	 * Return the ingredient type of the amount at the given index
+	 */
+	@Basic @Immutable
+	public IngredientType getType(int amount) {
+		return types[amount];
+	}
+	
+	/**
+	 * Return the names, units and quantities of all amounts
+	 * 
+	 * @note	The arrays are shared and must not be modified
+	 */
+	String[] getNames() {
+		return names;
+	}
+	
+	Quant[] getUnits() {
+		return units;
+	}
+	
+	int[] getQuantities() {
+		return quantities;
+	}
+}
@@ -0,0 +1,85 @@
+package javaproject;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import be.kuleuven.cs.som.annotate.Raw;
+import quantity.Quant;
+
+/**
+ * A reusable factory wrapping alchemic ingredients in the smallest container that fits them
+ * 
+ * @invar	The name of the containers must be a valid name
+ * 			| getName() != null
+ * 
+ * @author Jonas
+ *
+ */
+public class ContainerFactory {
+	
+	/**
+	 * Initialize a new container factory creating containers with the given name
+	 * 
+	 * @param	name
+	 * 			The name of every container created by this factory
+	 * @post	The name is set to the given name
+	 * 			| new.getName() == name
+	 * @throws	IllegalArgumentException
+	 * 			The name is null
+	 * 			| name == null
+	 */
+	public ContainerFactory(String name) throws IllegalArgumentException {
+		if (name == null) {
+			throw new IllegalArgumentException("Containers need a name");
+		}
+		this.name = name;
+	}
+	
+	/**
+	 * The name of every container created by this factory
+	 */
+	private final String name;
+	
+	/**
+	 * Return the name of every container created by this factory
+	 */
+	@Raw @Basic @Immutable
+	public String getName() {
+		return this.name;
+	}
+	
+	/**
+	 * Wrap the given ingredient in the smallest container that can hold it
+	 * 
+	 * @param	ingredient
+	 * 			The alchemic ingredient we're trying to get into the smallest possible container
+	 * @return	A container with the name of this factory holding the ingredient.
+	 * 			The container cannot be the smallest or largest unit, so if the ingredient fits the smallest unit, a spoon
+	 * 			is returned, else if it does not fit the largest container, the ingredient is reduced to fill the largest container
+	 * 			| result == new IngredientContainer(getName(), ingredient.getState().getSmallestContainer(ingredient.giveInLowestUnit()), ingredient)
+	 * @effect	If the ingredient does not fit in any container, it is canned in the largest container
+	 * 			| ingredient.can(ingredient.getHighestContainerQuantity())
+	 */
+	public IngredientContainer wrap(AlchemicIngredient ingredient) {
+		Quant unit = ingredient.getState().getSmallestContainer(ingredient.giveInLowestUnit());
+		ingredient.can(unit);
+		return new IngredientContainer(getName(), unit, ingredient);
+	}
+	
+	/**
+	 * Wrap the given ingredient without reducing it
+	 * 
+	 * @param	ingredient
+	 * 			The alchemic ingredient, possibly a batch larger than the largest container
+	 * @return	If the ingredient fits the largest container, the same container as wrap
+	 * 			| if (ingredient.fits(ingredient.getHighestContainerQuantity())) result == wrap(ingredient)
+	 * @return	Else a batch container standing for as many of the largest containers as needed, holding all of the ingredient
+	 * 			| else result == new BatchContainer(getName(), ingredient)
+	 */
+	public IngredientContainer wrapBatch(AlchemicIngredient ingredient) {
+		if (ingredient.fits(ingredient.getHighestContainerQuantity())) {
+			return wrap(ingredient);
+		}
+		return new BatchContainer(getName(), ingredient);
+	}
+
+}
@@ -71,9 +71,20 @@ public class CoolingBox extends TempDevice {
 	 * 			| getResult().cool(Long.max(-1 * AlchemicIngredient.differenceTemperature(getTemperature(), getResult().getTemperature()), 0))
 	 */
 	@Override
-	public void execute() {
+	public synchronized void execute() {
 		super.execute();
-		getResult().cool(Long.max(-1 * AlchemicIngredient.differenceTemperature(getTemperature(), getResult().getTemperature()), 0));
+		applyTemperature(getResult(), getTemperatureValue());
+	}
+	
+	/**
+	 * Cool the given ingredient down to the given cooling box temperature
+	 * 
+	 * @effect	The ingredient is cooled with the difference between the ingredient and the cooling box if the cooling box is colder
+	 * 			| ingredient.cool(Long.max(ingredient.getTemperatureValue() - deviceTemperature, 0))
+	 */
+	@Override
+	protected void applyTemperature(AlchemicIngredient ingredient, long deviceTemperature) {
+		ingredient.cool(Long.max(ingredient.getTemperatureValue() - deviceTemperature, 0));
 	}
 
 
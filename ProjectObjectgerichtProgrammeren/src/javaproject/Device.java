@@ -6,7 +6,6 @@ import java.util.Stack;
 
 import be.kuleuven.cs.som.annotate.*;
 import javaproject.exception.*;
-import quantity.Quant;
 
 /**
  * A device capable of performing operations on given Alchemic Ingredients (defensive programming)
@@ -104,10 +103,8 @@ public abstract class Device {
 	 * 			The container which we're adding
 	 * @post	The content of the container is now stored in the device
 	 * 			| new.getIngredients().contains(container) == true
-	 * @post	If the device can only hold the current number of ingredients, the last ingredient in the device is replaced 
-	 * 			by the ingredient in the container and the last ingredient is terminated.
-	 * 			| new.getIngredients().contains(old.getIngredients().get(getIngredients().size() - 1) == false
-	 * 			| && old.getIngredients().get(getIngredients().size() - 1).isTerminated() == true
+	 * @post	The container is empty
+	 * 			| container.getContents() == null
 	 * @throws	emptyContainerException
 	 * 			The container you're adding is empty
 	 * 			| container.getContents() == null
@@ -117,10 +114,38 @@ public abstract class Device {
 	 * @throws	IllegalArgumentException
 	 * 			This device does not sit in a valid lab
 	 * 			| !isInCorrectLab()
+	 * @throws	IllegalStateException
+	 * 			The device has no room for another ingredient; nothing in the device or the container is changed
+	 * 			| !isValidNumberOfItems(getIngredients().size() + 1)
+	 * @note	An ingredient that has to wait for room is put in the input queue instead, see put and offer
 	 */
+	public synchronized void add(IngredientContainer container) 
+			throws EmptyContainerException, IllegalArgumentException, IllegalStateException {
+		checkAddable(container);
+		if (!isValidNumberOfItems(getIngredients().size() + 1)) {
+			throw new IllegalStateException("This device has no room for another ingredient");
+		}
+		push(container.getContents());	
+		container.empty();
+	}
 	
-	
-	public void add(IngredientContainer container) throws EmptyContainerException, IllegalArgumentException {
+	/**
+	 * Check whether the contents of the given container can be added to this device
+	 * 
+	 * @param	container
+	 * 			The container which we're adding
+	 * @throws	emptyContainerException
+	 * 			The container you're adding is empty
+	 * 			| container.getContents() == null
+	 * @throws	IllegalArgumentException
+	 * 			The alchemic ingredient you're trying to add has already been terminated
+	 * 			| container.getContents().isTerminated()
+	 * @throws	IllegalArgumentException
+	 * 			This device does not sit in a valid lab
+	 * 			| !isInCorrectLab()
+	 */
+	@Model
+	protected void checkAddable(IngredientContainer container) throws EmptyContainerException, IllegalArgumentException {
 		if (!isInCorrectLab()) {
 			throw new IllegalArgumentException("This device is not in the correct lab!");
 		}
@@ -130,11 +155,127 @@ public abstract class Device {
 		if (container.getContents().isTerminated()) {
 			throw new IllegalArgumentException("Container's ingredient is terminated!");
 		}
-		if (!isValidNumberOfItems(getIngredients().size() +1)) {
-			pop().terminate();
-		} 
-		push(container.getContents());	
+	}
+	
+	/***************************************************************
+	 * INPUT QUEUE
+	 ***************************************************************/
+	
+	/**
+	 * The default number of ingredients that can wait in the input queue of a device
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 16;
+	
+	/**
+	 * The queue of ingredients waiting to be fed into this device
+	 */
+	private final InputQueue inputQueue = new InputQueue(DEFAULT_QUEUE_CAPACITY, InputQueue.OverflowPolicy.BLOCK);
+	
+	/**
+	 * Return the queue of ingredients waiting to be fed into this device
+	 */
+	@Raw @Basic @Immutable
+	public InputQueue getInputQueue() {
+		return inputQueue;
+	}
+	
+	/**
+	 * Give the input queue of this device the given capacity and policy
+	 * 
+	 * @param	capacity
+	 * 			The number of ingredients that can wait in the queue
+	 * @param	policy
+	 * 			What happens when an ingredient is offered to a full queue
+	 * @effect	The input queue is reconfigured in place, so producers holding the queue keep using the same queue
+	 * 			| getInputQueue().reconfigure(capacity, policy)
+	 * @throws	IllegalStateException
+	 * 			There are still ingredients waiting in the queue, or threads waiting to put or take one
+	 * @throws	IllegalArgumentException
+	 * 			The capacity or policy is not valid
+	 * 			| !InputQueue.isValidCapacity(capacity) || policy == null
+	 */
+	public void configureInputQueue(int capacity, InputQueue.OverflowPolicy policy) 
+			throws IllegalStateException, IllegalArgumentException {
+		getInputQueue().reconfigure(capacity, policy);
+	}
+	
+	/**
+	 * Offer the contents of a container to the input queue of this device without waiting
+	 * 
+	 * @param	container
+	 * 			The container whose contents are offered
+	 * @return	True if the contents were accepted by the input queue
+	 * 			| result == getInputQueue().offer(container.getContents())
+	 * @post	If the contents were accepted, the container is empty
+	 * 			| if (result) then container.getContents() == null
+	 * @throws	EmptyContainerException
+	 * 			The container is empty
+	 * 			| container.getContents() == null
+	 * @throws	IllegalArgumentException
+	 * 			The contents are terminated or this device does not sit in a valid lab
+	 * 			| container.getContents().isTerminated() || !isInCorrectLab()
+	 */
+	public boolean offer(IngredientContainer container) throws EmptyContainerException, IllegalArgumentException {
+		checkAddable(container);
+		if (!getInputQueue().offer(container.getContents())) {
+			return false;
+		}
 		container.empty();
+		return true;
+	}
+	
+	/**
+	 * Put the contents of a container in the input queue of this device
+	 * 
+	 * @param	container
+	 * 			The container whose contents are put in the queue
+	 * @effect	The contents are put in the input queue
+	 * 			| getInputQueue().put(container.getContents())
+	 * @post	The container is empty
+	 * 			| container.getContents() == null
+	 * @throws	InterruptedException
+	 * 			The queue is full, its policy is BLOCK and the thread was interrupted while waiting
+	 * @throws	IllegalStateException
+	 * 			The queue is full and its policy is REJECT
+	 * @throws	EmptyContainerException
+	 * 			The container is empty
+	 * 			| container.getContents() == null
+	 * @throws	IllegalArgumentException
+	 * 			The contents are terminated or this device does not sit in a valid lab
+	 * 			| container.getContents().isTerminated() || !isInCorrectLab()
+	 */
+	public void put(IngredientContainer container) 
+			throws InterruptedException, IllegalStateException, EmptyContainerException, IllegalArgumentException {
+		checkAddable(container);
+		getInputQueue().put(container.getContents());
+		container.empty();
+	}
+	
+	/**
+	 * Move the oldest waiting ingredient from the input queue into this device, if there is room for it
+	 * 
+	 * @return	True if an ingredient was moved into the device
+	 * 			| result == (!getInputQueue().isEmpty() && isValidNumberOfItems(getIngredients().size() + 1))
+	 * @post	If an ingredient was moved, it is the last ingredient in the device
+	 * 			| if (result) then new.getIngredients().get(new.getIngredients().size() - 1) == old.getInputQueue().poll()
+	 * @throws	IllegalArgumentException
+	 * 			This device does not sit in a valid lab
+	 * 			| !isInCorrectLab()
+	 * @note	Feeding, adding and executing all synchronize on this device, so they never move in more ingredients than there is room for
+	 */
+	public synchronized boolean feed() throws IllegalArgumentException {
+		if (!isInCorrectLab()) {
+			throw new IllegalArgumentException("This device is not in the correct lab!");
+		}
+		if (!isValidNumberOfItems(getIngredients().size() + 1)) {
+			return false;
+		}
+		AlchemicIngredient ingredient = getInputQueue().poll();
+		if (ingredient == null) {
+			return false;
+		}
+		push(ingredient);
+		return true;
 	}
 	
 
@@ -150,7 +291,7 @@ public abstract class Device {
 	 * 			The stack is empty
 	 * 			| getIngredients().isEmpty() == true
 	 */
-	protected AlchemicIngredient pop() throws EmptyStackException {
+	protected synchronized AlchemicIngredient pop() throws EmptyStackException {
 		return deviceStorage.pop();
 	}
 	
@@ -162,7 +303,7 @@ public abstract class Device {
 	 * @effect	Push an ingredient onto the stack
 	 * 			deviceStorage.push(ingredient)
 	 */
-	protected void push(AlchemicIngredient ingredient) {
+	protected synchronized void push(AlchemicIngredient ingredient) {
 		deviceStorage.push(ingredient);
 	}
 	
@@ -172,7 +313,7 @@ public abstract class Device {
 	 * @post	The device storage is cleared
 	 * 			| new.isEmpty() == true
 	 */
-	protected void clear() {
+	protected synchronized void clear() {
 		deviceStorage.clear();
 	}
 	
@@ -205,7 +346,7 @@ public abstract class Device {
 	 * @return	result == new ArrayList<AlchemicIngredient>(deviceStorage)
 	 */
 	@Raw @Basic
-	protected ArrayList<AlchemicIngredient> getIngredients() {
+	protected synchronized ArrayList<AlchemicIngredient> getIngredients() {
 		return new ArrayList<AlchemicIngredient>(deviceStorage); 
 	}
 	
@@ -223,7 +364,7 @@ public abstract class Device {
 	 * 			| !isInCorrectLab()
 	 */
 	
-	public IngredientContainer result() throws EmptyResultException , IllegalArgumentException {
+	public synchronized IngredientContainer result() throws EmptyResultException , IllegalArgumentException {
 		if (!isInCorrectLab()) {
 			throw new IllegalArgumentException("This device is not in the correct lab!");
 		}
@@ -250,7 +391,7 @@ public abstract class Device {
 	 * 			| !isInCorrectLab()
 	 */
 	
-	public AlchemicIngredient ingredientResult() throws EmptyResultException , IllegalArgumentException {
+	public synchronized AlchemicIngredient ingredientResult() throws EmptyResultException , IllegalArgumentException {
 		if (!isInCorrectLab()) {
 			throw new IllegalArgumentException("This device is not in the correct lab!");
 		}
@@ -279,16 +420,25 @@ public abstract class Device {
 	 *			|			alchemResult.getHighestContainerQuantity() )
 	 */
 	public static IngredientContainer stuffInsideContainer(AlchemicIngredient alchemResult) {
-		for (Quant unit : alchemResult.getState().getQuantities().subList(1, alchemResult.getSize()-1)) {
-			if (alchemResult.fits(unit)) {
-				return new IngredientContainer("Result", unit, alchemResult);
-			}
-		}
-		Quant largestUnit = alchemResult.getHighestContainerQuantity();
-		alchemResult.can(largestUnit);
-		return new IngredientContainer("Result", largestUnit, alchemResult);
+		return RESULT_CONTAINERS.wrap(alchemResult);
+	}
+	
+	/**
+	 * Put the given ingredient in a container without reducing it
+	 * 
+	 * @param	alchemResult
+	 * 			The alchemic ingredient, possibly a batch larger than the largest container
+	 * @return	| result == RESULT_CONTAINERS.wrapBatch(alchemResult)
+	 */
+	public static IngredientContainer stuffInsideBatchContainer(AlchemicIngredient alchemResult) {
+		return RESULT_CONTAINERS.wrapBatch(alchemResult);
 	}
 	
+	/**
+	 * The factory wrapping the results of devices in containers
+	 */
+	private static final ContainerFactory RESULT_CONTAINERS = new ContainerFactory("Result");
+	
 
 	
 	
@@ -296,7 +446,7 @@ public abstract class Device {
 	 * Return the result without deleting it
 	 */
 	@Raw @Basic
-	protected AlchemicIngredient getResult() {
+	protected synchronized AlchemicIngredient getResult() {
 		return result;
 	}
 	
@@ -310,7 +460,7 @@ public abstract class Device {
 	 * 			| !isInCorrectLab()
 	 */
 	@Basic
-	protected void emptyResult() throws IllegalArgumentException {
+	protected synchronized void emptyResult() throws IllegalArgumentException {
 		if (!isInCorrectLab()) {
 			throw new IllegalArgumentException("This device is not in the correct lab!");
 		}
@@ -326,7 +476,7 @@ public abstract class Device {
 	 * 			| new.getResult == result
 	 */
 	@Model
-	protected void setResult(AlchemicIngredient result) {
+	protected synchronized void setResult(AlchemicIngredient result) {
 		this.result = result;
 	}
 	
@@ -337,7 +487,7 @@ public abstract class Device {
 	 * 			| result == deviceStorage.empty()
 	 */
 	@Basic
-	public boolean isEmpty() {
+	public synchronized boolean isEmpty() {
 		return deviceStorage.empty();
 	}
 	
@@ -354,7 +504,7 @@ public abstract class Device {
 	 * 			This device does not sit in a valid lab
 	 * 			| !isInCorrectLab()
 	 */
-	public void execute() throws EmptyResultException, IllegalStateException {
+	public synchronized void execute() throws EmptyResultException, IllegalStateException {
 		if (!isInCorrectLab()) {
 			throw new IllegalArgumentException("This device is not in the correct lab!");
 		}
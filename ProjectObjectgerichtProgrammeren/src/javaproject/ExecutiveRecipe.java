@@ -1,8 +1,12 @@
 package javaproject;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EmptyStackException;
+import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Stack;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import be.kuleuven.cs.som.annotate.*;
 import be.kuleuven.cs.som.annotate.Model;
@@ -11,6 +15,8 @@ import javaproject.Recipe.Amount;
 import javaproject.exception.ExceedsContainerCapacityException;
 import javaproject.exception.ExceedsStorageException;
 import javaproject.exception.NameNotFoundException;
+import javaproject.exception.StateMismatchException;
+import quantity.Quant;
 
 /**
  * 
@@ -50,43 +56,290 @@ public class ExecutiveRecipe {
 	
 
 		public void add(Laboratory lab) throws NameNotFoundException, ExceedsContainerCapacityException, ExceedsStorageException {
-			push(lab.get(getCurrentAmount().getIngredientType().getName(), getCurrentAmount().getUnit(), getCurrentAmount().getQuantity()));
+			Amount amount = getCurrentAmount();
+			add(lab, amount.getIngredientType().getName(), amount.getUnit(), amount.getQuantity());
 			nextAmount();
 		}
+		
+		/**
+		 * Take the given amount of an ingredient, multiplied by our factor, from the given lab and put it on the stack
+		 * 
+		 * @param	lab
+		 * 			The lab from which the ingredient is taken
+		 * @param	name
+		 * 			The name of the ingredient
+		 * @param	unit
+		 * 			The unit of the amount
+		 * @param	quantity
+		 * 			The quantity of the amount
+		 * @effect	The multiplied amount is taken from the lab in one withdrawal and pushed as one container
+		 * 			| pushMerged(lab.returnKettle(), lab.getSplit(name, unit, quantity, getFactor()))
+		 * @throws	IllegalStateException
+		 * 			The amount does not fit one container and the lab has no kettle to merge it; nothing is taken out of the lab
+		 * 			| isSplit(unit, quantity, getFactor()) && !lab.hasValidKettle()
+		 */
+		public void add(Laboratory lab, String name, Quant unit, int quantity) 
+				throws NameNotFoundException, ExceedsStorageException, StateMismatchException {
+			if (intermediates != null && intermediates.contains(name)) {
+				push(intermediates.take(name, unit, quantity, getFactor()), true);
+			} else {
+				Kettle kettle = isSplit(unit, quantity, getFactor()) ? lab.returnKettle() : null;
+				pushMerged(kettle, lab.getSplit(name, unit, quantity, getFactor()));
+			}
+		}
 
 	
 
+		/**
+		 * Take the given amounts of ingredients from the given lab in one withdrawal and put them on the stack
+		 * 
+		 * @param	lab
+		 * 			The lab from which the ingredients are taken
+		 * @param	names
+		 * 			The names of the ingredients
+		 * @param	units
+		 * 			The units of the amounts
+		 * @param	quantities
+		 * 			The quantities of the amounts
+		 * @param	from
+		 * 			The index of the first amount
+		 * @param	count
+		 * 			The number of amounts
+		 * @effect	The ingredients, multiplied by our factor, are taken from the lab and pushed in order
+		 * 			| for each pieces in lab.getAll(names, units, quantities, from, count, getFactor()): pushMerged(lab.returnKettle(), pieces)
+		 * @throws	IllegalStateException
+		 * 			One of the amounts does not fit one container and the lab has no kettle to merge it; nothing is taken out of the lab
+		 * 			| (for some I in from..from+count-1: isSplit(units[I], quantities[I], getFactor())) && !lab.hasValidKettle()
+		 */
+		public void addAll(Laboratory lab, String[] names, Quant[] units, int[] quantities, int from, int count) 
+				throws NameNotFoundException, ExceedsStorageException {
+			if (intermediates != null) {
+				for (int index = from; index < from + count; index++) {
+					if (intermediates.contains(names[index])) {
+						for (int amount = from; amount < from + count; amount++) {
+							add(lab, names[amount], units[amount], quantities[amount]);
+						}
+						return;
+					}
+				}
+			}
+			Kettle kettle = null;
+			for (int index = from; index < from + count && kettle == null; index++) {
+				if (isSplit(units[index], quantities[index], getFactor())) {
+					kettle = lab.returnKettle();
+				}
+			}
+			for (ArrayList<IngredientContainer> pieces : lab.getAll(names, units, quantities, from, count, getFactor())) {
+				pushMerged(kettle, pieces);
+			}
+		}
+		
+		/**
+		 * Check whether the given multiplied amount is split over several containers when it is taken out of a lab
+		 * 
+		 * @return	| result == unit.getType().convertToLowestUnit(unit) * quantity * factor 
+		 * 			|	> unit.getType().convertToLowestUnit(unit.getType().getLargestContainer())
+		 */
+		private static boolean isSplit(Quant unit, int quantity, int factor) {
+			State state = unit.getType();
+			return (long) state.convertToLowestUnit(unit) * quantity * factor > state.convertToLowestUnit(state.getLargestContainer());
+		}
+		
+		/**
+		 * Push the given pieces of one amount as a single container
+		 * 
+		 * @param	kettle
+		 * 			The kettle which merges the pieces, fetched before the pieces were taken out of the lab
+		 * @param	pieces
+		 * 			The containers holding the amount together
+		 * @pre		| pieces.size() == 1 || kettle != null
+		 * @effect	A single piece is pushed as it is, several pieces are mixed in the kettle
+		 * 			| if (pieces.size() == 1) push(pieces.get(0))
+		 * 			| else push(mixIn(kettle, pieces))
+		 */
+		private void pushMerged(Kettle kettle, List<IngredientContainer> pieces) {
+			for (IngredientContainer piece : pieces) {
+				nbWithdrawn += piece.getContents().giveInLowestUnit();
+			}
+			if (pieces.size() == 1) {
+				push(pieces.get(0));
+			} else {
+				push(mixIn(kettle, pieces));
+			}
+		}
+		
+		/**
+		 * Heat the contents of the given container by the given number of degrees in the given oven
+		 * 
+		 * @effect	The oven is set to the temperature of the ingredient raised by the given degrees and executed
+		 * 			| oven.changeTemperature(container.getContents().getTemperatureValue())
+		 * 			| oven.deltaTemperature(degrees)
+		 * 			| oven.add(container)
+		 * 			| oven.execute()
+		 * @return	The result of the oven, not reduced to fit the largest container
+		 * 			| result == Device.stuffInsideBatchContainer(oven.ingredientResult())
+		 */
+		static IngredientContainer heatIn(Oven oven, IngredientContainer container, int degrees) {
+			oven.changeTemperature(container.getContents().getTemperatureValue());
+			oven.deltaTemperature(degrees);
+			oven.add(container);
+			oven.execute();
+			return Device.stuffInsideBatchContainer(oven.ingredientResult());
+		}
+		
+		/**
+		 * Cool the contents of the given container by the given number of degrees in the given cooling box
+		 * 
+		 * @effect	The cooling box is set to the temperature of the ingredient lowered by the given degrees and executed
+		 * 			| fridge.changeTemperature(container.getContents().getTemperatureValue())
+		 * 			| fridge.deltaTemperature(-degrees)
+		 * 			| fridge.add(container)
+		 * 			| fridge.execute()
+		 * @return	The result of the cooling box, not reduced to fit the largest container
+		 * 			| result == Device.stuffInsideBatchContainer(fridge.ingredientResult())
+		 */
+		static IngredientContainer coolIn(CoolingBox fridge, IngredientContainer container, int degrees) {
+			fridge.changeTemperature(container.getContents().getTemperatureValue());
+			fridge.deltaTemperature(-degrees);
+			fridge.add(container);
+			fridge.execute();
+			return Device.stuffInsideBatchContainer(fridge.ingredientResult());
+		}
+		
+		/**
+		 * Mix the contents of the given containers in the given kettle
+		 * 
+		 * @effect	All containers are added to the kettle in order and the kettle is executed
+		 * 			| for each container in containers: kettle.add(container)
+		 * 			| kettle.execute()
+		 * @return	The result of the kettle, not reduced to fit the largest container
+		 * 			| result == Device.stuffInsideBatchContainer(kettle.ingredientResult())
+		 */
+		static IngredientContainer mixIn(Kettle kettle, List<IngredientContainer> containers) {
+			return mixIn(kettle, containers, null);
+		}
+		
+		/**
+		 * Mix the contents of the given containers in the given kettle and give the result the given special name
+		 * 
+		 * @effect	All containers are added to the kettle in order and the kettle is executed with the special name, if any
+		 * 			| for each container in containers: kettle.add(container)
+		 * 			| if (specialName == null) kettle.execute() else kettle.execute(specialName)
+		 * @return	The result of the kettle, not reduced to fit the largest container
+		 * 			| result == Device.stuffInsideBatchContainer(kettle.ingredientResult())
+		 */
+		static IngredientContainer mixIn(Kettle kettle, List<IngredientContainer> containers, String specialName) {
+			for (IngredientContainer container : containers) {
+				kettle.add(container);
+			}
+			if (specialName == null) {
+				kettle.execute();
+			} else {
+				kettle.execute(specialName);
+			}
+			return Device.stuffInsideBatchContainer(kettle.ingredientResult());
+		}
+		
+		/**
+		 * The number of degrees by which heat and cool change the temperature
+		 */
+		public static final int DEFAULT_DEGREES = 50;
+
 		public void heat(Laboratory lab) throws IllegalStateException {
-			lab.returnOven().changeTemperature(getLastCurrentElement().getContents().getTemperature());
-			lab.returnOven().deltaTemperature(50);
-			lab.returnOven().add(pop());
-			lab.returnOven().execute();
-			push(lab.returnOven().result());
+			heat(lab, DEFAULT_DEGREES);
+		}
+		
+		/**
+		 * Heat the top of the stack by the given number of degrees in the oven of the given lab
+		 * 
+		 * @param	lab
+		 * 			The lab whose oven is used
+		 * @param	degrees
+		 * 			The number of degrees by which the ingredient is heated
+		 * @throws	IllegalStateException
+		 * 			The lab has no oven
+		 */
+		public void heat(Laboratory lab, int degrees) throws IllegalStateException {
+			Oven oven = lab.returnOven();
+			boolean intermediate = isIntermediate();
+			push(heatIn(oven, pop(), degrees), intermediate);
 		}
 
 	
 
 		
 		public void cool(Laboratory lab) throws IllegalStateException {
-			lab.returnFridge().changeTemperature(getLastCurrentElement().getContents().getTemperature());
-			lab.returnFridge().deltaTemperature(-50);
-			lab.returnFridge().add(pop());
-			lab.returnFridge().execute();
-			push(lab.returnFridge().result());
+			cool(lab, DEFAULT_DEGREES);
+		}
+		
+		/**
+		 * Cool the top of the stack by the given number of degrees in the cooling box of the given lab
+		 * 
+		 * @param	lab
+		 * 			The lab whose cooling box is used
+		 * @param	degrees
+		 * 			The number of degrees by which the ingredient is cooled
+		 * @throws	IllegalStateException
+		 * 			The lab has no cooling box
+		 */
+		public void cool(Laboratory lab, int degrees) throws IllegalStateException {
+			CoolingBox fridge = lab.returnFridge();
+			boolean intermediate = isIntermediate();
+			push(coolIn(fridge, pop(), degrees), intermediate);
 		}
 
 	
 
 		public void mix(Laboratory lab) throws IllegalStateException {
-			while (getCurrentItems().size() > 0) {
-				lab.returnKettle().add(pop());
+			mix(lab, null);
+		}
+		
+		/**
+		 * Mix everything on the stack in the kettle of the given lab and give the result the given special name
+		 * 
+		 * @param	lab
+		 * 			The lab whose kettle is used
+		 * @param	specialName
+		 * 			The special name of the result, null to keep its mixed name
+		 * @effect	The stack is emptied top first into the kettle and the result is pushed
+		 * 			| push(mixIn(lab.returnKettle(), popped containers, specialName))
+		 * @throws	IllegalStateException
+		 * 			The lab has no kettle
+		 */
+		public void mix(Laboratory lab, String specialName) throws IllegalStateException {
+			Kettle kettle = lab.returnKettle();
+			ArrayList<IngredientContainer> containers = new ArrayList<IngredientContainer>(getNbCurrentItems());
+			while (getNbCurrentItems() > 0) {
+				containers.add(pop());
 			}
-			lab.returnKettle().execute();
-			push(lab.returnKettle().result());
+			push(mixIn(kettle, containers, specialName));
 		}
 
 	
 	
+	/**
+	 * The intermediate products which are used before the storage of the lab, null if there are none
+	 */
+	private IntermediateStore intermediates = null;
+	
+	/**
+	 * Return the intermediate products which are used before the storage of the lab, null if there are none
+	 */
+	@Raw @Basic
+	public IntermediateStore getIntermediates() {
+		return this.intermediates;
+	}
+	
+	/**
+	 * Use the given intermediate products before the storage of the lab
+	 * 
+	 * @post	| new.getIntermediates() == intermediates
+	 */
+	@Model
+	protected void setIntermediates(IntermediateStore intermediates) {
+		this.intermediates = intermediates;
+	}
+	
 	/**
 	 * The factor with which this recipe is multiplied
 	 */
@@ -114,53 +367,122 @@ public class ExecutiveRecipe {
 	}
 	
 	/**
-	 * List containing the ingredients we've manufactured so far during the execution of a recipe
+	 * The ingredients we've manufactured so far during the execution of a recipe, bottom first
+	 */
+	private IngredientContainer[] currentItems = new IngredientContainer[8];
+	
+	/**
+	 * Whether each ingredient on the stack was taken from the intermediate products, in the same order
 	 */
-	private Stack<IngredientContainer> currentItems = new Stack<IngredientContainer>();
+	private boolean[] intermediateItems = new boolean[8];
 	
 	/**
-	 * Return a copy of the list of ingredients currently employed in making a recipe
+	 * The number of ingredients on the stack
 	 */
-	private ArrayList<IngredientContainer> getCurrentItems() {
-		return new ArrayList<IngredientContainer>(currentItems);
+	private int nbCurrentItems = 0;
+	
+	/**
+	 * The amount taken out of the storage of a lab so far, in lowest units
+	 */
+	private long nbWithdrawn = 0;
+	
+	/**
+	 * Return the amount taken out of the storage of a lab so far, in lowest units
+	 * 
+	 * @note	Amounts taken from the intermediate products are not counted
+	 */
+	@Raw @Basic
+	public long getNbWithdrawn() {
+		return nbWithdrawn;
+	}
+	
+	/**
+	 * Return the number of ingredients currently employed in making a recipe
+	 */
+	@Raw @Basic
+	public int getNbCurrentItems() {
+		return nbCurrentItems;
 	}
 	
 	/**
 	 * Return the last element of current items
 	 * 
 	 * @return	The last element of the current items
-	 * 			| getCurrentItems().get(getCurrentItems().size() - 1)
+	 * 			| result == the element pushed last and not yet popped
+	 * @throws	IndexOutOfBoundsException
+	 * 			The stack is empty
+	 * 			| getNbCurrentItems() == 0
 	 */
-	public IngredientContainer getLastCurrentElement() {
-		return getCurrentItems().get(getCurrentItems().size() - 1);
+	public IngredientContainer getLastCurrentElement() throws IndexOutOfBoundsException {
+		if (nbCurrentItems == 0) {
+			throw new IndexOutOfBoundsException("The stack is empty");
+		}
+		return currentItems[nbCurrentItems - 1];
 	}
 	
 	/**
 	 * Push a new element to current items
 	 * 
 	 * @post	The ingredient is added to the current items
-	 * 			| getCurrentItems().get(getCurrentItem().size() - 1) == ingredient
+	 * 			| new.getLastCurrentElement() == ingredient
+	 * 			| new.getNbCurrentItems() == getNbCurrentItems() + 1
 	 */
 	@Basic
 	public void push(IngredientContainer ingredient) {
-		currentItems.push(ingredient);
+		push(ingredient, false);
+	}
+	
+	/**
+	 * Push a new element to current items, remembering whether it was taken from the intermediate products
+	 * 
+	 * @post	| new.getLastCurrentElement() == ingredient && new.isIntermediate() == intermediate
+	 * 			| && new.getNbCurrentItems() == getNbCurrentItems() + 1
+	 */
+	private void push(IngredientContainer ingredient, boolean intermediate) {
+		if (nbCurrentItems == currentItems.length) {
+			currentItems = Arrays.copyOf(currentItems, 2 * currentItems.length);
+			intermediateItems = Arrays.copyOf(intermediateItems, currentItems.length);
+		}
+		intermediateItems[nbCurrentItems] = intermediate;
+		currentItems[nbCurrentItems++] = ingredient;
+	}
+	
+	/**
+	 * Check whether the last element of current items was taken from the intermediate products
+	 * 
+	 * @return	True if the element was taken from the intermediate products, possibly heated or cooled since
+	 * @throws	IndexOutOfBoundsException
+	 * 			The stack is empty
+	 * 			| getNbCurrentItems() == 0
+	 */
+	public boolean isIntermediate() throws IndexOutOfBoundsException {
+		if (nbCurrentItems == 0) {
+			throw new IndexOutOfBoundsException("The stack is empty");
+		}
+		return intermediateItems[nbCurrentItems - 1];
 	}
 	
 	/**
 	 * Pop an element from the current ingredient container stack
 	 * 
-	 * @post	The first element is removed from the current ingredient container stack
-	 * 			| old.getCurrentItems().get(I) == new.getCurrentItems().get(I - 1) 
-	 * @return	The first element from the stack
-	 * 			| currentItems.pop()
+	 * @post	The last element is removed from the current ingredient container stack
+	 * 			| new.getNbCurrentItems() == getNbCurrentItems() - 1
+	 * @return	The last element from the stack
+	 * 			| result == getLastCurrentElement()
+	 * @throws	EmptyStackException
+	 * 			The stack is empty
+	 * 			| getNbCurrentItems() == 0
 	 */
 	@Basic
-	public IngredientContainer pop() {
-		return currentItems.pop();
+	public IngredientContainer pop() throws EmptyStackException {
+		if (nbCurrentItems == 0) {
+			throw new EmptyStackException();
+		}
+		IngredientContainer result = currentItems[--nbCurrentItems];
+		currentItems[nbCurrentItems] = null;
+		return result;
 	}
 	
-
-	
 	/**
 	 * The index of our amounts
 	 */
@@ -187,13 +509,13 @@ public class ExecutiveRecipe {
 	 * Return the current amount
 	 * 
 	 * @return	Give the current amount 
-	 * 			| result == getRecipe().getAmounts().get(getIndexAmount())
+	 * 			| result == getRecipe().getAmountView().get(getIndexAmount())
 	 * @throws	NoSuchElementException
 	 * 			There are no amounts left
 	 * 			| getIndexAmount() >= getAmounts().size()
 	 */
 	public Amount getCurrentAmount() throws IndexOutOfBoundsException  {
-		return getRecipe().getAmounts().get(getIndexAmount());
+		return getRecipe().getAmountView().get(getIndexAmount());
 	}
 	
 
@@ -205,13 +527,69 @@ public class ExecutiveRecipe {
 	 * @param	lab
 	 * 			The laboratory to which we're returning our stuff
 	 * @post	Our stack is empty
-	 * 			| getCurrentItems().isEmpty()
-	 * @effect	All remaining ingredient containers are added to the given lab
-	 * 			| 
+	 * 			| new.getNbCurrentItems() == 0
+	 * @effect	All remaining ingredient containers taken from the intermediate products are put back in the store as they are,
+	 * 			all others are added to the given lab
+	 * 			| while (getNbCurrentItems() > 0)
+	 * 			|	if (isIntermediate()) getIntermediates().put(pop())
+	 * 			|	else lab.add(pop())
 	 */
 	protected void returnToStorage(Laboratory lab) {
-		while (!getCurrentItems().isEmpty()) {
-			lab.add(pop());
+		while (getNbCurrentItems() > 0) {
+			if (isIntermediate()) {
+				intermediates.put(pop());
+			} else {
+				lab.add(pop());
+			}
+		}
+	}
+	
+	/**
+	 * Prepare this executive recipe to execute the given recipe from the start
+	 * 
+	 * @param	recipe
+	 * 			The recipe which is executed next
+	 * @post	| new.getRecipe() == recipe && new.getFactor() == 1 && new.getIntermediates() == null
+	 * 			| && new.getIndexAmount() == 0 && new.getNbCurrentItems() == 0
+	 */
+	public void reset(Recipe recipe) {
+		this.recipe = recipe;
+		this.factor = 1;
+		this.indexAmount = 0;
+		this.intermediates = null;
+		this.nbWithdrawn = 0;
+		Arrays.fill(currentItems, 0, nbCurrentItems, null);
+		this.nbCurrentItems = 0;
+	}
+	
+	/**
+	 * Executive recipes which are no longer used, kept to be used again
+	 */
+	private static final BlockingQueue<ExecutiveRecipe> pool = new ArrayBlockingQueue<ExecutiveRecipe>(16);
+	
+	/**
+	 * Return an executive recipe for the given recipe, reusing a released one if possible
+	 * 
+	 * @return	| result.getRecipe() == recipe && result.getFactor() == 1
+	 * 			| && result.getIndexAmount() == 0 && result.getNbCurrentItems() == 0
+	 */
+	static ExecutiveRecipe obtain(Recipe recipe) {
+		ExecutiveRecipe result = pool.poll();
+		if (result == null) {
+			return new ExecutiveRecipe(recipe);
 		}
+		result.reset(recipe);
+		return result;
+	}
+	
+	/**
+	 * Give this executive recipe back to be reused
+	 * 
+	 * @pre		This executive recipe is not used anymore by the caller
+	 * @effect	| reset(null)
+	 */
+	void release() {
+		reset(null);
+		pool.offer(this);
 	}
 }
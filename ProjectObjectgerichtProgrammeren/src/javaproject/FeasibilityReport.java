@@ -0,0 +1,164 @@
+package javaproject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * The outcome of checking whether a laboratory can execute a recipe
+ * 
+ * @invar	A report is feasible if and only if nothing is short and no device is missing
+ * 			| isFeasible() == (getShortfalls().isEmpty() && getMissingDevices().isEmpty())
+ * 
+ * @author Jonas
+ *
+ */
+@Immutable
+public class FeasibilityReport {
+	
+	/**
+	 * Initialize a report with the given shortfalls and missing devices
+	 * 
+	 * @param	shortfalls
+	 * 			The ingredients of which there is not enough in the laboratory
+	 * @param	missingDevices
+	 * 			The kinds of devices the laboratory lacks
+	 * @post	The shortfalls are set to a copy of the given shortfalls
+	 * 			| new.getShortfalls().equals(shortfalls)
+	 * @post	The missing devices are set to a copy of the given devices
+	 * 			| new.getMissingDevices().equals(missingDevices)
+	 */
+	public FeasibilityReport(List<Shortfall> shortfalls, List<Class<? extends Device>> missingDevices) {
+		this.shortfalls = Collections.unmodifiableList(new ArrayList<Shortfall>(shortfalls));
+		this.missingDevices = Collections.unmodifiableList(new ArrayList<Class<? extends Device>>(missingDevices));
+	}
+	
+	/**
+	 * The ingredients of which there is not enough in the laboratory
+	 */
+	private final List<Shortfall> shortfalls;
+	
+	/**
+	 * The kinds of devices the laboratory lacks
+	 */
+	private final List<Class<? extends Device>> missingDevices;
+	
+	/**
+	 * Return the ingredients of which there is not enough in the laboratory, in the order of the recipe
+	 */
+	@Basic @Immutable
+	public List<Shortfall> getShortfalls() {
+		return shortfalls;
+	}
+	
+	/**
+	 * Return the kinds of devices the laboratory lacks
+	 */
+	@Basic @Immutable
+	public List<Class<? extends Device>> getMissingDevices() {
+		return missingDevices;
+	}
+	
+	/**
+	 * Check whether the recipe can be executed
+	 * 
+	 * @return	True if and only if nothing is short and no device is missing
+	 * 			| result == (getShortfalls().isEmpty() && getMissingDevices().isEmpty())
+	 */
+	public boolean isFeasible() {
+		return shortfalls.isEmpty() && missingDevices.isEmpty();
+	}
+	
+	@Override
+	public String toString() {
+		if (isFeasible()) {
+			return "Feasible";
+		}
+		StringBuilder result = new StringBuilder("Infeasible:");
+		for (Shortfall shortfall : shortfalls) {
+			result.append(' ').append(shortfall);
+		}
+		for (Class<? extends Device> device : missingDevices) {
+			result.append(" missing ").append(device.getSimpleName());
+		}
+		return result.toString();
+	}
+	
+	/**
+	 * The total demand of one ingredient which the laboratory cannot meet
+	 * 
+	 * @invar	Less is available than required
+	 * 			| getAvailable() < getRequired()
+	 */
+	@Immutable
+	public static class Shortfall {
+		
+		/**
+		 * Initialize a shortfall of the given ingredient
+		 * 
+		 * @param	name
+		 * 			The name of the ingredient
+		 * @param	required
+		 * 			The total amount required, in the lowest unit
+		 * @param	available
+		 * 			The amount available in the laboratory, in the lowest unit
+		 * @post	| new.getName() == name && new.getRequired() == required && new.getAvailable() == available
+		 */
+		public Shortfall(String name, long required, long available) {
+			this.name = name;
+			this.required = required;
+			this.available = available;
+		}
+		
+		/**
+		 * The name of the ingredient
+		 */
+		private final String name;
+		
+		/**
+		 * The total amount required and the amount available, in the lowest unit
+		 */
+		private final long required, available;
+		
+		/**
+		 * Return the name of the ingredient
+		 */
+		@Basic @Immutable
+		public String getName() {
+			return name;
+		}
+		
+		/**
+		 * Return the total amount required, in the lowest unit
+		 */
+		@Basic @Immutable
+		public long getRequired() {
+			return required;
+		}
+		
+		/**
+		 * Return the amount available in the laboratory, in the lowest unit
+		 */
+		@Basic @Immutable
+		public long getAvailable() {
+			return available;
+		}
+		
+		/**
+		 * Return how much is missing, in the lowest unit
+		 * 
+		 * @return	result == getRequired() - getAvailable()
+		 */
+		public long getMissing() {
+			return required - available;
+		}
+		
+		@Override
+		public String toString() {
+			return name + " (" + available + "/" + required + ")";
+		}
+	}
+}
@@ -1,7 +1,11 @@
 package javaproject;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.TreeSet;
 
 import be.kuleuven.cs.som.annotate.*;
 
@@ -53,6 +57,115 @@ public class IngredientType {
 		this.state = state;
 		setStandardTemperature(standardTemperature);
 		this.volatility = volatility;
+		this.id = register(this);
+	}
+	
+	/**
+	 * The dense number of this ingredient type
+	 * 
+	 * @note	The registry only holds ingredient types weakly. When a type is garbage collected its id is freed, and a new type
+	 * 			gets the lowest free id. Ids therefore stay below the largest number of types alive at the same time, and so
+	 * 			do the bitsets of mix sets. A mix set holds its types, so an id is never reused while a mix set uses it.
+	 */
+	private final int id;
+	
+	/**
+	 * Return the dense number of this ingredient type
+	 * 
+	 * @return	A number not used by any other living ingredient type
+	 * 			| 0 <= result && result < getNbIds() && getType(result) == this
+	 */
+	@Basic @Immutable
+	public int getId() {
+		return this.id;
+	}
+	
+	/**
+	 * The ingredient types by id, held weakly; a slot whose type was collected is null
+	 */
+	private static final ArrayList<TypeReference> types = new ArrayList<TypeReference>();
+	
+	/**
+	 * The ids of collected types, to be handed out again
+	 */
+	private static final TreeSet<Integer> freeIds = new TreeSet<Integer>();
+	
+	/**
+	 * The references of the collected types, whose ids are not yet freed
+	 */
+	private static final ReferenceQueue<IngredientType> collected = new ReferenceQueue<IngredientType>();
+	
+	/**
+	 * A weak reference to a registered type, remembering its id
+	 */
+	private static final class TypeReference extends WeakReference<IngredientType> {
+		
+		TypeReference(IngredientType type, int id) {
+			super(type, collected);
+			this.id = id;
+		}
+		
+		private final int id;
+	}
+	
+	/**
+	 * Give the given type the lowest free id
+	 */
+	private static synchronized int register(IngredientType type) {
+		expunge();
+		Integer free = freeIds.pollFirst();
+		int id = free == null ? types.size() : free;
+		TypeReference reference = new TypeReference(type, id);
+		if (free == null) {
+			types.add(reference);
+		} else {
+			types.set(id, reference);
+		}
+		return id;
+	}
+	
+	/**
+	 * Free the ids of all collected types
+	 */
+	private static void expunge() {
+		TypeReference reference;
+		while ((reference = (TypeReference) collected.poll()) != null) {
+			if (types.get(reference.id) == reference) {
+				types.set(reference.id, null);
+				freeIds.add(reference.id);
+			}
+		}
+	}
+	
+	/**
+	 * Return the ingredient type with the given id
+	 * 
+	 * @return	The living type with the given id, null if there is none
+	 * 			| if (for some type: type.getId() == id) result.getId() == id
+	 * 			| else result == null
+	 * @throws	IndexOutOfBoundsException
+	 * 			| id < 0 || id >= getNbIds()
+	 */
+	public static synchronized IngredientType getType(int id) throws IndexOutOfBoundsException {
+		TypeReference reference = types.get(id);
+		return reference == null ? null : reference.get();
+	}
+	
+	/**
+	 * Return the number of ids handed out so far, all ids of living types are below it
+	 * 
+	 * @return	| for each type: type.getId() < result
+	 */
+	public static synchronized int getNbIds() {
+		return types.size();
+	}
+	
+	/**
+	 * Return the number of living ingredient types
+	 */
+	public static synchronized int getNbTypes() {
+		expunge();
+		return types.size() - freeIds.size();
 	}
 	
 	/**
@@ -67,6 +180,22 @@ public class IngredientType {
 	public long[] getStandardTemperature() {
 		return this.standardTemp;
 	}
+	
+	/**
+	 * The standard temperature as hotness minus coldness
+	 */
+	private long standardTempValue = 0;
+	
+	/**
+	 * Return the standard temperature as hotness minus coldness
+	 * 
+	 * @return	| result == AlchemicIngredient.temperatureToLong(getStandardTemperature())
+	 */
+	@Raw
+	public long getStandardTemperatureValue() {
+		return this.standardTempValue;
+	}
+	
 	/**
 	 * Set the standard temperature
 	 * 
@@ -78,6 +207,7 @@ public class IngredientType {
 	@Model
 	private void setStandardTemperature(long[] temperature) {
 		this.standardTemp = temperature;
+		this.standardTempValue = AlchemicIngredient.temperatureToLong(temperature);
 	}
 	
 	/**
@@ -0,0 +1,368 @@
+package javaproject;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Raw;
+
+/**
+ * A bounded, thread-safe queue of ingredients waiting to be fed into a device
+ *
+ * @invar	The depth of the queue never exceeds its capacity
+ * 			| 0 <= getDepth() && getDepth() <= getCapacity()
+ * @invar	The capacity must be a valid capacity
+ * 			| isValidCapacity(getCapacity())
+ *
+ * @author Jonas
+ *
+ */
+public class InputQueue {
+
+	/**
+	 * Initialize a new input queue with a given capacity and overflow policy
+	 *
+	 * @param	capacity
+	 * 			The maximum number of ingredients waiting in this queue
+	 * @param	policy
+	 * 			What happens when an ingredient is offered to a full queue
+	 * @post	The capacity is set to the given capacity
+	 * 			| new.getCapacity() == capacity
+	 * @post	The policy is set to the given policy
+	 * 			| new.getPolicy() == policy
+	 * @post	The queue is empty
+	 * 			| new.getDepth() == 0
+	 * @throws	IllegalArgumentException
+	 * 			The capacity is not valid or there is no policy
+	 * 			| !isValidCapacity(capacity) || policy == null
+	 */
+	public InputQueue(int capacity, OverflowPolicy policy) throws IllegalArgumentException {
+		if (!isValidCapacity(capacity)) {
+			throw new IllegalArgumentException("Invalid queue capacity");
+		}
+		if (policy == null) {
+			throw new IllegalArgumentException("No overflow policy");
+		}
+		this.capacity = capacity;
+		this.policy = policy;
+	}
+
+	/**
+	 * What happens when an ingredient is offered to a full queue
+	 */
+	public static enum OverflowPolicy {
+		/**
+		 * Wait until there is room (offer gives up immediately)
+		 */
+		BLOCK,
+		/**
+		 * Refuse the new ingredient
+		 */
+		REJECT,
+		/**
+		 * Terminate the oldest waiting ingredient to make room
+		 */
+		EVICT;
+	}
+
+	/**
+	 * Check whether the given capacity is a valid capacity
+	 *
+	 * @return	True if and only if the capacity is strictly positive
+	 * 			| result == capacity > 0
+	 */
+	public static boolean isValidCapacity(int capacity) {
+		return capacity > 0;
+	}
+
+	/**
+	 * The maximum number of ingredients in this queue, only changed while holding the lock
+	 */
+	private volatile int capacity;
+
+	/**
+	 * Return the maximum number of ingredients in this queue
+	 */
+	@Raw @Basic
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * The overflow policy of this queue, only changed while holding the lock
+	 */
+	private volatile OverflowPolicy policy;
+
+	/**
+	 * Return the overflow policy of this queue
+	 */
+	@Raw @Basic
+	public OverflowPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * The waiting ingredients, oldest first
+	 */
+	private final ArrayDeque<AlchemicIngredient> queue = new ArrayDeque<AlchemicIngredient>();
+
+	/**
+	 * The lock guarding this queue and its metrics
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Signalled when an ingredient is taken from the queue
+	 */
+	private final Condition notFull = lock.newCondition();
+
+	/**
+	 * Signalled when an ingredient is added to the queue
+	 */
+	private final Condition notEmpty = lock.newCondition();
+
+	/**
+	 * Give this queue a new capacity and policy
+	 *
+	 * @param	capacity
+	 * 			The maximum number of ingredients waiting in this queue
+	 * @param	policy
+	 * 			What happens when an ingredient is offered to a full queue
+	 * @post	| new.getCapacity() == capacity && new.getPolicy() == policy
+	 * @throws	IllegalArgumentException
+	 * 			The capacity is not valid or there is no policy
+	 * 			| !isValidCapacity(capacity) || policy == null
+	 * @throws	IllegalStateException
+	 * 			Ingredients are waiting in this queue, or threads are waiting to put or take an ingredient
+	 * 			| !isEmpty() || some thread is blocked in put or take
+	 * @note	The check and the change happen under the lock of the queue, so no ingredient can slip in between
+	 */
+	public void reconfigure(int capacity, OverflowPolicy policy) throws IllegalArgumentException, IllegalStateException {
+		if (!isValidCapacity(capacity)) {
+			throw new IllegalArgumentException("Invalid queue capacity");
+		}
+		if (policy == null) {
+			throw new IllegalArgumentException("No overflow policy");
+		}
+		lock.lock();
+		try {
+			if (!queue.isEmpty() || lock.hasWaiters(notFull) || lock.hasWaiters(notEmpty)) {
+				throw new IllegalStateException("Ingredients are still waiting in or for the input queue");
+			}
+			this.capacity = capacity;
+			this.policy = policy;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Offer an ingredient to this queue without waiting
+	 *
+	 * @param	ingredient
+	 * 			The ingredient which is offered
+	 * @return	True if the ingredient was accepted: there was room, or the policy evicted the oldest ingredient
+	 * 			| result == (getDepth() < getCapacity() || getPolicy() == OverflowPolicy.EVICT)
+	 * @post	If the queue was full and the policy is EVICT, the oldest ingredient is terminated and removed
+	 */
+	public boolean offer(AlchemicIngredient ingredient) {
+		lock.lock();
+		try {
+			if (queue.size() == capacity) {
+				if (policy != OverflowPolicy.EVICT) {
+					nbRejected++;
+					return false;
+				}
+				evict();
+			}
+			enqueue(ingredient);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Put an ingredient in this queue
+	 *
+	 * @param	ingredient
+	 * 			The ingredient which is put in the queue
+	 * @post	The ingredient is the newest ingredient of the queue
+	 * @post	If the queue was full and the policy is EVICT, the oldest ingredient is terminated and removed
+	 * @throws	InterruptedException
+	 * 			The policy is BLOCK and the thread was interrupted while waiting for room
+	 * @throws	IllegalStateException
+	 * 			The queue is full and the policy is REJECT
+	 * 			| getDepth() == getCapacity() && getPolicy() == OverflowPolicy.REJECT
+	 */
+	public void put(AlchemicIngredient ingredient) throws InterruptedException, IllegalStateException {
+		lock.lockInterruptibly();
+		try {
+			if (queue.size() == capacity) {
+				if (policy == OverflowPolicy.REJECT) {
+					nbRejected++;
+					throw new IllegalStateException("Input queue is full");
+				} else if (policy == OverflowPolicy.EVICT) {
+					evict();
+				}
+				while (queue.size() == capacity) {
+					notFull.await();
+				}
+			}
+			enqueue(ingredient);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove and return the oldest ingredient of this queue, without waiting
+	 *
+	 * @return	The oldest ingredient, or null if the queue is empty
+	 */
+	public AlchemicIngredient poll() {
+		lock.lock();
+		try {
+			if (queue.isEmpty()) {
+				return null;
+			}
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove and return the oldest ingredient of this queue, waiting until there is one
+	 *
+	 * @return	The oldest ingredient
+	 * @throws	InterruptedException
+	 * 			The thread was interrupted while waiting
+	 */
+	public AlchemicIngredient take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (queue.isEmpty()) {
+				notEmpty.await();
+			}
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Add an ingredient to the tail of the queue
+	 *
+	 * @pre		The lock is held and there is room
+	 * 			| lock.isHeldByCurrentThread() && getDepth() < getCapacity()
+	 */
+	private void enqueue(AlchemicIngredient ingredient) {
+		queue.addLast(ingredient);
+		nbAccepted++;
+		peakDepth = Integer.max(peakDepth, queue.size());
+		notEmpty.signal();
+	}
+
+	/**
+	 * Remove the head of the queue
+	 *
+	 * @pre		The lock is held and the queue is not empty
+	 * 			| lock.isHeldByCurrentThread() && getDepth() > 0
+	 */
+	private AlchemicIngredient dequeue() {
+		AlchemicIngredient ingredient = queue.removeFirst();
+		notFull.signal();
+		return ingredient;
+	}
+
+	/**
+	 * Terminate and remove the oldest ingredient
+	 *
+	 * @pre		The lock is held and the queue is not empty
+	 * 			| lock.isHeldByCurrentThread() && getDepth() > 0
+	 */
+	private void evict() {
+		queue.removeFirst().terminate();
+		nbEvicted++;
+	}
+
+	/***************************************************************
+	 * METRICS
+	 ***************************************************************/
+
+	/**
+	 * The number of accepted, rejected and evicted ingredients and the largest depth reached
+	 */
+	private int nbAccepted = 0, nbRejected = 0, nbEvicted = 0, peakDepth = 0;
+
+	/**
+	 * Return the number of ingredients currently waiting
+	 */
+	public int getDepth() {
+		lock.lock();
+		try {
+			return queue.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return whether there are no ingredients waiting
+	 *
+	 * @return	result == (getDepth() == 0)
+	 */
+	public boolean isEmpty() {
+		return getDepth() == 0;
+	}
+
+	/**
+	 * Return the largest number of ingredients that have been waiting at the same time
+	 */
+	public int getPeakDepth() {
+		lock.lock();
+		try {
+			return peakDepth;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return the number of ingredients accepted by this queue
+	 */
+	public int getNbAccepted() {
+		lock.lock();
+		try {
+			return nbAccepted;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return the number of ingredients refused by this queue
+	 */
+	public int getNbRejected() {
+		lock.lock();
+		try {
+			return nbRejected;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return the number of ingredients terminated to make room
+	 */
+	public int getNbEvicted() {
+		lock.lock();
+		try {
+			return nbEvicted;
+		} finally {
+			lock.unlock();
+		}
+	}
+}
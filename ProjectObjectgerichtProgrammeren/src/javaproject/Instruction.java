@@ -0,0 +1,53 @@
+package javaproject;
+
+/**
+ * The instructions a recipe can contain
+ */
+public enum Instruction {
+	ADD ("add"), 
+	HEAT ("heat"), 
+	COOL ("cool"), 
+	MIX ("mix");
+	
+	/**
+	 * Create an instruction with a given name
+	 * 
+	 * @param	name
+	 * 			The name with which this instruction is written in a recipe
+	 */
+	Instruction(String name) {
+		this.name = name;
+	}
+	
+	/**
+	 * The name with which this instruction is written in a recipe
+	 */
+	private final String name;
+	
+	/**
+	 * Return the name with which this instruction is written in a recipe
+	 */
+	public String getName() {
+		return this.name;
+	}
+	
+	/**
+	 * Return the instruction with the given name
+	 * 
+	 * @param	name
+	 * 			The name of the instruction
+	 * @return	The instruction which is written as the given name
+	 * 			| result.getName().equals(name)
+	 * @throws	IllegalArgumentException
+	 * 			There is no instruction with the given name
+	 * 			| for each instruction in values(): !instruction.getName().equals(name)
+	 */
+	public static Instruction parse(String name) throws IllegalArgumentException {
+		for (Instruction instruction : values()) {
+			if (instruction.getName().equals(name)) {
+				return instruction;
+			}
+		}
+		throw new IllegalArgumentException("Unknown instruction: " + name);
+	}
+}
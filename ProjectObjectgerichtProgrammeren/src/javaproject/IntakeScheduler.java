@@ -0,0 +1,311 @@
+package javaproject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Raw;
+import javaproject.exception.EmptyContainerException;
+import javaproject.exception.StorageCapacityException;
+
+/**
+ * A scheduler collecting containers for a laboratory and bringing them to their standard temperature in groups,
+ * so the oven and cooling box are reconfigured once per standard temperature instead of once per container
+ * 
+ * @invar	The scheduler must have a laboratory
+ * 			| getLab() != null
+ * 
+ * @author Jonas
+ *
+ */
+public class IntakeScheduler {
+	
+	/**
+	 * Initialize a new intake scheduler for the given laboratory
+	 * 
+	 * @param	lab
+	 * 			The laboratory which receives the scheduled containers
+	 * @post	The lab of this scheduler is the given lab
+	 * 			| new.getLab() == lab
+	 * @post	No containers are pending
+	 * 			| new.getNbPending() == 0
+	 * @throws	IllegalArgumentException
+	 * 			The lab is null
+	 * 			| lab == null
+	 */
+	public IntakeScheduler(Laboratory lab) throws IllegalArgumentException {
+		if (lab == null) {
+			throw new IllegalArgumentException("The scheduler needs a laboratory");
+		}
+		this.lab = lab;
+	}
+	
+	/**
+	 * The laboratory which receives the scheduled containers
+	 */
+	private final Laboratory lab;
+	
+	/**
+	 * Return the laboratory which receives the scheduled containers
+	 */
+	@Raw @Basic
+	public Laboratory getLab() {
+		return lab;
+	}
+	
+	/**
+	 * The containers waiting to be added to the laboratory
+	 */
+	private ArrayList<IngredientContainer> pending = new ArrayList<IngredientContainer>();
+	
+	/**
+	 * Return the number of containers waiting to be added
+	 */
+	@Basic
+	public int getNbPending() {
+		return pending.size();
+	}
+	
+	/**
+	 * Schedule a container to be added to the laboratory
+	 * 
+	 * @param	container
+	 * 			The container to be added
+	 * @post	The container is pending
+	 * 			| new.getNbPending() == getNbPending() + 1
+	 * @throws	EmptyContainerException
+	 * 			The container is empty
+	 * 			| container.getContents() == null
+	 */
+	public void schedule(IngredientContainer container) throws EmptyContainerException {
+		if (container.getContents() == null) {
+			throw new EmptyContainerException();
+		}
+		pending.add(container);
+	}
+	
+	/**
+	 * Add all pending containers to the laboratory
+	 * 
+	 * @effect	Only the containers scheduled before the first one the laboratory would refuse are brought to their standard state
+	 * 			and temperature and added, so no device changes a container that is not added
+	 * 			| prepare(first countAddable(pending) containers)
+	 * @effect	The containers that are not in their standard state are transmogrified in one batch
+	 * 			| getLab().returnTransmogrifier().transmogrifyAll(containers not in their standard state)
+	 * @effect	The containers that are too hot are grouped on their standard temperature and cooled per group,
+	 * 			the containers that are too cold are grouped on their standard temperature and heated per group
+	 * 			| for each group: getLab().returnFridge().executeAll(group, temperature)
+	 * 			| for each group: getLab().returnOven().executeAll(group, temperature)
+	 * @effect	The resulting containers are added to the laboratory in the order they were scheduled
+	 * 			| for each container in pending: getLab().add(container)
+	 * @post	No containers are pending
+	 * 			| new.getNbPending() == 0
+	 * @throws	IllegalStateException
+	 * 			The laboratory lacks a device that is needed
+	 * @throws	StorageCapacityException
+	 * 			A container does not fit in the laboratory together with the storage and the containers scheduled before it
+	 * @throws	IllegalArgumentException
+	 * 			A container is not a valid new ingredient for the laboratory together with the containers scheduled before it
+	 * @note	If a container cannot be added or a device is missing, that container and the containers scheduled after it
+	 * 			are not added either; they stay pending, as far as they got, so a later flush can add them
+	 */
+	public void flush() throws IllegalStateException, StorageCapacityException, IllegalArgumentException {
+		ArrayList<IngredientContainer> containers = pending;
+		pending = new ArrayList<IngredientContainer>();
+		int nbAdded = 0;
+		try {
+			int nbAddable = countAddable(containers);
+			prepare(containers.subList(0, nbAddable));
+			for (; nbAdded < nbAddable; nbAdded++) {
+				getLab().add(containers.get(nbAdded));
+			}
+			if (nbAdded < containers.size()) {
+				throw refusal(containers.get(nbAdded));
+			}
+		} finally {
+			if (nbAdded < containers.size()) {
+				ArrayList<IngredientContainer> left = new ArrayList<IngredientContainer>(containers.subList(nbAdded, containers.size()));
+				left.addAll(pending);
+				pending = left;
+			}
+		}
+	}
+	
+	/**
+	 * Return the number of leading containers the laboratory accepts, checked on their contents as scheduled
+	 * 
+	 * @param	containers
+	 * 			The containers to be added, in order
+	 * @return	The number of containers before the first one that does not fit in the storerooms left by the containers
+	 * 			before it, or that is no valid new ingredient or has the name of an earlier container of another type
+	 * 			| for each I in 0..result - 1:
+	 * 			|	getLab().isValidNewIngredient(containers.get(I).getContents())
+	 * 			|	&& getLab().getNbUsedStoreRooms() + sum(for J in 0..I: containers.get(J).getContents().giveInStoreRooms())
+	 * 			|		<= getLab().getCapacity()
+	 */
+	private int countAddable(List<IngredientContainer> containers) {
+		double storeRooms = getLab().getNbUsedStoreRooms();
+		Map<String, IngredientType> types = new TreeMap<String, IngredientType>();
+		for (int index = 0; index < containers.size(); index++) {
+			AlchemicIngredient ingredient = containers.get(index).getContents();
+			storeRooms += ingredient.giveInStoreRooms();
+			if (storeRooms > getLab().getCapacity() || !getLab().isValidNewIngredient(ingredient)) {
+				return index;
+			}
+			if (ingredient.getName() != null) {
+				IngredientType type = types.get(ingredient.getName());
+				if (type != null && type != ingredient.getType()) {
+					return index;
+				}
+				types.put(ingredient.getName(), ingredient.getType());
+			}
+		}
+		return containers.size();
+	}
+	
+	/**
+	 * Return the exception the laboratory raises for the given container it does not accept
+	 * 
+	 * @return	An illegal argument exception if the contents are no valid new ingredient for the laboratory,
+	 * 			a storage capacity exception otherwise
+	 * 			| if (!getLab().isValidNewIngredient(container.getContents()))
+	 * 			|	result instanceof IllegalArgumentException
+	 * 			| else result instanceof StorageCapacityException
+	 */
+	private RuntimeException refusal(IngredientContainer container) {
+		if (!getLab().isValidNewIngredient(container.getContents())) {
+			return new IllegalArgumentException("Not a valid new ingredient");
+		}
+		return new StorageCapacityException(getLab(), container);
+	}
+	
+	/**
+	 * Bring the given containers to their standard state and temperature, replacing each by the resulting container
+	 * 
+	 * @throws	IllegalStateException
+	 * 			The laboratory lacks a device that is needed
+	 */
+	private void prepare(List<IngredientContainer> containers) throws IllegalStateException {
+		ArrayList<Integer> transmogrify = new ArrayList<Integer>();
+		for (int index = 0; index < containers.size(); index++) {
+			AlchemicIngredient ingredient = containers.get(index).getContents();
+			if (ingredient.getState() != ingredient.getType().getState()) {
+				transmogrify.add(index);
+			}
+		}
+		if (!transmogrify.isEmpty()) {
+			replace(containers, transmogrify, getLab().returnTransmogrifier().transmogrifyAll(select(containers, transmogrify)));
+		}
+		TreeMap<Long, ArrayList<Integer>> heatGroups = new TreeMap<Long, ArrayList<Integer>>();
+		TreeMap<Long, ArrayList<Integer>> coolGroups = new TreeMap<Long, ArrayList<Integer>>();
+		for (int index = 0; index < containers.size(); index++) {
+			AlchemicIngredient ingredient = containers.get(index).getContents();
+			long key = ingredient.getType().getStandardTemperatureValue();
+			if (ingredient.getTemperatureState() == AlchemicIngredient.Temperature.COOLED) {
+				group(heatGroups, key, index);
+			} else if (ingredient.getTemperatureState() == AlchemicIngredient.Temperature.HEATED) {
+				group(coolGroups, key, index);
+			}
+		}
+		if (!heatGroups.isEmpty()) {
+			process(getLab().returnOven(), heatGroups, containers);
+		}
+		if (!coolGroups.isEmpty()) {
+			process(getLab().returnFridge(), coolGroups, containers);
+		}
+	}
+	
+	/**
+	 * Add the given index to the group with the given key
+	 */
+	private static void group(Map<Long, ArrayList<Integer>> groups, long key, int index) {
+		ArrayList<Integer> group = groups.get(key);
+		if (group == null) {
+			group = new ArrayList<Integer>();
+			groups.put(key, group);
+		}
+		group.add(index);
+	}
+	
+	/**
+	 * Run every group through the given device and put the results back in place
+	 * 
+	 * @param	device
+	 * 			The oven or cooling box
+	 * @param	groups
+	 * 			The indices of the containers per standard temperature
+	 * @param	containers
+	 * 			The containers, whose grouped elements are replaced by the results of the device
+	 * @post	The device was reconfigured once per group
+	 * 			| new.getNbReconfigurations() == getNbReconfigurations() + groups.size()
+	 */
+	private void process(TempDevice device, Map<Long, ArrayList<Integer>> groups, List<IngredientContainer> containers) {
+		for (Map.Entry<Long, ArrayList<Integer>> entry : groups.entrySet()) {
+			replace(containers, entry.getValue(), 
+					device.executeAll(select(containers, entry.getValue()), entry.getKey()));
+			nbReconfigurations++;
+			nbTemperatureChanges += entry.getValue().size();
+		}
+	}
+	
+	/**
+	 * Return the containers at the given indices
+	 */
+	private static ArrayList<IngredientContainer> select(List<IngredientContainer> containers, List<Integer> indices) {
+		ArrayList<IngredientContainer> selection = new ArrayList<IngredientContainer>(indices.size());
+		for (int index : indices) {
+			selection.add(containers.get(index));
+		}
+		return selection;
+	}
+	
+	/**
+	 * Put the given results back at the given indices
+	 */
+	private static void replace(List<IngredientContainer> containers, List<Integer> indices, List<IngredientContainer> results) {
+		for (int position = 0; position < results.size(); position++) {
+			containers.set(indices.get(position), results.get(position));
+		}
+	}
+	
+	/***************************************************************
+	 * METRICS
+	 ***************************************************************/
+	
+	/**
+	 * The number of times a device was set to a new temperature
+	 */
+	private long nbReconfigurations = 0;
+	
+	/**
+	 * The number of containers brought to their standard temperature by a device
+	 */
+	private long nbTemperatureChanges = 0;
+	
+	/**
+	 * Return the number of times a device was set to a new temperature
+	 */
+	@Basic
+	public long getNbReconfigurations() {
+		return nbReconfigurations;
+	}
+	
+	/**
+	 * Return the number of containers brought to their standard temperature by a device
+	 */
+	@Basic
+	public long getNbTemperatureChanges() {
+		return nbTemperatureChanges;
+	}
+	
+	/**
+	 * Return the number of device reconfigurations saved compared to one reconfiguration per container
+	 * 
+	 * @return	result == getNbTemperatureChanges() - getNbReconfigurations()
+	 */
+	public long getNbSavedReconfigurations() {
+		return getNbTemperatureChanges() - getNbReconfigurations();
+	}
+}
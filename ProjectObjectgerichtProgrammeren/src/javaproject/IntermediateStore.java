@@ -0,0 +1,134 @@
+package javaproject;
+
+import java.util.HashMap;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javaproject.exception.ExceedsStorageException;
+import javaproject.exception.NameNotFoundException;
+import javaproject.exception.StateMismatchException;
+import quantity.Quant;
+
+/**
+ * Intermediate products kept in memory between the recipes of a production run, by name
+ *
+ * Unlike the storage of a laboratory, an intermediate product is kept exactly as it came out of the kettle:
+ * it is not brought to its standard temperature or state and not split over containers.
+ * Products with the same name are assumed to be the same ingredient and are added up.
+ *
+ * @note	A store can be used by several threads at the same time
+ *
+ * @author Jonas
+ *
+ */
+public class IntermediateStore {
+
+	/**
+	 * Initialize an empty store
+	 *
+	 * @post	| new.getNames().isEmpty()
+	 */
+	public IntermediateStore() {
+	}
+
+	/**
+	 * The products by name
+	 */
+	private final HashMap<String, AlchemicIngredient> products = new HashMap<String, AlchemicIngredient>();
+
+	/**
+	 * Return the names of the products in this store
+	 */
+	public synchronized Set<String> getNames() {
+		return new TreeSet<String>(products.keySet());
+	}
+
+	/**
+	 * Check whether this store holds a product with the given name
+	 */
+	public synchronized boolean contains(String name) {
+		return products.containsKey(name);
+	}
+
+	/**
+	 * Return how much of the product with the given name this store holds in the lowest unit, 0 if there is none
+	 */
+	public synchronized int getQuantity(String name) {
+		AlchemicIngredient product = products.get(name);
+		return product == null ? 0 : product.giveInLowestUnit();
+	}
+
+	/**
+	 * Put the contents of the given container in this store
+	 *
+	 * @param	container
+	 * 			The container holding the product
+	 * @post	| new.getQuantity(container.getContents().getName())
+	 * 			|	== getQuantity(container.getContents().getName()) + container.getContents().giveInLowestUnit()
+	 * @effect	The remainders of earlier transmogrifications of the product and the contents are added up
+	 * 			| product.addTransmogrificationRemainder(container.getContents().getTransmogrificationRemainder())
+	 */
+	public synchronized void put(IngredientContainer container) {
+		AlchemicIngredient contents = container.getContents();
+		AlchemicIngredient product = products.get(contents.getName());
+		int remainder = contents.getTransmogrificationRemainder();
+		if (product == null) {
+			product = new AlchemicIngredient(contents);
+			products.put(contents.getName(), product);
+		} else {
+			remainder += product.getTransmogrificationRemainder();
+			product.setQuantityTo(product.giveInLowestUnit() + contents.giveInLowestUnit());
+		}
+		product.addTransmogrificationRemainder(remainder);
+	}
+
+	/**
+	 * Take the given multiplied amount of the product with the given name out of this store
+	 *
+	 * @param	name
+	 * 			The name of the product
+	 * @param	unit
+	 * 			The unit of the amount
+	 * @param	amount
+	 * 			The number of units
+	 * @param	multiplier
+	 * 			The factor with which the amount is multiplied
+	 * @return	One container holding the amount, as large as needed
+	 * 			| result.getContents().giveInLowestUnit() == unit.getType().convertToLowestUnit(unit) * amount * multiplier
+	 * @post	The amount is no longer in this store, the product is removed if nothing is left
+	 * @throws	NameNotFoundException
+	 * 			There is no product with the given name
+	 * 			| !contains(name)
+	 * @throws	ExceedsStorageException
+	 * 			There is less of the product than asked for
+	 * @throws	StateMismatchException
+	 * 			The unit does not exist for the state of the product
+	 */
+	public synchronized IngredientContainer take(String name, Quant unit, int amount, int multiplier)
+			throws NameNotFoundException, ExceedsStorageException, StateMismatchException {
+		AlchemicIngredient product = products.get(name);
+		if (product == null) {
+			throw new NameNotFoundException(name, null);
+		}
+		if (product.getState() != unit.getType()) {
+			throw new StateMismatchException(name, unit);
+		}
+		int available = product.giveInLowestUnit();
+		long asked = (long) product.convertToLowestUnit(unit) * amount * multiplier;
+		if (available < asked) {
+			throw new ExceedsStorageException((int) Long.min(asked, Integer.MAX_VALUE), available);
+		}
+		AlchemicIngredient piece = new AlchemicIngredient(product);
+		int remainder = product.getTransmogrificationRemainder();
+		piece.setQuantityTo((int) asked);
+		piece.carryOver();
+		if (available == asked) {
+			products.remove(name);
+			piece.addTransmogrificationRemainder(remainder);
+		} else {
+			product.setQuantityTo(available - (int) asked);
+			product.addTransmogrificationRemainder(remainder);
+		}
+		return Device.stuffInsideBatchContainer(piece);
+	}
+}
@@ -1,13 +1,11 @@
 package javaproject;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.EmptyStackException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import be.kuleuven.cs.som.annotate.Model;
 import javaproject.exception.EmptyContainerException;
-import quantity.*;
 
 public class Kettle extends Device {
 	
@@ -64,7 +62,7 @@ public class Kettle extends Device {
 	 * @effect	The ingredient list is cleared
 	 * 			| clear()
 	 * @post	The result of this device is set to a new Alchemic Ingredient
-	 * 			| getResult() == new AlchemicIngredient(getType(), findQuantity())
+	 * 			| getResult() == getMix().createResult()
 	 * @effect	The ingredients of this kettle are added to the mix list of the new ingredient
 	 * 			| addMixList(getResult())
 	 * @post	The characteristic volatility is set to the correct characteristic volatility
@@ -77,55 +75,136 @@ public class Kettle extends Device {
 	 * 			| terminateAll()
 	 */
 	@Override
-	public void execute() {		
+	public synchronized void execute() {		
 		super.execute();
-		IngredientType type = getType();
-		AlchemicIngredient ingredient = new AlchemicIngredient(type, findQuantity());
-		ingredient.setCharacteristicVolatility(findCharacteristicVolatility());
-		ingredient.changeTempTo(findTemperature(ingredient));
-		addMixList(ingredient);
-		setResult(ingredient);
-		terminateAll();
-		clear();
+		finishMix(getMix());
 	}
+	
 	/**
-	 * Terminate all ingredients
+	 * Mix the given ingredients together with the ingredients already in the kettle, using all cores
 	 * 
-	 * @post	Each ingredient in our storage is terminated
-	 * 			| for each ingredient in getIngredients():
-	 * 			|		ingredient.isTerminated() == true
+	 * @param	ingredients
+	 * 			The ingredients which are added to the kettle before mixing
+	 * @effect	Each ingredient is added to the kettle, after all of them have been checked
+	 * 			| for each ingredient in ingredients: add(ingredient)
+	 * @post	The result is identical to the result of a sequential execute()
+	 * 			| getResult() == getMix().createResult()
+	 * @effect	We execute this device
+	 * 			| super.execute()
+	 * @effect	We terminate all ingredients
+	 * 			| terminateAll()
+	 * @throws	IllegalArgumentException
+	 * 			One of the ingredients has already been terminated, nothing is added
+	 * 			| for some ingredient in ingredients: ingredient.isTerminated()
+	 * @throws	IllegalArgumentException
+	 * 			This device does not sit in a valid lab, nothing is added
+	 * 			| !isInCorrectLab()
+	 */
+	public synchronized void parallelMix(List<AlchemicIngredient> ingredients) throws IllegalArgumentException {
+		if (!isInCorrectLab()) {
+			throw new IllegalArgumentException("This device is not in the correct lab!");
+		}
+		for (AlchemicIngredient ingredient : ingredients) {
+			if (ingredient.isTerminated()) {
+				throw new IllegalArgumentException("Container's ingredient is terminated!");
+			}
+		}
+		for (AlchemicIngredient ingredient : ingredients) {
+			add(ingredient);
+		}
+		super.execute();
+		mix = MixAccumulator.parallelReduce(getIngredients(), ForkJoinPool.commonPool());
+		finishMix(mix);
+	}
+	
+	/**
+	 * The accumulator over the ingredients in the kettle, null as long as it has not been built
+	 */
+	private MixAccumulator mix = null;
+	
+	/**
+	 * Return the accumulator over the ingredients in the kettle, building it only once for the same ingredients
+	 * 
+	 * @return	| result == MixAccumulator.reduce(getIngredients())
+	 * @note	The accumulator is dropped whenever an ingredient is pushed or popped or the kettle is cleared,
+	 * 			so execute and the find methods share a single pass over the ingredients
 	 */
 	@Model
-	private void terminateAll() {
-		for (AlchemicIngredient ingredient : getIngredients()) {
-			ingredient.terminate();
+	private synchronized MixAccumulator getMix() {
+		if (mix == null) {
+			mix = MixAccumulator.reduce(getIngredients());
 		}
+		return mix;
 	}
 	
 	/**
-	 * Get the type of the result
+	 * Pop the last ingredient added from the kettle
 	 * 
-	 * @return	A new ingredient type if you mix two different ingredients, else the same ingredient
-	 * 			| for each ingredient in getIngredients():
-	 * 			| 	if ingredient.getType() == getIngredients().get(0).getType():
-	 * 			|		result == getIngredients().get(0).getType()
-	 * 			| 	else
-	 * 			|		result == new IngredientType(null, findState(), findStandardTemperature(), findTheoreticalVolatility())
+	 * @effect	| super.pop()
+	 * @post	The accumulator over the ingredients is dropped
+	 */
+	@Override
+	protected synchronized AlchemicIngredient pop() throws EmptyStackException {
+		mix = null;
+		return super.pop();
+	}
+	
+	/**
+	 * Push an ingredient into the kettle
+	 * 
+	 * @effect	| super.push(ingredient)
+	 * @post	The accumulator over the ingredients is dropped
+	 */
+	@Override
+	protected synchronized void push(AlchemicIngredient ingredient) {
+		mix = null;
+		super.push(ingredient);
+	}
+	
+	/**
+	 * Clear the kettle
+	 * 
+	 * @effect	| super.clear()
+	 * @post	The accumulator over the ingredients is dropped
+	 */
+	@Override
+	protected synchronized void clear() {
+		mix = null;
+		super.clear();
+	}
+	
+	/**
+	 * Set the result of the given mix and empty the kettle
+	 * 
+	 * @param	mix
+	 * 			An accumulator over all the ingredients in the kettle
+	 * @post	The result is set to the result of the mix
+	 * 			| getResult() == mix.createResult()
+	 * @effect	We terminate all ingredients and clear the kettle
+	 * 			| terminateAll()
+	 * 			| clear()
+	 */
+	@Model
+	private void finishMix(MixAccumulator mix) {
+		setResult(mix.createResult());
+		terminateAll();
+		clear();
+	}
+	
+	/**
+	 * Terminate all ingredients
 	 * 
+	 * @post	Each ingredient in our storage is terminated
+	 * 			| for each ingredient in getIngredients():
+	 * 			|		ingredient.isTerminated() == true
 	 */
 	@Model
-	private IngredientType getType() {
-		IngredientType firstType = getIngredients().get(0).getType();
+	private void terminateAll() {
 		for (AlchemicIngredient ingredient : getIngredients()) {
-			if (firstType != ingredient.getType()) {
-				return new IngredientType(null, findState(), findStandardTemperature(), findTheoreticalVolatility());
-			}
+			ingredient.terminate();
 		}
-		return firstType;
-		
 	}
 	
-	
 	/**
 	 * Mix the ingredients in the kettle, and give a new name to the result
 	 * 
@@ -135,7 +214,7 @@ public class Kettle extends Device {
 	 * 			The given name is not a valid name
 	 * 			| !IngredientType.isValidSimpleName(specialName)
 	 */
-	public void execute(String specialName) throws IllegalArgumentException {
+	public synchronized void execute(String specialName) throws IllegalArgumentException {
 		if (!IngredientType.isValidSimpleName(specialName)) {
 			throw new IllegalArgumentException("Invalid special name");
 		}
@@ -154,14 +233,7 @@ public class Kettle extends Device {
 	 *			| 		result.getIngredientMixList().contains(ingredientType)
 	 */
 	public void addMixList(AlchemicIngredient result) {
-		Set<IngredientType> resultSet = new HashSet<IngredientType>();
-		for (AlchemicIngredient ingredient: getIngredients()) {
-			resultSet.addAll(ingredient.getIngredientMixList());
-			resultSet.add(ingredient.getType());
-		}
-		for (IngredientType ingredientType : resultSet) {
-			result.addToMixList(ingredientType);
-		}
+		result.setMixSet(result.getMixSet().union(getMix().getMixSet()));
 	}
 	
 	
@@ -177,78 +249,6 @@ public class Kettle extends Device {
 		return true;
 	}
 	
-	/**
-	 * Find the state of the ingredient that comes from the kettle
-	 * 
-	 * 
-	 * @return	The result is set to the state of the ingredient for which the temperature is closest to [0, 20]
-	 * 			If there are two ingredients equally close to [0, 20], the state is set to the state of the ingredient
-	 * 			who's state is liquid (i.e. if they both have the same state, nothing change, else if the new state is liquid then
-	 *  		the state is set to that state)
-	 *  		| if (
-	 *  		| 	for each ingredient in getIngredients()	
-	 *  		| 			if ( Math.abs(AlchemicIngredient.differenceTemperature(ingredient.getType().getStandardTemperature(), new double[] {0,20}))
-	 *  		|			<= for each otherIngredient in getIngredients()
-	 *  		|					Math.abs(AlchemicIngredient.differenceTemperature(otherIngredient.getType().getStandardTemperature(), new double[] {0,20})) )
-	 *  		|			then ingredient.getState() == State.Solid
-	 *  		|	) then result ==  State.Solid
-	 *  		|	 else result == State.Liquid
-	 * 
-	 * @note	If the first elements is the element closest to [0,20], then it takes the state of this element,
-	 * 			because the program compares the first element to itself on the first iteration, so it sees them as equally close to [0,20]
-	 * 			but it still takes the state they both share
-	 * 
-	 */
-	@Model
-	private State findState() {
-		AlchemicIngredient minimum = getIngredients().get(0);
-		double minimumDifference = Math.abs(AlchemicIngredient.differenceTemperature(minimum.getType().getStandardTemperature(), new long[] {0,20}));
-		for (AlchemicIngredient ingredient : getIngredients()) {
-			double difference = Math.abs(AlchemicIngredient.differenceTemperature(ingredient.getType().getStandardTemperature(), new long[] {0,20}));
-			if (difference < minimumDifference) {
-				minimumDifference = difference;
-				minimum = ingredient;
-			} else if (difference == minimumDifference && minimum.getState() == State.Solid && ingredient.getState() != minimum.getState()) {
-				minimum = ingredient;
-			}
-		}
-		return minimum.getState();
-	}
-	
-	/**
-	 * Find the standard temperature of the new alchemic ingredient
-	 * 
-	 * @return	The result is the temperature of the ingredient closest to [0, 20]
-	 * 			If there are two ingredients equally close to [0, 20] the hottest is taken.
-	 *  		| for each minimumIngredient in (
-	 *  		| 	for each ingredient in getIngredients()	
-	 *  		| 			if ( Math.abs(AlchemicIngredient.differenceTemperature(ingredient.getType().getStandardTemperature(), new double[] {0,20}))
-	 *  		|			<= for each otherIngredient in getIngredients()
-	 *  		|					Math.abs(AlchemicIngredient.differenceTemperature(otherIngredient.getType().getStandardTemperature(), new double[] {0,20})) )
-	 *  		|			then ingredient)
-	 *  		|	)
-	 *  		| 	AlchemicIngredient.compareTemperature(minimumIngredient.getType().getStandardTemperature(), result.getType().getStandardTemperature()) > 0
-	 */
-	@Model
-	private long[] findStandardTemperature() {
-		AlchemicIngredient minimum = getIngredients().get(0);
-		long minimumDifference = Math.abs(AlchemicIngredient.differenceTemperature(minimum.getType().getStandardTemperature(), new long[] {0,20}));
-		for (AlchemicIngredient ingredient : getIngredients()) {
-			long difference = Math.abs(AlchemicIngredient.differenceTemperature(ingredient.getType().getStandardTemperature(), new long[] {0,20}));
-			if (difference < minimumDifference) {
-				minimumDifference = difference;
-				minimum = ingredient;
-			} else if (difference == minimumDifference && AlchemicIngredient.compareTemperature(minimum.getType().getStandardTemperature(), 
-					ingredient.getType().getStandardTemperature()) < 0 ) {
-				minimum = ingredient;
-			}
-		}
-		return minimum.getType().getStandardTemperature();	
-	}
-	
-
-	
-	
 	/**
 	 * Find the temperature of the result depending on the spoons, we ignore the effect of pinches or drops on the temperature
 	 * on the total amount because these are lost in the mixing process.
@@ -258,12 +258,7 @@ public class Kettle extends Device {
 	 * 			|		/ ( result.giveInSpoons()) )
 	 */
 	public long[] findTemperature(AlchemicIngredient result) {
-		double sum = 0;
-		for (AlchemicIngredient ingredient : getIngredients()) {
-			sum += ingredient.giveInSpoons() * (ingredient.getHotness()-ingredient.getColdness());
-		}
-		long temperature =   (long) ( sum/ result.giveInSpoons());
-		return AlchemicIngredient.temperatureToArray(temperature);		
+		return getMix().getTemperature(result);
 	}
 	
 
@@ -275,11 +270,7 @@ public class Kettle extends Device {
 	 * 			| sum( for ingredient in getIngredients(): ingredient.getCharVolatility()) / getIngredients().size()
 	 */
 	public double findCharacteristicVolatility() {
-		double sum = 0;
-		for (AlchemicIngredient ingredient : getIngredients()) {
-			sum += ingredient.getCharVolatility();
-		}
-		return sum / getIngredients().size() ;
+		return getMix().getCharacteristicVolatility();
 	}
 	
 	/**
@@ -289,11 +280,7 @@ public class Kettle extends Device {
 	 * 			| sum( for ingredient in getIngredients(): ingredient.getType().getVolatility()) / getIngredients().size()
 	 */
 	public double findTheoreticalVolatility() {
-		double sum = 0;
-		for (AlchemicIngredient ingredient : getIngredients()) {
-			sum += ingredient.getType().getVolatility();
-		}
-		return sum / getIngredients().size();
+		return getMix().getTheoreticalVolatility();
 	}
 	
 	/**
@@ -336,70 +323,13 @@ public class Kettle extends Device {
 	
 
 	
-	/**
-	 * Find the quantity of the result
-	 * 
-	 * 
-	 * 
-	 * @return	if everything is liquid, result equals a list containing the uncarried amount of pinches of all the ingredients
-	 * 			| if (for each ingredient in getIngredients()
-	 * 			|			ingredient.getState() == State.Liquid)
-	 * 			|   then result.get(0) == sum(for each ingredient in getIngredients(): ingredient.giveInLowestUnit())
-	 * 			|			&& for index in 1..10: result.get(index) == 0
-	 * 			| if (for each ingredient in getIngredients()
-	 * 			|			ingredient.getState() == State.Solid)
-	 * 			|   then result.get(0) == sum(for each ingredient in getIngredients(): ingredient.giveInLowestUnit())
-	 * 			|			&& for index in 1..10: result.get(index) == 0   
-	 * 			| else
-	 * 			|		result.get(0) == 0 && for index in 2..10: result.get(index) == 0
-	 * 			|			&&	result.get(1) == sum(for each ingredient in getIngredients(): if (ingredient.getState() == State.Liquid):
-	 * 			|					ingredient.giveInLowestUnit()) / 8 + sum(for each ingredient in getIngredients(): 
-	 * 			|					if (ingredient.getState() == State.Solid): ingredient.giveInLowestUnit()) / 6
-	 * 			|				+ (   if (ingredient.getState() == State.Liquid):
-	 * 			|					ingredient.giveInLowestUnit()) % 8 + sum(for each ingredient in getIngredients(): 
-	 * 			|					if (ingredient.getState() == State.Solid): ingredient.giveInLowestUnit()) % 6	
-	 * 			|				) / 6
-	 * 					
-	 */
-	@Model
-	private ArrayList<Integer> findQuantity() {
-		ArrayList<Integer> resultList = new ArrayList<Integer>(Collections.nCopies(findState().getQuantities().size(), 0));
-		int liquidVolume = 0;
-		int solidMass = 0;
-		for (AlchemicIngredient ingredient: getIngredients()) {
-			if (ingredient.getState() == State.Liquid) {
-				liquidVolume += ingredient.giveInLowestUnit();
-			} else  {
-				solidMass += ingredient.giveInLowestUnit();
-			}
-		}
-		if (liquidVolume == 0) {
-			resultList.set(0, solidMass);
-			resultList.set(1, 0);
-		} else if (solidMass == 0) {
-			resultList.set(0, liquidVolume);
-			resultList.set(1, 0);
-		} else {
-			resultList.set(0, 0);
-			resultList.set(1, liquidVolume / LQuant.SPOON.getCVal() + solidMass / SQuant.SPOON.getCVal() 
-				+ (liquidVolume % LQuant.SPOON.getCVal() * SQuant.SPOON.getCVal() + solidMass % SQuant.SPOON.getCVal() * LQuant.SPOON.getCVal()) 
-				/ (LQuant.SPOON.getCVal() * SQuant.SPOON.getCVal())							);
-		}
-		
-		return resultList;
-	}
-	
 	/**
 	 * Add a certain ingredient
 	 * 
 	 * @param	ingredient
 	 * 			The container which we're adding
-	 * @post	The content of the container is now stored in the device
-	 * 			| new.getIngredients().contains(container) == true
-	 * @post	If the device can only hold the current number of ingredients, the last ingredient in the device is replaced 
-	 * 			by the ingredient in the container and the last ingredient is terminated.
-	 * 			| new.getIngredients().contains(old.getIngredients().get(getIngredients().size() - 1) == false
-	 * 			| && old.getIngredients().get(getIngredients().size() - 1).isTerminated() == true
+	 * @post	The ingredient is now stored in the kettle, which has room for any number of ingredients
+	 * 			| new.getIngredients().contains(ingredient) == true
 	 * @throws	IllegalArgumentException
 	 * 			The alchemic ingredient you're trying to add has already been terminated
 	 * 			| container.getContents().isTerminated()
@@ -408,17 +338,14 @@ public class Kettle extends Device {
 	 * 			| !isInCorrectLab()
 	 */
 	@Model
-	protected void add(AlchemicIngredient ingredient) throws EmptyContainerException, IllegalArgumentException {
+	protected synchronized void add(AlchemicIngredient ingredient) throws EmptyContainerException, IllegalArgumentException {
 		if (!isInCorrectLab()) {
 			throw new IllegalArgumentException("This device is not in the correct lab!");
 		}
 		if (ingredient.isTerminated()) {
 			throw new IllegalArgumentException("Container's ingredient is terminated!");
 		}
-		if (!isValidNumberOfItems(getIngredients().size() +1)) {
-			pop().terminate();
-		} 
-		push(ingredient);	
+		push(ingredient);
 	}
 	
 	
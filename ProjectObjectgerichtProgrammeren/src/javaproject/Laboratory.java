@@ -1,6 +1,9 @@
 package javaproject;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import be.kuleuven.cs.som.annotate.Basic;
 import be.kuleuven.cs.som.annotate.Model;
@@ -82,16 +85,145 @@ public class Laboratory {
 		}
 
 		AlchemicIngredient result = new AlchemicIngredient(ingredient);
-		
+		int remainder = ingredient.getTransmogrificationRemainder();
+		result.setQuantityTo(amountToWithdraw);
+		result.carryOver();
 		if (amountInStorage - amountToWithdraw != 0) {
 			ingredient.setQuantityTo(amountInStorage - amountToWithdraw);
+			ingredient.addTransmogrificationRemainder(remainder);
 		} else {
 			removeIngredientAt(find(name));
+			result.addTransmogrificationRemainder(remainder);
 		}
-		result.setQuantityTo(amountToWithdraw);
 		return Device.stuffInsideContainer(result);
 	}
 	
+	/**
+	 * Get a multiplied amount of an ingredient out of our storage in one withdrawal, split over as few containers as possible
+	 * 
+	 * @param	name
+	 * 			The name on which we're searching our ingredient
+	 * @param	unit
+	 * 			The unit of ingredient to be retrieved
+	 * @param	amount
+	 * 			The amount of unit to be retrieved
+	 * @param	multiplier
+	 * 			The factor with which the amount is multiplied
+	 * @effect	The ingredients quantity is reduced by the multiplied amount, if nothing is left it is removed
+	 * 			| getIngredientAt(find(name)).setQuantityTo( getIngredientAt(find(name)).giveInLowestUnit()
+	 * 			|		- getIngredientAt(find(name)).convertToLowestUnit(unit) * amount * multiplier )
+	 * @return	Containers holding the multiplied amount together, all but the last one filled to the largest container
+	 * 			| sum(for each container in result: container.getContents().giveInLowestUnit())
+	 * 			|		== getIngredientAt(find(name)).convertToLowestUnit(unit) * amount * multiplier
+	 * 			| && result.size() == max(1, ceil(getIngredientAt(find(name)).convertToLowestUnit(unit) * amount * multiplier
+	 * 			|		/ getIngredientAt(find(name)).convertToLowestUnit(getIngredientAt(find(name)).getHighestContainerQuantity())))
+	 * @throws	NameNotFoundException
+	 * 			There is no ingredient with that name
+	 * 			| find(name) == -1
+	 * @throws	ExceedsStorageException
+	 * 			The multiplied amount exceeds the amount in the storage of the lab
+	 * 			| getIngredientAt(find(name)).giveInLowestUnit() 
+	 * 			|		< getIngredientAt(find(name)).convertToLowestUnit(unit) * amount * multiplier
+	 * @throws	IllegalArgumentException
+	 * 			The unit requested does not exist for the state of this ingredient or the multiplier is not strictly positive
+	 * 			| getIngredientAt(find(name)).getState() != unit.getType() || multiplier <= 0
+	 */
+	public ArrayList<IngredientContainer> getSplit(String name, Quant unit, int amount, int multiplier) 
+				throws NameNotFoundException, ExceedsStorageException, IllegalArgumentException {
+		if (multiplier <= 0) {
+			throw new IllegalArgumentException("Multiplier must be strictly positive");
+		}
+		int position = find(name);
+		if (position == -1) {
+			throw new NameNotFoundException(name, this);
+		}
+		AlchemicIngredient ingredient = getIngredientAt(position);
+		if (ingredient.getState() != unit.getType()) {
+			throw new IllegalArgumentException("The unit requested does not exist for the state of this ingredient");
+		}
+		int amountInStorage = ingredient.giveInLowestUnit();
+		long amountToWithdraw = (long) ingredient.convertToLowestUnit(unit) * amount * multiplier;
+		if (amountInStorage < amountToWithdraw) {
+			throw new ExceedsStorageException((int) Long.min(amountToWithdraw, Integer.MAX_VALUE), amountInStorage);
+		}
+		int pieceSize = ingredient.convertToLowestUnit(ingredient.getHighestContainerQuantity());
+		int remainder = ingredient.getTransmogrificationRemainder();
+		ArrayList<IngredientContainer> pieces = new ArrayList<IngredientContainer>();
+		AlchemicIngredient piece;
+		long left = amountToWithdraw;
+		do {
+			piece = new AlchemicIngredient(ingredient);
+			piece.setQuantityTo((int) Long.min(left, pieceSize));
+			piece.carryOver();
+			pieces.add(Device.stuffInsideContainer(piece));
+			left -= pieceSize;
+		} while (left > 0);
+		if (amountInStorage != amountToWithdraw) {
+			ingredient.setQuantityTo(amountInStorage - (int) amountToWithdraw);
+			ingredient.addTransmogrificationRemainder(remainder);
+		} else {
+			removeIngredientAt(position);
+			piece.addTransmogrificationRemainder(remainder);
+		}
+		return pieces;
+	}
+	
+	/**
+	 * Get several multiplied amounts of ingredients out of our storage in one withdrawal
+	 * 
+	 * @param	names
+	 * 			The names of the ingredients
+	 * @param	units
+	 * 			The units of the amounts
+	 * @param	amounts
+	 * 			The number of units of each amount
+	 * @param	from
+	 * 			The index of the first amount in the given arrays
+	 * @param	count
+	 * 			The number of amounts
+	 * @param	multiplier
+	 * 			The factor with which every amount is multiplied
+	 * @effect	Every amount is taken out of the storage in order
+	 * 			| for each I in from..from+count-1: getSplit(names[I], units[I], amounts[I], multiplier)
+	 * @return	For every amount, in order, the containers holding it
+	 * 			| for each I in 0..count-1: 
+	 * 			|	result.get(I) == getSplit(names[from + I], units[from + I], amounts[from + I], multiplier)
+	 * @throws	NameNotFoundException
+	 * 			One of the ingredients cannot be found, nothing is taken out of the storage
+	 * @throws	ExceedsStorageException
+	 * 			Together the amounts of an ingredient exceed what is in the storage, nothing is taken out of the storage
+	 * @throws	IllegalArgumentException
+	 * 			One of the units does not exist for the state of its ingredient or the multiplier is not strictly positive,
+	 * 			nothing is taken out of the storage
+	 */
+	public ArrayList<ArrayList<IngredientContainer>> getAll(String[] names, Quant[] units, int[] amounts, int from, int count, int multiplier) 
+				throws NameNotFoundException, ExceedsStorageException, IllegalArgumentException {
+		if (multiplier <= 0) {
+			throw new IllegalArgumentException("Multiplier must be strictly positive");
+		}
+		HashMap<String, Long> demand = new HashMap<String, Long>();
+		for (int index = from; index < from + count; index++) {
+			int position = find(names[index]);
+			if (position == -1) {
+				throw new NameNotFoundException(names[index], this);
+			}
+			AlchemicIngredient ingredient = getIngredientAt(position);
+			if (ingredient.getState() != units[index].getType()) {
+				throw new IllegalArgumentException("The unit requested does not exist for the state of this ingredient");
+			}
+			long amountToWithdraw = (long) ingredient.convertToLowestUnit(units[index]) * amounts[index] * multiplier;
+			long total = demand.merge(names[index], amountToWithdraw, Long::sum);
+			if (ingredient.giveInLowestUnit() < total) {
+				throw new ExceedsStorageException((int) Long.min(total, Integer.MAX_VALUE), ingredient.giveInLowestUnit());
+			}
+		}
+		ArrayList<ArrayList<IngredientContainer>> result = new ArrayList<ArrayList<IngredientContainer>>(count);
+		for (int index = from; index < from + count; index++) {
+			result.add(getSplit(names[index], units[index], amounts[index], multiplier));
+		}
+		return result;
+	}
+	
 	/**
 	 * The capacity of this laboratory in storerooms
 	 */
@@ -112,11 +244,21 @@ public class Laboratory {
 	 * 			| sum(for ingredient in storage: ingredient.giveInStoreRooms()) + extraIngredient.giveInStoreRooms() <= getCapacity())
 	 */
 	public boolean canHaveAsExtraContents(AlchemicIngredient extraIngredient) {
+		return getNbUsedStoreRooms() + extraIngredient.giveInStoreRooms() <= getCapacity();
+	}
+	
+	/**
+	 * Return the number of storerooms taken up by the storage of this laboratory
+	 * 
+	 * @return	The storerooms taken up by each ingredient, summed in whole storerooms
+	 * 			| result == sum(for ingredient in storage: ingredient.giveInStoreRooms())
+	 */
+	public int getNbUsedStoreRooms() {
 		int sum = 0;
 		for (AlchemicIngredient ingredient : getStorage()) {
 			sum += ingredient.giveInStoreRooms();
 		}
-		return sum + extraIngredient.giveInStoreRooms() <= getCapacity();
+		return sum;
 	}
 	
 	
@@ -167,6 +309,22 @@ public class Laboratory {
 		return storage.get(index);
 	}
 	
+	/**
+	 * Return the stored ingredient with the given name
+	 * 
+	 * @return	The ingredient with the given name, null if there is none
+	 * 			| if (find(name) == -1) result == null
+	 * 			| else result == getIngredientAt(find(name))
+	 */
+	@Raw @Model
+	protected AlchemicIngredient getStoredIngredient(String name) {
+		int position = find(name);
+		if (position == -1) {
+			return null;
+		}
+		return getIngredientAt(position);
+	}
+	
 	/**
 	 * 
 	 * Check whether the given ingredient can be put at the given index (checker for ingredients which are not in list)
@@ -245,8 +403,7 @@ public class Laboratory {
 	public boolean hasProperIngredients() {
 		for (int index = 0; index < getSize(); index++) {
 			if (!isValidIngredientFor(getIngredientAt(index), index) 
-					|| AlchemicIngredient.compareTemperature(getIngredientAt(index).getTemperature(), 
-							getIngredientAt(index).getType().getStandardTemperature()) != 0) {
+					|| getIngredientAt(index).getTemperatureValue() != getIngredientAt(index).getType().getStandardTemperatureValue()) {
 				return false;
 			}
 		}
@@ -472,9 +629,9 @@ public class Laboratory {
 	 *			| returnOven().execute()
 	 * @return	The result from the device
 	 * 			| if (container.getContents().getTemperatureName() == AlchemicIngredient.Temperature.COOLED):
-	 * 			|		result == returnFridge().result()
+	 * 			|		result == Device.stuffInsideBatchContainer(returnFridge().ingredientResult())
 	 * 			|	else if (container.getContents().getTemperatureName() == AlchemicIngredient.Temperature.HEATED)
-	 * 			|		result == returnOven().result()
+	 * 			|		result == Device.stuffInsideBatchContainer(returnOven().ingredientResult())
 	 * 			|	else
 	 * 			|		result ==  container 
 	 * @throws	IllegalStateException
@@ -490,12 +647,12 @@ public class Laboratory {
 			returnFridge().changeTemperature(container.getContents().getType().getStandardTemperature());
 			returnFridge().add(container);
 			returnFridge().execute();
-			return returnFridge().result();
+			return Device.stuffInsideBatchContainer(returnFridge().ingredientResult());
 		} else if (container.getContents().getTemperatureState() == AlchemicIngredient.Temperature.HEATED) {
 			returnOven().changeTemperature(container.getContents().getType().getStandardTemperature());
 			returnOven().add(container);
 			returnOven().execute();
-			return returnOven().result();
+			return Device.stuffInsideBatchContainer(returnOven().ingredientResult());
 		} else {
 			return container;
 		}
@@ -518,7 +675,7 @@ public class Laboratory {
 	 *			| returnOven().execute()
 	 * @return	The result of the transmogrifier
 	 * 			| if (container.getContents().getState() != container.getContents().getType().getState())
-	 * 			|	result == returnTransmogrifier().result()
+	 * 			|	result == Device.stuffInsideBatchContainer(returnTransmogrifier().ingredientResult())
 	 * 			| else
 	 * 			|	result == container
 	 * @throws	IllegalStateException
@@ -533,7 +690,7 @@ public class Laboratory {
 		if (container.getContents().getState() != container.getContents().getType().getState()) {
 			returnTransmogrifier().add(container);
 			returnTransmogrifier().execute();
-			return returnTransmogrifier().result();
+			return Device.stuffInsideBatchContainer(returnTransmogrifier().ingredientResult());
 		} 
 		return container;
 	}
@@ -1006,31 +1163,297 @@ public class Laboratory {
 	
 	
 	
-	public void execute(Recipe recipe, int multiplier) {
-		ExecutiveRecipe executive = new ExecutiveRecipe(recipe);
-		executive.setFactor(multiplier);
-		for (String instruction: executive.getRecipe().getInstructions()) {
+	/**
+	 * Check whether the given recipe can be executed with the given multiplier, without changing anything
+	 * 
+	 * @param	recipe
+	 * 			The recipe which is checked
+	 * @param	multiplier
+	 * 			The factor with which the recipe is multiplied
+	 * @return	The feasibility of the compiled recipe
+	 * 			| result == canExecute(recipe.compile(), multiplier)
+	 * @throws	IllegalArgumentException
+	 * 			The recipe cannot be compiled or the multiplier is not strictly positive
+	 */
+	public FeasibilityReport canExecute(Recipe recipe, int multiplier) throws IllegalArgumentException {
+		return canExecute(recipe.compile(), multiplier);
+	}
+	
+	/**
+	 * Check whether the given compiled recipe can be executed with the given multiplier, without changing anything
+	 * 
+	 * @param	program
+	 * 			The compiled recipe which is checked
+	 * @param	multiplier
+	 * 			The factor with which the recipe is multiplied
+	 * @return	A report with, in the order in which they first appear in the recipe, the ingredients whose total demand
+	 * 			over all amounts exceeds what is stored. An ingredient that is not stored, or stored in a state its units
+	 * 			do not belong to, has nothing available.
+	 * 			| for each shortfall in result.getShortfalls():
+	 * 			|	shortfall.getRequired() == multiplier * sum(for each I with program.getName(I).equals(shortfall.getName()):
+	 * 			|		program.getUnit(I).getType().convertToLowestUnit(program.getUnit(I)) * program.getQuantity(I))
+	 * @return	The report lists the devices the recipe needs but this lab does not have: a kettle always,
+	 * 			an oven if the recipe heats and a cooling box if it cools
+	 * 			| result.getMissingDevices().contains(Kettle.class) == !hasValidKettle()
+	 * @throws	IllegalArgumentException
+	 * 			The multiplier is not strictly positive
+	 * 			| multiplier <= 0
+	 */
+	public FeasibilityReport canExecute(CompiledRecipe program, int multiplier) throws IllegalArgumentException {
+		if (multiplier <= 0) {
+			throw new IllegalArgumentException("Multiplier must be strictly positive");
+		}
+		LinkedHashMap<String, Long> demand = new LinkedHashMap<String, Long>();
+		HashMap<String, State> states = new HashMap<String, State>();
+		for (int amount = 0; amount < program.getNbAmounts(); amount++) {
+			Quant unit = program.getUnit(amount);
+			long required = (long) unit.getType().convertToLowestUnit(unit) * program.getQuantity(amount) * multiplier;
+			demand.merge(program.getName(amount), required, Long::sum);
+			states.putIfAbsent(program.getName(amount), unit.getType());
+		}
+		ArrayList<FeasibilityReport.Shortfall> shortfalls = new ArrayList<FeasibilityReport.Shortfall>();
+		for (Map.Entry<String, Long> entry : demand.entrySet()) {
+			long available = 0;
+			int position = find(entry.getKey());
+			if (position != -1) {
+				AlchemicIngredient ingredient = getIngredientAt(position);
+				if (ingredient.getState() == states.get(entry.getKey())) {
+					available = ingredient.giveInLowestUnit();
+				}
+			}
+			if (available < entry.getValue()) {
+				shortfalls.add(new FeasibilityReport.Shortfall(entry.getKey(), entry.getValue(), available));
+			}
+		}
+		ArrayList<Class<? extends Device>> missingDevices = new ArrayList<Class<? extends Device>>();
+		boolean heats = false, cools = false;
+		for (int pc = 0; pc < program.getLength(); pc++) {
+			heats |= program.getInstruction(pc) == Instruction.HEAT;
+			cools |= program.getInstruction(pc) == Instruction.COOL;
+		}
+		if (!hasValidKettle()) {
+			missingDevices.add(Kettle.class);
+		}
+		if (heats && !hasValidOven()) {
+			missingDevices.add(Oven.class);
+		}
+		if (cools && !hasValidFridge()) {
+			missingDevices.add(CoolingBox.class);
+		}
+		return new FeasibilityReport(shortfalls, missingDevices);
+	}
+	
+	/**
+	 * The trace recording the executed instructions, null if they are not recorded
+	 */
+	private volatile RecipeTrace trace = null;
+	
+	/**
+	 * Return the trace recording the instructions executed in this lab, null if they are not recorded
+	 */
+	@Basic
+	public RecipeTrace getTrace() {
+		return this.trace;
+	}
+	
+	/**
+	 * Record the instructions executed in this lab in the given trace
+	 * 
+	 * @param	trace
+	 * 			The trace, null to stop recording
+	 * @post	| new.getTrace() == trace
+	 */
+	public void setTrace(RecipeTrace trace) {
+		this.trace = trace;
+	}
+	
+	/**
+	 * Record the instruction at the given index, which started at the given time, in the given trace
+	 * 
+	 * @param	pc
+	 * 			The index of the instruction, the length of the program for the final mix
+	 * @param	withdrawn
+	 * 			The amount the instruction took out of the storage of this lab, in lowest units
+	 * @param	failure
+	 * 			The exception that stopped the recipe, null if the instruction succeeded
+	 */
+	private void trace(RecipeTrace trace, long run, CompiledRecipe program, int pc, long start, 
+			ExecutiveRecipe executive, long withdrawn, RuntimeException failure) {
+		long end = System.nanoTime();
+		Instruction instruction = pc < program.getLength() ? program.getInstruction(pc) : Instruction.MIX;
+		Device device = null;
+		switch (instruction) {
+		case ADD:
+			break;
+		case HEAT:
+			device = getOven();
+			break;
+		case COOL:
+			device = getFridge();
+			break;
+		case MIX:
+			device = getKettle();
+			break;
+		}
+		Quant container = executive.getNbCurrentItems() == 0 ? null : executive.getLastCurrentElement().getCapacity();
+		trace.record(run, program, pc, instruction, start, end, device, withdrawn, container, failure);
+	}
+	
+	/**
+	 * Execute the given recipe
+	 * 
+	 * @param	recipe
+	 * 			The recipe which is executed
+	 * @param	multiplier
+	 * 			The factor with which the recipe is multiplied
+	 * @effect	The compiled and optimized recipe is executed
+	 * 			| execute(recipe.compile().optimize(), multiplier)
+	 * @return	The result of the recipe
+	 * 			| result == execute(recipe.compile().optimize(), multiplier)
+	 * @throws	IllegalArgumentException
+	 * 			The recipe cannot be compiled or the multiplier is not strictly positive
+	 * 			| recipe.compile() throws IllegalArgumentException || multiplier <= 0
+	 */
+	public IngredientContainer execute(Recipe recipe, int multiplier) throws IllegalArgumentException {
+		return execute(recipe.compile().optimize(), multiplier);
+	}
+	
+	/**
+	 * Execute the given compiled recipe
+	 * 
+	 * @param	program
+	 * 			The compiled recipe which is executed
+	 * @param	multiplier
+	 * 			The factor with which the recipe is multiplied
+	 * @effect	Every instruction of the program is executed in order, an add instruction takes the amounts it refers to
+	 * 			| for each I in 0..program.getLength()-1:
+	 * 			|	switch (program.getInstruction(I))
+	 * 			|		case ADD: executive.addAll(this, names, units, quantities, program.getOperand(I), program.getCount(I))
+	 * 			|		case HEAT: executive.heat(this, program.getOperand(I))
+	 * 			|		case COOL: executive.cool(this, program.getOperand(I))
+	 * 			|		case MIX: executive.mix(this)
+	 * @effect	Every amount is multiplied by the multiplier
+	 * 			| executive.setFactor(multiplier)
+	 * @effect	Finally everything is mixed, and named after the product of the recipe if it has one
+	 * 			| executive.mix(this, program.getRecipe().getProduct())
+	 * @return	The container holding the final mix, which is not reduced to fit the largest container
+	 * 			| result == executive.pop()
+	 * @return	If an ingredient is missing, there is not enough of it, an intermediate product is not in the state of 
+	 * 			the unit it is asked in or a device is missing, everything taken so far is returned to the storage and nothing is produced
+	 * 			| result == null
+	 * @effect	If this lab has a trace, every executed instruction is recorded in it, including the one that failed
+	 * @throws	IllegalArgumentException
+	 * 			The multiplier is not strictly positive
+	 * 			| multiplier <= 0
+	 */
+	public IngredientContainer execute(CompiledRecipe program, int multiplier) throws IllegalArgumentException {
+		return execute(program, multiplier, null);
+	}
+	
+	/**
+	 * Execute the given compiled recipe, taking intermediate products from the given store before the storage
+	 * 
+	 * @param	program
+	 * 			The compiled recipe which is executed
+	 * @param	multiplier
+	 * 			The factor with which the recipe is multiplied
+	 * @param	intermediates
+	 * 			The intermediate products, null if there are none
+	 * @effect	The recipe is executed as execute(program, multiplier), an amount of an ingredient held by the store
+	 * 			is taken from the store
+	 * 			| executive.setIntermediates(intermediates)
+	 * @effect	The final mix gets the product name of the recipe, if any
+	 * 			| executive.mix(this, program.getRecipe().getProduct())
+	 * @return	| result == execute(program, multiplier) with the intermediates used first
+	 * @throws	IllegalArgumentException
+	 * 			The multiplier is not strictly positive
+	 * 			| multiplier <= 0
+	 */
+	public IngredientContainer execute(CompiledRecipe program, int multiplier, IntermediateStore intermediates) 
+			throws IllegalArgumentException {
+		if (multiplier <= 0) {
+			throw new IllegalArgumentException("Multiplier must be strictly positive");
+		}
+		ExecutiveRecipe executive = ExecutiveRecipe.obtain(program.getRecipe());
+		RecipeTrace trace = getTrace();
+		long run = trace == null ? 0 : trace.startRun();
+		try {
+			executive.setFactor(multiplier);
+			executive.setIntermediates(intermediates);
+			for (int pc = 0; pc < program.getLength(); pc++) {
+				long start = trace == null ? 0 : System.nanoTime();
+				long withdrawn = executive.getNbWithdrawn();
+				try {
+					switch (program.getInstruction(pc)) {
+					case ADD:
+						int amount = program.getOperand(pc);
+						if (program.getCount(pc) == 1) {
+							executive.add(this, program.getName(amount), program.getUnit(amount), program.getQuantity(amount));
+						} else {
+							executive.addAll(this, program.getNames(), program.getUnits(), program.getQuantities(), 
+									amount, program.getCount(pc));
+						}
+						break;
+					case HEAT:
+						executive.heat(this, program.getOperand(pc));
+						break;
+					case COOL:
+						executive.cool(this, program.getOperand(pc));
+						break;
+					case MIX:
+						executive.mix(this);
+						break;
+					}
+				} catch (ExceedsStorageException e1) {
+					if (trace != null) {
+						trace(trace, run, program, pc, start, executive, 0, e1);
+					}
+					executive.returnToStorage(this);
+					return null;
+				} catch (IllegalStateException e2) {
+					if (trace != null) {
+						trace(trace, run, program, pc, start, executive, 0, e2);
+					}
+					executive.returnToStorage(this);
+					return null;
+				} catch (NameNotFoundException e4) {
+					if (trace != null) {
+						trace(trace, run, program, pc, start, executive, 0, e4);
+					}
+					executive.returnToStorage(this);
+					return null;
+				} catch (StateMismatchException e5) {
+					if (trace != null) {
+						trace(trace, run, program, pc, start, executive, 0, e5);
+					}
+					executive.returnToStorage(this);
+					return null;
+				} catch (RuntimeException e6) {
+					if (trace != null) {
+						trace(trace, run, program, pc, start, executive, 0, e6);
+					}
+					throw e6;
+				}
+				if (trace != null) {
+					trace(trace, run, program, pc, start, executive, executive.getNbWithdrawn() - withdrawn, null);
+				}
+			}
+			long start = trace == null ? 0 : System.nanoTime();
 			try {
-				if (instruction == "add") {
-					executive.add(this); }
-				if (instruction == "heat") {
-					executive.heat(this); }
-				if (instruction == "cool") {
-					executive.cool(this);}
-				if (instruction == "mix") {
-					executive.mix(this); }
-			} catch (ExceedsStorageException e1) {
-				//System.err.println(String.valueOf(e1.getAmountAsked()) + " is more than " + String.valueOf(e1.getAmountAvailable()));
-				executive.returnToStorage(this);
-			} catch (IllegalStateException e2) {
-				System.err.println("You do not have the necessary devices in your lab");
-			} catch (ExceedsContainerCapacityException e3) {
-				System.err.println("You are attempting to use a greater quantity than can fit in a barrel/chest");
-			} catch (NameNotFoundException e4) {
-				System.err.println("The ingredient described cannot be found in this laboratory");
+				executive.mix(this, program.getRecipe().getProduct());
+			} catch (RuntimeException e7) {
+				if (trace != null) {
+					trace(trace, run, program, program.getLength(), start, executive, 0, e7);
+				}
+				throw e7;
+			}
+			if (trace != null) {
+				trace(trace, run, program, program.getLength(), start, executive, 0, null);
 			}
+			return executive.pop();
+		} finally {
+			executive.release();
 		}
-		executive.mix(this);
 	}
 	
 	
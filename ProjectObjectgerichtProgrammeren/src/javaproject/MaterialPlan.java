@@ -0,0 +1,229 @@
+package javaproject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import javaproject.Recipe.Amount;
+import quantity.Quant;
+
+/**
+ * A production plan of recipes, each with a multiplier, and the ingredients it needs
+ *
+ * The demand of every job is added up per ingredient name in the lowest unit as the job is added, so checking the plan
+ * against a laboratory never executes or compiles anything. Stock is handed out to the jobs in the order of the plan:
+ * a job is blocked by an ingredient if the stock left by the jobs before it does not cover its own demand.
+ *
+ * @invar	The total demand of an ingredient is the sum of the demand of the jobs
+ * 			| for each name in getDemand().keySet(): getDemand(name) == sum(for each I in 0..getNbJobs()-1: getDemand(I, name))
+ *
+ * @author Jonas
+ *
+ */
+public class MaterialPlan {
+
+	/**
+	 * Initialize an empty plan
+	 *
+	 * @post	| new.getNbJobs() == 0 && new.getDemand().isEmpty()
+	 */
+	public MaterialPlan() {
+	}
+
+	/**
+	 * The recipes of the jobs, in order
+	 */
+	private final ArrayList<Recipe> recipes = new ArrayList<Recipe>();
+
+	/**
+	 * The multipliers of the jobs, in order
+	 */
+	private final ArrayList<Integer> multipliers = new ArrayList<Integer>();
+
+	/**
+	 * The demand of each job per ingredient name in the lowest unit
+	 */
+	private final ArrayList<LinkedHashMap<String, Long>> jobDemand = new ArrayList<LinkedHashMap<String, Long>>();
+
+	/**
+	 * The total demand per ingredient name in the lowest unit, in the order in which the ingredients first appear
+	 */
+	private final LinkedHashMap<String, Long> demand = new LinkedHashMap<String, Long>();
+
+	/**
+	 * The state in which each ingredient is asked for first
+	 */
+	private final HashMap<String, State> states = new HashMap<String, State>();
+
+	/**
+	 * Add a job to the end of the plan
+	 *
+	 * @param	recipe
+	 * 			The recipe of the job
+	 * @param	multiplier
+	 * 			The factor with which the recipe is multiplied
+	 * @post	| new.getNbJobs() == getNbJobs() + 1 && new.getRecipe(getNbJobs()) == recipe
+	 * 			| && new.getMultiplier(getNbJobs()) == multiplier
+	 * @post	The demand of the job is added to the total demand
+	 * 			| for each amount in recipe.getAmounts():
+	 * 			|	new.getDemand(getNbJobs(), amount.getIngredientType().getName()) includes
+	 * 			|		amount.getUnit().getType().convertToLowestUnit(amount.getUnit()) * amount.getQuantity() * multiplier
+	 * @return	The index of the job
+	 * 			| result == getNbJobs()
+	 * @throws	IllegalArgumentException
+	 * 			The multiplier is not strictly positive or an amount has no ingredient type or unit; nothing is added
+	 * 			| multiplier <= 0 || for some amount in recipe.getAmounts(): amount.getIngredientType() == null || amount.getUnit() == null
+	 */
+	public int add(Recipe recipe, int multiplier) throws IllegalArgumentException {
+		if (multiplier <= 0) {
+			throw new IllegalArgumentException("Multiplier must be strictly positive");
+		}
+		LinkedHashMap<String, Long> required = new LinkedHashMap<String, Long>();
+		HashMap<String, State> asked = new HashMap<String, State>();
+		for (Amount amount : recipe.getAmountView()) {
+			Quant unit = amount.getUnit();
+			if (amount.getIngredientType() == null || unit == null) {
+				throw new IllegalArgumentException("Amount of job " + recipes.size() + " is incomplete");
+			}
+			required.merge(amount.getIngredientType().getName(),
+					(long) unit.getType().convertToLowestUnit(unit) * amount.getQuantity() * multiplier, Long::sum);
+			asked.putIfAbsent(amount.getIngredientType().getName(), unit.getType());
+		}
+		for (Map.Entry<String, Long> entry : required.entrySet()) {
+			demand.merge(entry.getKey(), entry.getValue(), Long::sum);
+			states.putIfAbsent(entry.getKey(), asked.get(entry.getKey()));
+		}
+		recipes.add(recipe);
+		multipliers.add(multiplier);
+		jobDemand.add(required);
+		return recipes.size() - 1;
+	}
+
+	/**
+	 * Add the given recipes to the end of the plan, each with its own multiplier
+	 *
+	 * @effect	| for each I in 0..recipes.size()-1: add(recipes.get(I), multipliers.get(I))
+	 * @throws	IllegalArgumentException
+	 * 			The lists differ in size
+	 * 			| recipes.size() != multipliers.size()
+	 */
+	public void addAll(List<Recipe> recipes, List<Integer> multipliers) throws IllegalArgumentException {
+		if (recipes.size() != multipliers.size()) {
+			throw new IllegalArgumentException("Every recipe needs a multiplier");
+		}
+		for (int index = 0; index < recipes.size(); index++) {
+			add(recipes.get(index), multipliers.get(index));
+		}
+	}
+
+	/**
+	 * Return the number of jobs in the plan
+	 */
+	@Basic
+	public int getNbJobs() {
+		return recipes.size();
+	}
+
+	/**
+	 * Return the recipe of the job at the given index
+	 */
+	@Basic
+	public Recipe getRecipe(int job) {
+		return recipes.get(job);
+	}
+
+	/**
+	 * Return the multiplier of the job at the given index
+	 */
+	@Basic
+	public int getMultiplier(int job) {
+		return multipliers.get(job);
+	}
+
+	/**
+	 * Return the total demand per ingredient name in the lowest unit, in the order in which the ingredients first appear
+	 */
+	public Map<String, Long> getDemand() {
+		return Collections.unmodifiableMap(demand);
+	}
+
+	/**
+	 * Return the total demand of the ingredient with the given name in the lowest unit
+	 *
+	 * @return	| result == (getDemand().containsKey(name) ? getDemand().get(name) : 0)
+	 */
+	public long getDemand(String name) {
+		return demand.getOrDefault(name, 0L);
+	}
+
+	/**
+	 * Return the demand of the job at the given index for the ingredient with the given name in the lowest unit
+	 */
+	public long getDemand(int job, String name) {
+		return jobDemand.get(job).getOrDefault(name, 0L);
+	}
+
+	/**
+	 * Return what the given laboratory has of the ingredient with the given name in the lowest unit,
+	 * nothing if it is stored in another state than the plan asks for
+	 */
+	private long getAvailable(Laboratory lab, String name) {
+		AlchemicIngredient ingredient = lab.getStoredIngredient(name);
+		if (ingredient == null || ingredient.getState() != states.get(name)) {
+			return 0;
+		}
+		return ingredient.giveInLowestUnit();
+	}
+
+	/**
+	 * Return the ingredients of which the given laboratory has less than the plan needs
+	 *
+	 * @param	lab
+	 * 			The laboratory whose stock is checked
+	 * @return	For each ingredient of which less is stored than the total demand, in the order in which the ingredients
+	 * 			first appear, a shortfall with the total demand and the stored amount
+	 * 			| for each shortfall in result: shortfall.getRequired() == getDemand(shortfall.getName())
+	 * 			|	&& shortfall.getAvailable() < shortfall.getRequired()
+	 */
+	public List<FeasibilityReport.Shortfall> getShortfalls(Laboratory lab) {
+		ArrayList<FeasibilityReport.Shortfall> result = new ArrayList<FeasibilityReport.Shortfall>();
+		for (Map.Entry<String, Long> entry : demand.entrySet()) {
+			long available = getAvailable(lab, entry.getKey());
+			if (available < entry.getValue()) {
+				result.add(new FeasibilityReport.Shortfall(entry.getKey(), entry.getValue(), available));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the jobs blocked by each ingredient of which the given laboratory has less than the plan needs
+	 *
+	 * @param	lab
+	 * 			The laboratory whose stock is checked
+	 * @return	For each shortfall, by name, the indices of the jobs, in order, whose demand is not covered by the stock
+	 * 			left after the jobs before them that were covered
+	 * 			| for each shortfall in getShortfalls(lab): !result.get(shortfall.getName()).isEmpty()
+	 */
+	public Map<String, List<Integer>> getBlockedJobs(Laboratory lab) {
+		LinkedHashMap<String, List<Integer>> result = new LinkedHashMap<String, List<Integer>>();
+		for (FeasibilityReport.Shortfall shortfall : getShortfalls(lab)) {
+			long left = shortfall.getAvailable();
+			ArrayList<Integer> blocked = new ArrayList<Integer>();
+			for (int job = 0; job < jobDemand.size(); job++) {
+				long required = getDemand(job, shortfall.getName());
+				if (required > left) {
+					blocked.add(job);
+				} else {
+					left -= required;
+				}
+			}
+			result.put(shortfall.getName(), blocked);
+		}
+		return result;
+	}
+}
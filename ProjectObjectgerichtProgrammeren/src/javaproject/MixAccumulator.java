@@ -0,0 +1,432 @@
+package javaproject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Model;
+import be.kuleuven.cs.som.annotate.Raw;
+import quantity.*;
+
+/**
+ * An associative accumulator of all the aggregates a kettle needs to mix a list of ingredients
+ *
+ * @invar	The number of ingredients accumulated is never negative
+ * 			| getNbIngredients() >= 0
+ *
+ * @note	Two accumulators over consecutive parts of a list can be merged into an accumulator over the whole list.
+ * 			Sums are always reduced over the same balanced split tree (see reduce), so a sequential and a parallel reduction
+ * 			perform exactly the same floating point additions and give identical results.
+ *
+ * @author Jonas
+ *
+ */
+public class MixAccumulator {
+
+	/**
+	 * Initialize a new, empty mix accumulator
+	 *
+	 * @post	No ingredients have been accumulated
+	 * 			| new.getNbIngredients() == 0
+	 */
+	public MixAccumulator() {
+	}
+
+	/**
+	 * The temperature, as hotness minus coldness, whose distance determines the state and standard temperature of a mix
+	 */
+	private static final long ROOM_TEMPERATURE = 20;
+
+	/**
+	 * The number of ingredients below which a reduction is no longer split
+	 */
+	public static final int SPLIT_THRESHOLD = 256;
+
+	/***************************************************************
+	 * ACCUMULATION
+	 ***************************************************************/
+
+	/**
+	 * Add a single ingredient to this accumulator
+	 *
+	 * @param	ingredient
+	 * 			The ingredient to be accumulated
+	 * @post	The ingredient is accounted for in every aggregate of this accumulator
+	 * 			| new.getNbIngredients() == getNbIngredients() + 1
+	 */
+	public void accumulate(AlchemicIngredient ingredient) {
+		if (ingredient.getState() == State.Liquid) {
+			liquidVolume += ingredient.giveInLowestUnit();
+		} else {
+			solidMass += ingredient.giveInLowestUnit();
+		}
+		temperatureSum += ingredient.giveInSpoons() * ingredient.getTemperatureValue();
+		characteristicVolatilitySum += ingredient.getCharVolatility();
+		theoreticalVolatilitySum += ingredient.getType().getVolatility();
+		transmogrificationRemainder += ingredient.getTransmogrificationRemainder();
+		long difference = Math.abs(ingredient.getType().getStandardTemperatureValue() - ROOM_TEMPERATURE);
+		long[] standardTemperature = ingredient.getType().getStandardTemperature();
+		if (nbIngredients == 0) {
+			firstType = ingredient.getType();
+			homogeneous = true;
+			stateDifference = difference;
+			state = ingredient.getState();
+			temperatureDifference = difference;
+			this.standardTemperature = standardTemperature;
+		} else {
+			homogeneous = homogeneous && firstType == ingredient.getType();
+			chooseState(difference, ingredient.getState());
+			chooseStandardTemperature(difference, standardTemperature);
+		}
+		mixSet = mixSet.union(ingredient.getMixSet()).with(ingredient.getType());
+		nbIngredients++;
+	}
+
+	/**
+	 * Merge the given accumulator into this accumulator
+	 *
+	 * @param	other
+	 * 			An accumulator over the ingredients that directly follow the ingredients of this accumulator
+	 * @post	This accumulator now accounts for the ingredients of both accumulators
+	 * 			| new.getNbIngredients() == getNbIngredients() + other.getNbIngredients()
+	 * @return	This accumulator
+	 * 			| result == this
+	 */
+	public MixAccumulator merge(MixAccumulator other) {
+		if (other.nbIngredients == 0) {
+			return this;
+		}
+		if (nbIngredients == 0) {
+			firstType = other.firstType;
+			homogeneous = other.homogeneous;
+			stateDifference = other.stateDifference;
+			state = other.state;
+			temperatureDifference = other.temperatureDifference;
+			standardTemperature = other.standardTemperature;
+		} else {
+			homogeneous = homogeneous && other.homogeneous && firstType == other.firstType;
+			chooseState(other.stateDifference, other.state);
+			chooseStandardTemperature(other.temperatureDifference, other.standardTemperature);
+		}
+		liquidVolume += other.liquidVolume;
+		solidMass += other.solidMass;
+		temperatureSum += other.temperatureSum;
+		characteristicVolatilitySum += other.characteristicVolatilitySum;
+		theoreticalVolatilitySum += other.theoreticalVolatilitySum;
+		transmogrificationRemainder += other.transmogrificationRemainder;
+		mixSet = mixSet.union(other.mixSet);
+		nbIngredients += other.nbIngredients;
+		return this;
+	}
+
+	/**
+	 * Keep the state closest to room temperature, preferring liquids on a tie
+	 *
+	 * @note	This is the selection rule of the kettle: a liquid equally close to [0, 20] beats a solid
+	 */
+	@Model
+	private void chooseState(long difference, State candidate) {
+		if (difference < stateDifference) {
+			stateDifference = difference;
+			state = candidate;
+		} else if (difference == stateDifference && state == State.Solid && candidate != state) {
+			state = candidate;
+		}
+	}
+
+	/**
+	 * Keep the standard temperature closest to room temperature, preferring the hottest on a tie
+	 */
+	@Model
+	private void chooseStandardTemperature(long difference, long[] candidate) {
+		if (difference < temperatureDifference) {
+			temperatureDifference = difference;
+			standardTemperature = candidate;
+		} else if (difference == temperatureDifference && AlchemicIngredient.temperatureToLong(standardTemperature) < AlchemicIngredient.temperatureToLong(candidate)) {
+			standardTemperature = candidate;
+		}
+	}
+
+	/***************************************************************
+	 * REDUCTION
+	 ***************************************************************/
+
+	/**
+	 * Reduce the given ingredients on the calling thread
+	 *
+	 * @param	ingredients
+	 * 			The ingredients to be reduced
+	 * @return	An accumulator over all the given ingredients, reduced over the same split tree as parallelReduce
+	 * 			| result.getNbIngredients() == ingredients.size()
+	 */
+	public static MixAccumulator reduce(List<AlchemicIngredient> ingredients) {
+		return new ReduceTask(ingredients, 0, ingredients.size()).compute();
+	}
+
+	/**
+	 * Reduce the given ingredients with fork/join on the given pool
+	 *
+	 * @param	ingredients
+	 * 			The ingredients to be reduced
+	 * @param	pool
+	 * 			The pool on which the reduction is executed
+	 * @return	An accumulator identical to the one of a sequential reduction
+	 * 			| result.equals(reduce(ingredients))
+	 */
+	public static MixAccumulator parallelReduce(List<AlchemicIngredient> ingredients, ForkJoinPool pool) {
+		return pool.invoke(new ReduceTask(ingredients, 0, ingredients.size()));
+	}
+
+	/**
+	 * A fork/join task reducing a range of ingredients
+	 */
+	private static class ReduceTask extends RecursiveTask<MixAccumulator> {
+
+		/**
+		 * Initialize a task reducing the ingredients from index from (inclusive) to index to (exclusive)
+		 */
+		ReduceTask(List<AlchemicIngredient> ingredients, int from, int to) {
+			this.ingredients = ingredients;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * The ingredients which are reduced
+		 */
+		private final List<AlchemicIngredient> ingredients;
+
+		/**
+		 * The bounds of the range which is reduced
+		 */
+		private final int from, to;
+
+		/**
+		 * Reduce the range, splitting it in two halves if it is larger than the threshold
+		 *
+		 * @note	When called directly (not forked) the halves are simply computed one after the other,
+		 * 			so both reductions merge in exactly the same order
+		 */
+		@Override
+		protected MixAccumulator compute() {
+			if (to - from <= SPLIT_THRESHOLD) {
+				MixAccumulator accumulator = new MixAccumulator();
+				for (int index = from; index < to; index++) {
+					accumulator.accumulate(ingredients.get(index));
+				}
+				return accumulator;
+			}
+			int middle = (from + to) >>> 1;
+			ReduceTask left = new ReduceTask(ingredients, from, middle);
+			ReduceTask right = new ReduceTask(ingredients, middle, to);
+			if (inForkJoinPool()) {
+				right.fork();
+				return left.compute().merge(right.join());
+			}
+			return left.compute().merge(right.compute());
+		}
+
+		/**
+		 * Serial Id
+		 */
+		private static final long serialVersionUID = 1L;
+	}
+
+	/***************************************************************
+	 * AGGREGATES
+	 ***************************************************************/
+
+	/**
+	 * The number of accumulated ingredients
+	 */
+	private int nbIngredients = 0;
+
+	/**
+	 * The total liquid volume in drops and the total solid mass in pinches
+	 */
+	private int liquidVolume = 0, solidMass = 0;
+
+	/**
+	 * The sum of the temperatures weighted by the amount of spoons
+	 */
+	private double temperatureSum = 0;
+
+	/**
+	 * The sums of the characteristic and theoretical volatilities
+	 */
+	private double characteristicVolatilitySum = 0, theoreticalVolatilitySum = 0;
+
+	/**
+	 * The sum of the remainders of earlier transmogrifications, in spoon parts
+	 */
+	private long transmogrificationRemainder = 0;
+
+	/**
+	 * The type of the first ingredient and whether all ingredients share it
+	 */
+	private IngredientType firstType = null;
+
+	private boolean homogeneous = false;
+
+	/**
+	 * The state closest to room temperature so far and its distance
+	 */
+	private State state = null;
+
+	private long stateDifference = 0;
+
+	/**
+	 * The standard temperature closest to room temperature so far and its distance
+	 */
+	private long[] standardTemperature = null;
+
+	private long temperatureDifference = 0;
+
+	/**
+	 * The union of all types mixed into the accumulated ingredients
+	 */
+	private MixSet mixSet = MixSet.EMPTY;
+
+	/**
+	 * Return the number of accumulated ingredients
+	 */
+	@Raw @Basic
+	public int getNbIngredients() {
+		return nbIngredients;
+	}
+
+	/**
+	 * Return the state of the mix
+	 *
+	 * @see	Kettle
+	 */
+	@Basic
+	public State getState() {
+		return state;
+	}
+
+	/**
+	 * Return the standard temperature of the mix
+	 *
+	 * @see	Kettle
+	 */
+	@Basic
+	public long[] getStandardTemperature() {
+		return standardTemperature;
+	}
+
+	/**
+	 * Return the type of the mix
+	 *
+	 * @return	The shared type if all ingredients have the same type, else the canonical nameless type of this mix
+	 * 			| if (all ingredients have the same type) result == that type
+	 * 			| else result == MixedTypeRegistry.getType(getMixSet(), getState(), getStandardTemperature(), getTheoreticalVolatility())
+	 */
+	public IngredientType getType() {
+		if (homogeneous) {
+			return firstType;
+		}
+		return MixedTypeRegistry.getType(mixSet, getState(), getStandardTemperature(), getTheoreticalVolatility());
+	}
+
+	/**
+	 * Return the quantity of the mix
+	 *
+	 * @return	The total amount in the lowest unit if all ingredients share a state,
+	 * 			else the total amount rounded down to spoons
+	 * 			| see Kettle.findQuantity()
+	 */
+	public ArrayList<Integer> getQuantity() {
+		ArrayList<Integer> resultList = new ArrayList<Integer>(Collections.nCopies(getState().getQuantities().size(), 0));
+		if (liquidVolume == 0) {
+			resultList.set(0, solidMass);
+		} else if (solidMass == 0) {
+			resultList.set(0, liquidVolume);
+		} else {
+			resultList.set(1, liquidVolume / LQuant.SPOON.getCVal() + solidMass / SQuant.SPOON.getCVal()
+				+ (liquidVolume % LQuant.SPOON.getCVal() * SQuant.SPOON.getCVal() + solidMass % SQuant.SPOON.getCVal() * LQuant.SPOON.getCVal())
+				/ (LQuant.SPOON.getCVal() * SQuant.SPOON.getCVal()));
+		}
+		return resultList;
+	}
+
+	/**
+	 * Return the temperature of a mix with the given result
+	 *
+	 * @param	result
+	 * 			The result of the mix
+	 * @return	The weighted mean of the temperature over the spoons
+	 * 			| AlchemicIngredient.temperatureToArray((long) (temperatureSum / result.giveInSpoons()))
+	 */
+	public long[] getTemperature(AlchemicIngredient result) {
+		return AlchemicIngredient.temperatureToArray(getTemperatureValue(result));
+	}
+
+	/**
+	 * Return the temperature of a mix with the given result as hotness minus coldness
+	 *
+	 * @return	| result == (long) (temperatureSum / result.giveInSpoons())
+	 */
+	public long getTemperatureValue(AlchemicIngredient result) {
+		return (long) (temperatureSum / result.giveInSpoons());
+	}
+
+	/**
+	 * Return the average characteristic volatility
+	 */
+	public double getCharacteristicVolatility() {
+		return characteristicVolatilitySum / nbIngredients;
+	}
+
+	/**
+	 * Return the average theoretical volatility
+	 */
+	public double getTheoreticalVolatility() {
+		return theoreticalVolatilitySum / nbIngredients;
+	}
+
+	/**
+	 * Return the union of all types mixed into the accumulated ingredients
+	 */
+	public Set<IngredientType> getMixList() {
+		return new HashSet<IngredientType>(mixSet.getTypes());
+	}
+
+	/**
+	 * Return the set of all types mixed into the accumulated ingredients
+	 */
+	@Basic
+	public MixSet getMixSet() {
+		return mixSet;
+	}
+
+	/**
+	 * Create the ingredient resulting from this mix
+	 *
+	 * @return	A new ingredient with the type, quantity, characteristic volatility, temperature and mix set of this mix
+	 * 			| result.getType() == getType() && result.getCharVolatility() == getCharacteristicVolatility()
+	 * 			| && result.getMixSet() == getMixSet()
+	 * 			| && result.getTemperature() == getTemperature(result)
+	 * @effect	The remainders of earlier transmogrifications of the ingredients are carried over to the result
+	 * 			| result.addTransmogrificationRemainder(sum(for each ingredient: ingredient.getTransmogrificationRemainder()))
+	 * @throws	IllegalStateException
+	 * 			No ingredients have been accumulated
+	 * 			| getNbIngredients() == 0
+	 */
+	public AlchemicIngredient createResult() throws IllegalStateException {
+		if (nbIngredients == 0) {
+			throw new IllegalStateException("Nothing to mix");
+		}
+		AlchemicIngredient ingredient = new AlchemicIngredient(getType(), getQuantity());
+		ingredient.setCharacteristicVolatility(getCharacteristicVolatility());
+		ingredient.changeTempTo(getTemperatureValue(ingredient));
+		ingredient.setMixSet(mixSet);
+		ingredient.addTransmogrificationRemainder(transmogrificationRemainder);
+		return ingredient;
+	}
+}
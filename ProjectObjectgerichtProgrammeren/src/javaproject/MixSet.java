@@ -0,0 +1,282 @@
+package javaproject;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A set of ingredient types mixed into an ingredient, stored as a bitset over the ids of the types
+ *
+ * Mix sets are interned: there is only one mix set object for every set of types, so mix sets can be compared
+ * by identity. The union of two mix sets is a word-wise or of their bitsets. The sorted names and the mixed name
+ * of a mix set are computed once.
+ *
+ * The interned mix sets are held weakly, so a mix set no ingredient uses any more is garbage collected, and with it
+ * the types it held (see IngredientType.getId).
+ *
+ * @invar	Equal sets of types share one mix set
+ * 			| for each types: of(types) == of(types)
+ * @invar	The types are ordered by id
+ * 			| for each I in 1..size()-1: getTypes().get(I - 1).getId() < getTypes().get(I).getId()
+ *
+ * @author Jonas
+ *
+ */
+@Immutable
+public final class MixSet {
+
+	/**
+	 * Initialize a mix set with the given bitset, without trailing zero words
+	 */
+	private MixSet(long[] words) {
+		this.words = words;
+		ArrayList<IngredientType> types = new ArrayList<IngredientType>();
+		for (int index = 0; index < words.length; index++) {
+			long word = words[index];
+			while (word != 0) {
+				types.add(IngredientType.getType(index * Long.SIZE + Long.numberOfTrailingZeros(word)));
+				word &= word - 1;
+			}
+		}
+		this.types = Collections.unmodifiableList(types);
+	}
+
+	/**
+	 * The bits of the ids of the types in this set
+	 */
+	private final long[] words;
+
+	/**
+	 * The types in this set, ordered by id
+	 */
+	private final List<IngredientType> types;
+
+	/**
+	 * The interned mix sets by bitset, held weakly
+	 */
+	private static final ConcurrentHashMap<Words, Interned> interned = new ConcurrentHashMap<Words, Interned>();
+
+	/**
+	 * The entries of the collected mix sets, still to be removed
+	 */
+	private static final ReferenceQueue<MixSet> collected = new ReferenceQueue<MixSet>();
+
+	/**
+	 * A weak reference to an interned mix set, remembering its key
+	 */
+	private static final class Interned extends WeakReference<MixSet> {
+
+		Interned(MixSet set, Words key) {
+			super(set, collected);
+			this.key = key;
+		}
+
+		private final Words key;
+	}
+
+	/**
+	 * The empty mix set
+	 */
+	public static final MixSet EMPTY = intern(new long[0]);
+
+	/**
+	 * Return the interned mix set with the given bits, trimming trailing zero words
+	 */
+	private static MixSet intern(long[] words) {
+		int length = words.length;
+		while (length > 0 && words[length - 1] == 0) {
+			length--;
+		}
+		long[] trimmed = length == words.length ? words : Arrays.copyOf(words, length);
+		Words key = new Words(trimmed);
+		Interned entry = interned.get(key);
+		MixSet result = entry == null ? null : entry.get();
+		if (result == null) {
+			synchronized (interned) {
+				Interned reference;
+				while ((reference = (Interned) collected.poll()) != null) {
+					interned.remove(reference.key, reference);
+				}
+				entry = interned.get(key);
+				result = entry == null ? null : entry.get();
+				if (result == null) {
+					result = new MixSet(trimmed);
+					interned.put(key, new Interned(result, key));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Return the mix set of the given types
+	 *
+	 * @return	| new HashSet(result.getTypes()).equals(new HashSet(types))
+	 */
+	public static MixSet of(Collection<IngredientType> types) {
+		long[] words = new long[0];
+		for (IngredientType type : types) {
+			int word = type.getId() / Long.SIZE;
+			if (word >= words.length) {
+				words = Arrays.copyOf(words, word + 1);
+			}
+			words[word] |= 1L << type.getId();
+		}
+		return intern(words);
+	}
+
+	/**
+	 * Return the mix set holding the types of this set and the given type
+	 *
+	 * @return	| result == union(of(Arrays.asList(type)))
+	 */
+	public MixSet with(IngredientType type) {
+		if (contains(type)) {
+			return this;
+		}
+		long[] result = Arrays.copyOf(words, Math.max(words.length, type.getId() / Long.SIZE + 1));
+		result[type.getId() / Long.SIZE] |= 1L << type.getId();
+		return intern(result);
+	}
+
+	/**
+	 * Return the mix set holding the types of this set and of the given set
+	 *
+	 * @return	| new HashSet(result.getTypes()).equals(union of new HashSet(getTypes()) and new HashSet(other.getTypes()))
+	 */
+	public MixSet union(MixSet other) {
+		if (other == this || other.words.length == 0) {
+			return this;
+		}
+		if (words.length == 0) {
+			return other;
+		}
+		long[] longer = words.length >= other.words.length ? words : other.words;
+		long[] shorter = longer == words ? other.words : words;
+		long[] result = longer.clone();
+		boolean grown = false;
+		for (int index = 0; index < shorter.length; index++) {
+			grown |= (shorter[index] & ~longer[index]) != 0;
+			result[index] |= shorter[index];
+		}
+		if (!grown) {
+			return longer == words ? this : other;
+		}
+		return intern(result);
+	}
+
+	/**
+	 * Check whether this set holds the given type
+	 */
+	public boolean contains(IngredientType type) {
+		int word = type.getId() / Long.SIZE;
+		return word < words.length && (words[word] & 1L << type.getId()) != 0;
+	}
+
+	/**
+	 * Return the number of types in this set
+	 */
+	public int size() {
+		return types.size();
+	}
+
+	/**
+	 * Check whether this set holds no types
+	 */
+	public boolean isEmpty() {
+		return words.length == 0;
+	}
+
+	/**
+	 * Return the types in this set, ordered by id
+	 */
+	@Basic @Immutable
+	public List<IngredientType> getTypes() {
+		return types;
+	}
+
+	/**
+	 * The sorted names and the mixed name, computed when first asked for
+	 */
+	private volatile List<String> names = null;
+	private volatile String mixedName = null;
+
+	/**
+	 * Return the alphabetically sorted names of the named types in this set
+	 */
+	public List<String> getNames() {
+		List<String> result = names;
+		if (result == null) {
+			ArrayList<String> sorted = new ArrayList<String>(types.size());
+			for (IngredientType type : types) {
+				if (type.getName() != null) {
+					sorted.add(type.getName());
+				}
+			}
+			Collections.sort(sorted);
+			result = Collections.unmodifiableList(sorted);
+			names = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Return the mixed name of this set
+	 *
+	 * @return	The first name, followed by " mixed with " and the other names, separated by ", " and with " and " before the last
+	 * 			| result == getNames().get(0) + " mixed with " + getNames().get(1)
+	 * 			|				+ sum(for I in 2..getNames().size() - 2: ", " + getNames().get(I))
+	 * 			|			+ " and " + getNames().get(getNames().size() - 1)
+	 * @throws	IllegalArgumentException
+	 * 			There are no named types in this set
+	 * 			| getNames().isEmpty()
+	 */
+	public String getMixedName() throws IllegalArgumentException {
+		String result = mixedName;
+		if (result == null) {
+			List<String> names = getNames();
+			if (names.isEmpty()) {
+				throw new IllegalArgumentException("No mixed ingredients in this alchemic ingredient");
+			}
+			StringBuilder builder = new StringBuilder(names.get(0));
+			for (int index = 1; index < names.size(); index++) {
+				builder.append(index == 1 ? " mixed with " : index == names.size() - 1 ? " and " : ", ").append(names.get(index));
+			}
+			result = builder.toString();
+			mixedName = result;
+		}
+		return result;
+	}
+
+	/**
+	 * A bitset compared by value
+	 */
+	private static final class Words {
+
+		Words(long[] words) {
+			this.words = words;
+			this.hash = Arrays.hashCode(words);
+		}
+
+		private final long[] words;
+		private final int hash;
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Words && Arrays.equals(words, ((Words) other).words);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package javaproject;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The canonical nameless types of mixes and the canonical mix lists
+ *
+ * Mixing the same set of types to the same state, standard temperature and volatility gives the same type object,
+ * so ingredients of equal mixes can be compared on their type by identity. The sets of mixed types are interned
+ * mix sets, so a mix is looked up without comparing its types one by one.
+ *
+ * The canonical types are held weakly: once no ingredient uses the type of a mix, it is garbage collected and its entry
+ * is dropped, so the registry only grows with the mixes in use and not with every mix ever made. Nothing can compare
+ * against a collected type, so equal mixes still share a type.
+ *
+ * @invar	Equal mixes share a type
+ * 			| for each constituents, state, standardTemperature, volatility:
+ * 			|	getType(constituents, state, standardTemperature, volatility) == getType(constituents, state, standardTemperature, volatility)
+ *
+ * @author Jonas
+ *
+ */
+public final class MixedTypeRegistry {
+
+	/**
+	 * No registry objects are made
+	 */
+	private MixedTypeRegistry() {
+	}
+
+	/**
+	 * The canonical type of each mix in use, held weakly
+	 */
+	private static final ConcurrentHashMap<Key, Canonical> types = new ConcurrentHashMap<Key, Canonical>();
+
+	/**
+	 * The entries of the collected types, still to be removed
+	 */
+	private static final ReferenceQueue<IngredientType> collected = new ReferenceQueue<IngredientType>();
+
+	/**
+	 * A weak reference to a canonical type, remembering its key
+	 */
+	private static final class Canonical extends WeakReference<IngredientType> {
+
+		Canonical(IngredientType type, Key key) {
+			super(type, collected);
+			this.key = key;
+		}
+
+		private final Key key;
+	}
+
+	/**
+	 * Return the type of a mix of the given types
+	 *
+	 * @param	constituents
+	 * 			All types mixed together
+	 * @param	state
+	 * 			The state of the mix
+	 * @param	standardTemperature
+	 * 			The standard temperature of the mix
+	 * @param	volatility
+	 * 			The theoretical volatility of the mix
+	 * @return	A nameless type with the given state, standard temperature and volatility, the same object for every
+	 * 			equal set of constituents, state, standard temperature and volatility
+	 * 			| result.getName() == null && result.getState() == state
+	 * 			| && Arrays.equals(result.getStandardTemperature(), standardTemperature) && result.getVolatility() == volatility
+	 */
+	public static IngredientType getType(Set<IngredientType> constituents, State state, long[] standardTemperature,
+			double volatility) {
+		return getType(MixSet.of(constituents), state, standardTemperature, volatility);
+	}
+
+	/**
+	 * Return the type of a mix of the types in the given mix set
+	 *
+	 * @return	| result == getType(new HashSet(constituents.getTypes()), state, standardTemperature, volatility)
+	 */
+	public static IngredientType getType(MixSet constituents, State state, long[] standardTemperature,
+			double volatility) {
+		Key key = new Key(constituents, state, standardTemperature, volatility);
+		Canonical entry = types.get(key);
+		IngredientType type = entry == null ? null : entry.get();
+		if (type == null) {
+			synchronized (types) {
+				expunge();
+				entry = types.get(key);
+				type = entry == null ? null : entry.get();
+				if (type == null) {
+					type = new IngredientType(null, state, standardTemperature, volatility);
+					types.put(key, new Canonical(type, key));
+				}
+			}
+		}
+		return type;
+	}
+
+	/**
+	 * Remove the entries of all collected types
+	 */
+	private static void expunge() {
+		Canonical reference;
+		while ((reference = (Canonical) collected.poll()) != null) {
+			types.remove(reference.key, reference);
+		}
+	}
+
+	/**
+	 * Return the mix list of an ingredient mixed from the given types
+	 *
+	 * @param	constituents
+	 * 			All types mixed together
+	 * @return	A read-only list of the given types ordered by id, the same object for every equal set of types
+	 * 			| result == MixSet.of(constituents).getTypes()
+	 */
+	public static List<IngredientType> getMixList(Set<IngredientType> constituents) {
+		return MixSet.of(constituents).getTypes();
+	}
+
+	/**
+	 * Return the number of canonical mixed types in use
+	 */
+	public static int getNbTypes() {
+		synchronized (types) {
+			expunge();
+			return types.size();
+		}
+	}
+
+	/**
+	 * The identity of a mix
+	 */
+	private static final class Key {
+
+		Key(MixSet constituents, State state, long[] standardTemperature, double volatility) {
+			this.constituents = constituents;
+			this.state = state;
+			this.standardTemperature = standardTemperature.clone();
+			this.volatility = volatility;
+		}
+
+		/**
+		 * The interned mix set of the constituents, compared by identity
+		 */
+		private final MixSet constituents;
+		private final State state;
+		private final long[] standardTemperature;
+		private final double volatility;
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return constituents == key.constituents && state == key.state
+					&& Arrays.equals(standardTemperature, key.standardTemperature)
+					&& Double.compare(volatility, key.volatility) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(System.identityHashCode(constituents), state, Arrays.hashCode(standardTemperature),
+					Double.hashCode(volatility));
+		}
+	}
+}
@@ -71,9 +71,21 @@ public class Oven extends TempDevice {
 	 * 			| getResult().heat(Double.max(AlchemicIngredient.differenceTemperature(getTemperature(), getResult().getTemperature()), 0) + getDelta())
 	 */
 	@Override
-	public void execute() {
+	public synchronized void execute() {
 		super.execute();
-		getResult().heat(Long.max(AlchemicIngredient.differenceTemperature(getTemperature(), getResult().getTemperature()), 0) + getDelta());
+		applyTemperature(getResult(), getTemperatureValue());
+	}
+	
+	/**
+	 * Heat the given ingredient up to the given oven temperature
+	 * 
+	 * @effect	The ingredient is heated with the difference between the oven and the ingredient if the oven is hotter,
+	 * 			plus the variance of the oven
+	 * 			| ingredient.heat(Long.max(deviceTemperature - ingredient.getTemperatureValue(), 0) + getDelta())
+	 */
+	@Override
+	protected void applyTemperature(AlchemicIngredient ingredient, long deviceTemperature) {
+		ingredient.heat(Long.max(deviceTemperature - ingredient.getTemperatureValue(), 0) + getDelta());
 	}
 	
 	
@@ -81,10 +93,10 @@ public class Oven extends TempDevice {
 	 * Give the possible variance of the oven
 	 * 
 	 * @return	A random double between minus -5% and 5% of the total temperature of the oven
-	 * 			| ( this.getTemperature()[1]- this.getTemperature()[0]) * (Math.random() - 0.5)/10
+	 * 			| this.getTemperatureValue() * (Math.random() - 0.5)/10
 	 */
 	public long getDelta() {
-		return  ( this.getTemperature()[1]- this.getTemperature()[0]) *  (long) ((Math.random() - 0.5)/10);
+		return  this.getTemperatureValue() *  (long) ((Math.random() - 0.5)/10);
 	}
 	
 }
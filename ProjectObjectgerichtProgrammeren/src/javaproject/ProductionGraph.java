@@ -0,0 +1,293 @@
+package javaproject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javaproject.Recipe.Amount;
+
+/**
+ * The dependencies between the recipes of a recipe book through their products
+ *
+ * A recipe with a product gives its result that special name. Every amount of another recipe whose ingredient type
+ * has that name consumes the product, so the consuming recipe depends on the producing one. The recipes are ordered
+ * in layers: a recipe only depends on recipes in earlier layers, so the recipes of one layer can be executed at the same time.
+ *
+ * @invar	Every recipe is in a later layer than the recipes it depends on
+ * 			| for each page in getPages(): for each dependency in getDependencies(page): getLayer(dependency) < getLayer(page)
+ *
+ * @author Jonas
+ *
+ */
+public class ProductionGraph {
+
+	/**
+	 * Build the dependency graph of the recipes currently in the given book
+	 *
+	 * @param	book
+	 * 			The recipe book
+	 * @post	The graph holds the recipes of the book as they are now
+	 * 			| new.getPages().equals(book.getBook().keySet())
+	 * @throws	IllegalArgumentException
+	 * 			Two recipes have the same product, or recipes depend on each other in a cycle
+	 */
+	public ProductionGraph(RecipeBook book) throws IllegalArgumentException {
+		Hashtable<Integer, Recipe> pages = book.getBook();
+		this.recipes = new TreeMap<Integer, Recipe>(pages);
+		for (Map.Entry<Integer, Recipe> entry : recipes.entrySet()) {
+			String product = entry.getValue().getProduct();
+			if (product != null && producers.put(product, entry.getKey()) != null) {
+				throw new IllegalArgumentException("Product " + product + " has several recipes");
+			}
+		}
+		for (Map.Entry<Integer, Recipe> entry : recipes.entrySet()) {
+			TreeSet<Integer> dependencies = new TreeSet<Integer>();
+			for (Amount amount : entry.getValue().getAmountView()) {
+				String name = amount.getIngredientType() == null ? null : amount.getIngredientType().getName();
+				Integer producer = name == null ? null : producers.get(name);
+				if (producer != null) {
+					dependencies.add(producer);
+					consumers.computeIfAbsent(name, product -> new ArrayList<Amount>()).add(amount);
+				}
+			}
+			this.dependencies.put(entry.getKey(), Collections.unmodifiableSortedSet(dependencies));
+		}
+		buildLayers();
+	}
+
+	/**
+	 * The recipes by page
+	 */
+	private final TreeMap<Integer, Recipe> recipes;
+
+	/**
+	 * The page of the recipe making each product
+	 */
+	private final HashMap<String, Integer> producers = new HashMap<String, Integer>();
+
+	/**
+	 * The amounts consuming each product
+	 */
+	private final HashMap<String, List<Amount>> consumers = new HashMap<String, List<Amount>>();
+
+	/**
+	 * The pages of the recipes each recipe consumes the product of
+	 */
+	private final HashMap<Integer, SortedSet<Integer>> dependencies = new HashMap<Integer, SortedSet<Integer>>();
+
+	/**
+	 * The pages in each layer, and the layer of each page
+	 */
+	private final ArrayList<SortedSet<Integer>> layers = new ArrayList<SortedSet<Integer>>();
+	private final HashMap<Integer, Integer> layerOf = new HashMap<Integer, Integer>();
+
+	/**
+	 * Order the recipes in layers, each recipe in the layer after its last dependency
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			Recipes depend on each other in a cycle
+	 */
+	private void buildLayers() throws IllegalArgumentException {
+		HashMap<Integer, Integer> waiting = new HashMap<Integer, Integer>();
+		HashMap<Integer, List<Integer>> dependents = new HashMap<Integer, List<Integer>>();
+		ArrayDeque<Integer> ready = new ArrayDeque<Integer>();
+		for (int page : recipes.keySet()) {
+			waiting.put(page, dependencies.get(page).size());
+			for (int dependency : dependencies.get(page)) {
+				dependents.computeIfAbsent(dependency, key -> new ArrayList<Integer>()).add(page);
+			}
+			if (dependencies.get(page).isEmpty()) {
+				ready.add(page);
+			}
+		}
+		while (!ready.isEmpty()) {
+			TreeSet<Integer> layer = new TreeSet<Integer>(ready);
+			ready.clear();
+			for (int page : layer) {
+				layerOf.put(page, layers.size());
+				for (int dependent : dependents.getOrDefault(page, Collections.<Integer>emptyList())) {
+					if (waiting.merge(dependent, -1, Integer::sum) == 0) {
+						ready.add(dependent);
+					}
+				}
+			}
+			layers.add(Collections.unmodifiableSortedSet(layer));
+		}
+		if (layerOf.size() != recipes.size()) {
+			throw new IllegalArgumentException("The recipes depend on each other in a cycle");
+		}
+	}
+
+	/**
+	 * Return the pages of the recipes in this graph
+	 */
+	public SortedSet<Integer> getPages() {
+		return Collections.unmodifiableSortedSet(recipes.navigableKeySet());
+	}
+
+	/**
+	 * Return the page of the recipe making the product with the given name, null if there is none
+	 */
+	public Integer getProducer(String product) {
+		return producers.get(product);
+	}
+
+	/**
+	 * Return the amounts consuming the product with the given name
+	 */
+	public List<Amount> getConsumers(String product) {
+		return Collections.unmodifiableList(consumers.getOrDefault(product, Collections.<Amount>emptyList()));
+	}
+
+	/**
+	 * Return the pages of the recipes whose products the recipe at the given page consumes
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			There is no recipe at the given page
+	 * 			| !getPages().contains(page)
+	 */
+	public SortedSet<Integer> getDependencies(int page) throws IllegalArgumentException {
+		SortedSet<Integer> result = dependencies.get(page);
+		if (result == null) {
+			throw new IllegalArgumentException("No recipe at page " + page);
+		}
+		return result;
+	}
+
+	/**
+	 * Return the layers of pages, each recipe in the layer after the last recipe it depends on
+	 */
+	public List<SortedSet<Integer>> getLayers() {
+		return Collections.unmodifiableList(layers);
+	}
+
+	/**
+	 * Return the layer of the recipe at the given page
+	 *
+	 * @throws	IllegalArgumentException
+	 * 			There is no recipe at the given page
+	 * 			| !getPages().contains(page)
+	 */
+	public int getLayer(int page) throws IllegalArgumentException {
+		Integer result = layerOf.get(page);
+		if (result == null) {
+			throw new IllegalArgumentException("No recipe at page " + page);
+		}
+		return result;
+	}
+
+	/**
+	 * Execute the recipes at the given pages and the recipes they depend on, with the common pool
+	 *
+	 * @return	| result == run(labs, targets, multiplier, intermediates, ForkJoinPool.commonPool())
+	 */
+	public Map<Integer, IngredientContainer> run(Collection<Laboratory> labs, Collection<Integer> targets, int multiplier,
+			IntermediateStore intermediates) throws IllegalArgumentException {
+		return run(labs, targets, multiplier, intermediates, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Execute the recipes at the given pages and the recipes they depend on, layer by layer
+	 *
+	 * @param	labs
+	 * 			The laboratories in which the recipes are executed, each reserved by one recipe at a time
+	 * @param	targets
+	 * 			The pages of the recipes whose results are wanted
+	 * @param	multiplier
+	 * 			The factor with which every recipe is multiplied
+	 * @param	intermediates
+	 * 			The store which receives the products consumed by other executed recipes
+	 * @param	executor
+	 * 			The executor running the recipes of a layer at the same time
+	 * @return	The result of every executed recipe whose product no other executed recipe consumes, by page,
+	 * 			null for a recipe that could not be executed
+	 * @effect	The other results are put in the store, and consumed from it instead of from the storage of a lab
+	 * 			| for each executed page with a consuming executed page: intermediates.put(result of page)
+	 * @throws	IllegalArgumentException
+	 * 			There are no labs, the multiplier is not strictly positive, one of the targets is not in this graph,
+	 * 			or one of the recipes cannot be compiled; nothing is executed
+	 */
+	public Map<Integer, IngredientContainer> run(Collection<Laboratory> labs, Collection<Integer> targets, int multiplier,
+			IntermediateStore intermediates, Executor executor) throws IllegalArgumentException {
+		if (labs.isEmpty() || multiplier <= 0) {
+			throw new IllegalArgumentException("A production run needs laboratories and a strictly positive multiplier");
+		}
+		TreeSet<Integer> needed = new TreeSet<Integer>();
+		ArrayDeque<Integer> todo = new ArrayDeque<Integer>(targets);
+		while (!todo.isEmpty()) {
+			int page = todo.poll();
+			if (needed.add(page)) {
+				todo.addAll(getDependencies(page));
+			}
+		}
+		HashMap<Integer, CompiledRecipe> programs = new HashMap<Integer, CompiledRecipe>();
+		TreeSet<Integer> consumed = new TreeSet<Integer>();
+		for (int page : needed) {
+			programs.put(page, recipes.get(page).compile().optimize());
+			consumed.addAll(dependencies.get(page));
+		}
+		BlockingQueue<Laboratory> freeLabs = new LinkedBlockingQueue<Laboratory>(labs);
+		TreeMap<Integer, IngredientContainer> results = new TreeMap<Integer, IngredientContainer>();
+		for (SortedSet<Integer> layer : layers) {
+			TreeMap<Integer, CompletableFuture<IngredientContainer>> futures = new TreeMap<Integer, CompletableFuture<IngredientContainer>>();
+			for (int page : layer) {
+				if (needed.contains(page)) {
+					CompiledRecipe program = programs.get(page);
+					futures.put(page, CompletableFuture.supplyAsync(() -> execute(freeLabs, program, multiplier, intermediates),
+							executor));
+				}
+			}
+			for (Map.Entry<Integer, CompletableFuture<IngredientContainer>> entry : futures.entrySet()) {
+				IngredientContainer result;
+				try {
+					result = entry.getValue().join();
+				} catch (CompletionException exc) {
+					if (exc.getCause() instanceof RuntimeException) {
+						throw (RuntimeException) exc.getCause();
+					}
+					throw exc;
+				}
+				if (!consumed.contains(entry.getKey())) {
+					results.put(entry.getKey(), result);
+				} else if (result != null) {
+					intermediates.put(result);
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Reserve a free lab, execute the given program there and release the lab
+	 */
+	private static IngredientContainer execute(BlockingQueue<Laboratory> freeLabs, CompiledRecipe program, int multiplier,
+			IntermediateStore intermediates) {
+		try {
+			Laboratory lab = freeLabs.take();
+			try {
+				synchronized (lab) {
+					return lab.execute(program, multiplier, intermediates);
+				}
+			} finally {
+				freeLabs.put(lab);
+			}
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+			throw new CompletionException(exc);
+		}
+	}
+}
@@ -1,8 +1,11 @@
 package javaproject;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
 import be.kuleuven.cs.som.annotate.Raw;
 import quantity.Quant;
 
@@ -19,8 +22,35 @@ public class Recipe {
 	 * 			| new.getAmounts().equals(amount) && new.getinstructions().equals(instruction)
 	 */
 	public Recipe(ArrayList<Amount> amount, ArrayList<String> instruction) {
+		this(amount, instruction, null);
+	}
+	
+	/**
+	 * Initialize a recipe with a given instruction list and amount list, whose result gets the given special name
+	 * 
+	 * @param	amount
+	 * 			The amount list
+	 * @param	instruction
+	 * 			The instruction list
+	 * @param	product
+	 * 			The special name of the result, null if the result keeps its mixed name
+	 * @post	The amount list is set to  a copy of the given amount and the instruction list is set to a copy of the given isntructions
+	 * 			| new.getAmounts().equals(amount) && new.getinstructions().equals(instruction)
+	 * @post	The product is set to the given product
+	 * 			| new.getProduct() == product
+	 * @throws	IllegalArgumentException
+	 * 			The product is not a valid name
+	 * 			| product != null && !IngredientType.isValidSimpleName(product)
+	 */
+	public Recipe(ArrayList<Amount> amount, ArrayList<String> instruction, String product) throws IllegalArgumentException {
+		if (product != null && !IngredientType.isValidSimpleName(product)) {
+			throw new IllegalArgumentException("Invalid product name");
+		}
+		this.product = product;
 		this.amounts = new ArrayList<Amount>(amount);
 		this.instructions = new ArrayList<String>(instruction);
+		this.amountView = Collections.unmodifiableList(this.amounts);
+		this.instructionView = Collections.unmodifiableList(this.instructions);
 	}
 	
 	public class Amount {
@@ -89,6 +119,19 @@ public class Recipe {
 	
 	
 
+	/**
+	 * The special name of the result of this recipe
+	 */
+	private final String product;
+	
+	/**
+	 * Return the special name of the result of this recipe, null if it keeps its mixed name
+	 */
+	@Basic @Immutable
+	public String getProduct() {
+		return this.product;
+	}
+	
 	/**
 	 * List containing all our instructions
 	 */
@@ -115,6 +158,45 @@ public class Recipe {
 		return new ArrayList<String>(this.instructions);
 	}
 	
+	/**
+	 * Read-only views of the amounts and instructions
+	 */
+	private final List<Amount> amountView;
+	private final List<String> instructionView;
+	
+	/**
+	 * Return a read-only view of the amounts, without copying them
+	 * 
+	 * @return	| result.equals(getAmounts())
+	 */
+	@Raw @Basic
+	protected List<Amount> getAmountView() {
+		return this.amountView;
+	}
+	
+	/**
+	 * Return a read-only view of the instructions, without copying them
+	 * 
+	 * @return	| result.equals(getInstructions())
+	 */
+	@Raw @Basic
+	protected List<String> getInstructionView() {
+		return this.instructionView;
+	}
+	
+	/**
+	 * Compile this recipe into a program
+	 * 
+	 * @return	The compiled program of this recipe
+	 * 			| result == new CompiledRecipe(this)
+	 * @throws	IllegalArgumentException
+	 * 			This recipe cannot be compiled
+	 * 			| new CompiledRecipe(this) throws IllegalArgumentException
+	 */
+	public CompiledRecipe compile() throws IllegalArgumentException {
+		return new CompiledRecipe(this);
+	}
+	
 	
 
 }
@@ -2,13 +2,39 @@ package javaproject;
 
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import be.kuleuven.cs.som.annotate.Basic;
+import javaproject.Recipe.Amount;
 
+/**
+ * A book of recipes, each on its own page
+ *
+ * @invar	Pages are strictly positive
+ * 			| for each page in getBook().keySet(): page > 0
+ * @invar	A new recipe is put on the first free page
+ *
+ * @note	The book can be read and changed by several threads at the same time
+ */
 public class RecipeBook {
-	
+
+	/**
+	 * Make an empty recipe book
+	 *
+	 * @post	The book is empty
+	 * 			| new.getBook().isEmpty()
+	 */
+	public RecipeBook() {
+	}
+
 	/**
 	 * Make a copy of the given recipe book
 	 * @param	recipeBook
@@ -16,67 +42,336 @@ public class RecipeBook {
 	 * @post	Our book is set to the given recipe book
 	 * 			| new.getBook() == recipeBook.getBook()
 	 */
-	
+
 	public RecipeBook(RecipeBook recipeBook) {
-		this.book = recipeBook.getBook();
+		Hashtable<Integer, Recipe> pages = recipeBook.getBook();
+		this.book.putAll(pages);
+		for (int page : pages.keySet()) {
+			nextPage = Integer.max(nextPage, page + 1);
+			index(page, pages.get(page));
+		}
+		for (int page = 1; page < nextPage; page++) {
+			if (!pages.containsKey(page)) {
+				freePages.add(page);
+			}
+		}
 	}
 
 	/**
-	 * A hashtable containing all our recipes with corresponding page numbers
+	 * A map containing all our recipes with corresponding page numbers
 	 */
-	
-	private Hashtable<Integer, Recipe> book = new Hashtable<Integer, Recipe>();
-	
+
+	private final ConcurrentHashMap<Integer, Recipe> book = new ConcurrentHashMap<Integer, Recipe>();
+
+	/**
+	 * The compiled programs of the recipes in our book, compiled when first asked for
+	 */
+	private final ConcurrentHashMap<Integer, CompiledRecipe> compiled = new ConcurrentHashMap<Integer, CompiledRecipe>();
+
+	/**
+	 * The free pages below the next page, smallest first; its lock also guards every change to the book and the index,
+	 * so a page is never indexed after it was removed
+	 */
+	private final PriorityQueue<Integer> freePages = new PriorityQueue<Integer>();
+
+	/**
+	 * The first page after the last page that was ever used
+	 */
+	private int nextPage = 1;
+
 	/**
 	 * Return a copy of the hashtable containing our recipes and page numbers
 	 */
 	public Hashtable<Integer, Recipe> getBook() {
 		return new Hashtable<Integer, Recipe>(book);
 	}
-	
+
+	/**
+	 * Return the number of recipes in our book
+	 *
+	 * @return	| result == getBook().size()
+	 */
+	public int getSize() {
+		return book.size();
+	}
+
 	/**
 	 * Add a recipe to our book
-	 * 
+	 *
 	 * @param	recipe
 	 * 			The recipe which is placed in our book
 	 * @post	Put the recipe at the first page where there currently is no recipe
-	 * 			| new.get( max(for each I in 1..getPageList()-1: I == getPageList().get(I-1)) + 1 ) == recipe
-	 */
-	public void addRecipe(Recipe recipe) {
-		Integer pageNumber = 1;
-		for (Integer key : getPageList()) {
-			if (key != pageNumber) {
-				book.put(pageNumber, recipe);
-				return;
+	 * 			| new.getRecipe(result) == recipe
+	 * 			| && for each I in 1..result-1: getRecipe(I) != null
+	 * @return	The page of the recipe
+	 */
+	public int addRecipe(Recipe recipe) {
+		synchronized (freePages) {
+			int page = allocatePage();
+			book.put(page, recipe);
+			index(page, recipe);
+			return page;
+		}
+	}
+
+	/**
+	 * Add all given recipes to our book, in order
+	 *
+	 * @param	recipes
+	 * 			The recipes which are placed in our book
+	 * @effect	Every recipe is added
+	 * 			| for each recipe in recipes: addRecipe(recipe)
+	 * @return	The page of each recipe, in order
+	 * 			| for each I in 0..recipes.size()-1: getRecipe(result.get(I)) == recipes.get(I)
+	 */
+	public List<Integer> addAll(Collection<Recipe> recipes) {
+		ArrayList<Integer> pages = new ArrayList<Integer>(recipes.size());
+		synchronized (freePages) {
+			for (Recipe recipe : recipes) {
+				int page = allocatePage();
+				book.put(page, recipe);
+				index(page, recipe);
+				pages.add(page);
 			}
-			pageNumber++;
 		}
-		book.put(pageNumber, recipe);
+		return pages;
 	}
-	
+
+	/**
+	 * Take the first free page
+	 *
+	 * @pre		The free pages are locked
+	 * 			| Thread.holdsLock(freePages)
+	 * @return	The smallest free page, or the next page if no page below it is free
+	 */
+	private int allocatePage() {
+		Integer page = freePages.poll();
+		if (page == null) {
+			page = nextPage++;
+		}
+		return page;
+	}
+
 	/**
 	 * Remove a recipe from the book at the given page
-	 * 
+	 *
 	 * @post	The recipe at the given page is removed
 	 * 			| getBook().contains(pageNumber) == false
 	 */
 	@Basic
 	public void remove(int pageNumber) {
-		book.remove(pageNumber);
+		synchronized (freePages) {
+			Recipe recipe = book.remove(pageNumber);
+			if (recipe != null) {
+				compiled.remove(pageNumber);
+				unindex(pageNumber, recipe);
+				freePages.add(pageNumber);
+			}
+		}
+	}
+
+	/**
+	 * Return the recipe at the given page
+	 *
+	 * @return	The recipe at the given page, null if there is none
+	 * 			| result == getBook().get(pageNumber)
+	 */
+	public Recipe getRecipe(int pageNumber) {
+		return book.get(pageNumber);
 	}
 
 	/**
-	 * Return a sorted list containing all pages with recipes
+	 * Return the compiled program of the recipe at the given page
+	 *
+	 * @param	pageNumber
+	 * 			The page of the recipe
+	 * @return	The compiled recipe, which is compiled only once as long as the page is not removed
+	 * 			| result.getRecipe() == getRecipe(pageNumber)
+	 * @throws	IllegalArgumentException
+	 * 			There is no recipe at the given page or it cannot be compiled
+	 * 			| getRecipe(pageNumber) == null || getRecipe(pageNumber).compile() throws IllegalArgumentException
+	 */
+	public CompiledRecipe getCompiledRecipe(int pageNumber) throws IllegalArgumentException {
+		Recipe recipe = book.get(pageNumber);
+		if (recipe == null) {
+			throw new IllegalArgumentException("No recipe at page " + pageNumber);
+		}
+		CompiledRecipe program = compiled.get(pageNumber);
+		if (program == null || program.getRecipe() != recipe) {
+			program = recipe.compile();
+			compiled.put(pageNumber, program);
+		}
+		return program;
+	}
+	
+	/***************************************************************
+	 * INGREDIENT INDEX
+	 ***************************************************************/
+	
+	/**
+	 * The pages of the recipes using each ingredient, by name
+	 */
+	private final ConcurrentHashMap<String, Set<Integer>> pagesByIngredient = new ConcurrentHashMap<String, Set<Integer>>();
+	
+	/**
+	 * Record that the recipe at the given page uses its ingredients
+	 * 
+	 * @note	Amounts without an ingredient type or with a nameless mixed type cannot be looked up by name and are not indexed
+	 */
+	private void index(int page, Recipe recipe) {
+		for (Amount amount : recipe.getAmountView()) {
+			String name = getIndexedName(amount);
+			if (name != null) {
+				pagesByIngredient.computeIfAbsent(name, ignored -> ConcurrentHashMap.newKeySet()).add(page);
+			}
+		}
+	}
+	
+	/**
+	 * Forget that the recipe at the given page uses its ingredients
+	 */
+	private void unindex(int page, Recipe recipe) {
+		for (Amount amount : recipe.getAmountView()) {
+			String name = getIndexedName(amount);
+			Set<Integer> pages = name == null ? null : pagesByIngredient.get(name);
+			if (pages != null) {
+				pages.remove(page);
+			}
+		}
+	}
+	
+	/**
+	 * Return the name under which the given amount is indexed, null if it is not indexed
+	 * 
+	 * @return	| if (amount.getIngredientType() == null) result == null
+	 * 			| else result == amount.getIngredientType().getName()
+	 */
+	private static String getIndexedName(Amount amount) {
+		IngredientType type = amount.getIngredientType();
+		return type == null ? null : type.getName();
+	}
+	
+	/**
+	 * Return the pages of the recipes using the ingredient with the given name
 	 * 
-	 * @return	A sorted list containing all pages with recipes
-	 * 			| for each I in 0..result.size()-1:
-	 * 			| 		Collections.list(getBook().keys()).contains(getBook().get(I))
-	 * 			|		&& (result.get(I) < result.get(I + 1) || I == result.size()-1)
+	 * @return	| for each page in getBook().keySet(): 
+	 * 			|	result.contains(page) == (for some amount in getRecipe(page).getAmounts(): 
+	 * 			|		amount.getIngredientType().getName().equals(name))
 	 */
-	private ArrayList<Integer> getPageList() {
-		ArrayList<Integer> pageList = Collections.list(getBook().keys());
-		Collections.sort(pageList);
-		return pageList;
+	public SortedSet<Integer> getPagesUsing(String name) {
+		Set<Integer> pages = pagesByIngredient.get(name);
+		if (pages == null) {
+			return new TreeSet<Integer>();
+		}
+		return new TreeSet<Integer>(pages);
 	}
 	
+	/**
+	 * Return the pages of the recipes using the given ingredient type
+	 * 
+	 * @return	| result == getPagesUsing(type.getName())
+	 */
+	public SortedSet<Integer> getPagesUsing(IngredientType type) {
+		return getPagesUsing(type.getName());
+	}
+	
+	/**
+	 * Return the pages of the recipes using all ingredients with the given names
+	 * 
+	 * @return	| for each page in getBook().keySet(): 
+	 * 			|	result.contains(page) == (for each name in names: getPagesUsing(name).contains(page))
+	 * @note	The intersection starts from the least used ingredient
+	 */
+	public SortedSet<Integer> getPagesUsingAll(Collection<String> names) {
+		ArrayList<Set<Integer>> sets = new ArrayList<Set<Integer>>(names.size());
+		for (String name : names) {
+			Set<Integer> pages = pagesByIngredient.get(name);
+			if (pages == null) {
+				return new TreeSet<Integer>();
+			}
+			sets.add(pages);
+		}
+		if (sets.isEmpty()) {
+			return new TreeSet<Integer>(book.keySet());
+		}
+		sets.sort((first, second) -> Integer.compare(first.size(), second.size()));
+		TreeSet<Integer> result = new TreeSet<Integer>(sets.get(0));
+		for (int index = 1; index < sets.size() && !result.isEmpty(); index++) {
+			result.retainAll(sets.get(index));
+		}
+		return result;
+	}
+	
+	/**
+	 * Return the pages of the recipes the given lab can execute with the given multiplier
+	 * 
+	 * @return	| for each page in getBook().keySet(): 
+	 * 			|	result.contains(page) == lab.canExecute(getCompiledRecipe(page), multiplier).isFeasible()
+	 * @note	Recipes using an ingredient the lab does not store at all are excluded through the index 
+	 * 			without being checked one by one
+	 * @throws	IllegalArgumentException
+	 * 			The multiplier is not strictly positive
+	 * 			| multiplier <= 0
+	 */
+	public SortedSet<Integer> getRunnablePages(Laboratory lab, int multiplier) throws IllegalArgumentException {
+		if (multiplier <= 0) {
+			throw new IllegalArgumentException("Multiplier must be strictly positive");
+		}
+		TreeSet<Integer> result = new TreeSet<Integer>(book.keySet());
+		for (Map.Entry<String, Set<Integer>> entry : pagesByIngredient.entrySet()) {
+			if (lab.find(entry.getKey()) == -1) {
+				result.removeAll(entry.getValue());
+			}
+		}
+		result.removeIf(page -> !isRunnable(page, lab, multiplier));
+		return result;
+	}
+	
+	/**
+	 * Return the pages of the recipes the given lab cannot execute with the given multiplier 
+	 * because it has too little of the ingredient with the given name
+	 * 
+	 * @return	| for each page in getPagesUsing(name):
+	 * 			|	result.contains(page) == (for some shortfall in lab.canExecute(getCompiledRecipe(page), multiplier).getShortfalls():
+	 * 			|		shortfall.getName().equals(name))
+	 * @throws	IllegalArgumentException
+	 * 			The multiplier is not strictly positive
+	 * 			| multiplier <= 0
+	 */
+	public SortedSet<Integer> getPagesBlockedBy(String name, Laboratory lab, int multiplier) throws IllegalArgumentException {
+		if (multiplier <= 0) {
+			throw new IllegalArgumentException("Multiplier must be strictly positive");
+		}
+		SortedSet<Integer> result = getPagesUsing(name);
+		result.removeIf(page -> !isBlockedBy(page, name, lab, multiplier));
+		return result;
+	}
+	
+	/**
+	 * Check whether the recipe at the given page exists, compiles and can be executed by the given lab
+	 */
+	private boolean isRunnable(int page, Laboratory lab, int multiplier) {
+		try {
+			return lab.canExecute(getCompiledRecipe(page), multiplier).isFeasible();
+		} catch (IllegalArgumentException exc) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Check whether the recipe at the given page exists, compiles and is short of the ingredient with the given name in the given lab
+	 */
+	private boolean isBlockedBy(int page, String name, Laboratory lab, int multiplier) {
+		try {
+			for (FeasibilityReport.Shortfall shortfall : lab.canExecute(getCompiledRecipe(page), multiplier).getShortfalls()) {
+				if (shortfall.getName().equals(name)) {
+					return true;
+				}
+			}
+		} catch (IllegalArgumentException exc) {
+			// The recipe was removed or cannot be compiled
+		}
+		return false;
+	}
+
 }
@@ -0,0 +1,407 @@
+package javaproject;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import javaproject.Recipe.Amount;
+import quantity.Quant;
+
+/**
+ * A recipe book stored in a binary page file, read page by page when a recipe is asked for
+ *
+ * The file starts with a table of all ingredient types, nameless mixed types with a name length of -1, followed by an index of the pages and the offset of their record,
+ * followed by the records themselves. Opening the file only reads the type table and the index; the records are read
+ * from a memory mapping of the file when a page is first asked for, and the most recently used recipes are remembered.
+ * Every recipe read from the same file shares the same ingredient type objects.
+ *
+ * A recipe book file is read-only; it is written as a whole from a RecipeBook. Closing it drops the mapping and the
+ * remembered recipes; the mapped memory itself is released when the mapping is garbage collected.
+ *
+ * @invar	The number of remembered recipes never exceeds the capacity
+ * 			| getNbCached() <= getCapacity()
+ *
+ * @author Jonas
+ *
+ */
+public class RecipeBookFile implements Closeable {
+
+	/**
+	 * The first four bytes of every recipe book file
+	 */
+	private static final int MAGIC = 0x52424F4B;
+
+	/**
+	 * The version of the file format
+	 */
+	private static final int VERSION = 2;
+
+	/**
+	 * Write the given recipe book to the given file, replacing its contents
+	 *
+	 * @param	book
+	 * 			The recipe book which is written
+	 * @param	file
+	 * 			The file to which the book is written
+	 * @post	Opening the file gives a book with the same recipes on the same pages
+	 * 			| for each page in book.getBook().keySet():
+	 * 			|	new RecipeBookFile(file, capacity).getCompiledRecipe(page) has the program of book.getCompiledRecipe(page)
+	 * 			|	&& new RecipeBookFile(file, capacity).getRecipe(page).getProduct() == book.getRecipe(page).getProduct()
+	 * @throws	IllegalArgumentException
+	 * 			One of the recipes cannot be compiled, nothing is written
+	 * 			| for some page in book.getBook().keySet(): book.getCompiledRecipe(page) throws IllegalArgumentException
+	 * @throws	IOException
+	 * 			The file cannot be written
+	 */
+	public static void write(RecipeBook book, Path file) throws IllegalArgumentException, IOException {
+		TreeSet<Integer> pages = new TreeSet<Integer>(book.getBook().keySet());
+		IdentityHashMap<IngredientType, Integer> typeIndex = new IdentityHashMap<IngredientType, Integer>();
+		ArrayList<IngredientType> types = new ArrayList<IngredientType>();
+		int[] offsets = new int[pages.size()];
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		DataOutputStream recordData = new DataOutputStream(records);
+		int index = 0;
+		for (int page : pages) {
+			CompiledRecipe program = book.getCompiledRecipe(page);
+			offsets[index++] = recordData.size();
+			recordData.writeInt(program.getNbAmounts());
+			for (int amount = 0; amount < program.getNbAmounts(); amount++) {
+				IngredientType type = program.getType(amount);
+				Integer typeNumber = typeIndex.get(type);
+				if (typeNumber == null) {
+					typeNumber = types.size();
+					typeIndex.put(type, typeNumber);
+					types.add(type);
+				}
+				recordData.writeInt(typeNumber);
+				recordData.writeByte(program.getUnit(amount).getType().ordinal());
+				recordData.writeByte(program.getUnit(amount).ordinal());
+				recordData.writeInt(program.getQuantity(amount));
+			}
+			recordData.writeInt(program.getLength());
+			for (int pc = 0; pc < program.getLength(); pc++) {
+				recordData.writeByte(program.getInstruction(pc).ordinal());
+			}
+			String product = program.getRecipe().getProduct();
+			if (product == null) {
+				recordData.writeInt(-1);
+			} else {
+				byte[] name = product.getBytes(StandardCharsets.UTF_8);
+				recordData.writeInt(name.length);
+				recordData.write(name);
+			}
+		}
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(types.size());
+			for (IngredientType type : types) {
+				if (type.getName() == null) {
+					out.writeInt(-1);
+				} else {
+					byte[] name = type.getName().getBytes(StandardCharsets.UTF_8);
+					out.writeInt(name.length);
+					out.write(name);
+				}
+				out.writeByte(type.getState().ordinal());
+				out.writeLong(type.getStandardTemperature()[0]);
+				out.writeLong(type.getStandardTemperature()[1]);
+				out.writeDouble(type.getVolatility());
+			}
+			out.writeInt(pages.size());
+			index = 0;
+			for (int page : pages) {
+				out.writeInt(page);
+				out.writeInt(offsets[index++]);
+			}
+			records.writeTo(out);
+		}
+	}
+
+	/**
+	 * Open the recipe book in the given file
+	 *
+	 * @param	file
+	 * 			The file written by write
+	 * @param	capacity
+	 * 			The maximum number of recipes remembered at the same time
+	 * @post	| new.getCapacity() == capacity && new.getNbCached() == 0
+	 * @post	Only the ingredient types and the page index are read
+	 * @throws	IllegalArgumentException
+	 * 			The capacity is not strictly positive
+	 * 			| capacity <= 0
+	 * @throws	IOException
+	 * 			The file cannot be read or is not a recipe book file
+	 */
+	public RecipeBookFile(Path file, int capacity) throws IllegalArgumentException, IOException {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be strictly positive");
+		}
+		this.capacity = capacity;
+		this.cache = new LinkedHashMap<Integer, CompiledRecipe>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, CompiledRecipe> eldest) {
+				return size() > RecipeBookFile.this.capacity;
+			}
+
+			private static final long serialVersionUID = 1L;
+		};
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		ByteBuffer header = buffer.duplicate();
+		try {
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException(file + " is not a recipe book file");
+			}
+			this.types = new IngredientType[header.getInt()];
+			for (int index = 0; index < types.length; index++) {
+				int length = header.getInt();
+				String name = null;
+				if (length != -1) {
+					byte[] bytes = new byte[length];
+					header.get(bytes);
+					name = new String(bytes, StandardCharsets.UTF_8);
+				}
+				State state = State.values()[header.get()];
+				long[] temperature = {header.getLong(), header.getLong()};
+				types[index] = new IngredientType(name, state, temperature, header.getDouble());
+			}
+			this.pages = new int[header.getInt()];
+			this.offsets = new int[pages.length];
+			for (int index = 0; index < pages.length; index++) {
+				pages[index] = header.getInt();
+				offsets[index] = header.getInt();
+			}
+		} catch (RuntimeException exc) {
+			throw new IOException(file + " is not a valid recipe book file", exc);
+		}
+		this.recordsStart = header.position();
+	}
+
+	/**
+	 * The memory mapping of the file, null once this file is closed
+	 */
+	private volatile MappedByteBuffer buffer;
+
+	/**
+	 * The ingredient types of the file, shared by all recipes read from it
+	 */
+	private final IngredientType[] types;
+
+	/**
+	 * The pages in the file, in increasing order, and the offset of their record from the start of the records
+	 */
+	private final int[] pages, offsets;
+
+	/**
+	 * The position in the file where the records start
+	 */
+	private final int recordsStart;
+
+	/**
+	 * The maximum number of recipes remembered at the same time
+	 */
+	private final int capacity;
+
+	/**
+	 * Return the maximum number of recipes remembered at the same time
+	 */
+	@Basic @Immutable
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * The remembered recipes by page, least recently used first
+	 */
+	private final LinkedHashMap<Integer, CompiledRecipe> cache;
+
+	/**
+	 * Return the number of remembered recipes
+	 */
+	public synchronized int getNbCached() {
+		return cache.size();
+	}
+
+	/**
+	 * The number of records read from the file
+	 */
+	private int nbDecoded = 0;
+
+	/**
+	 * Return the number of times a record was read from the file
+	 */
+	public synchronized int getNbDecoded() {
+		return nbDecoded;
+	}
+
+	/**
+	 * Return the number of recipes in the file
+	 */
+	@Immutable
+	public int getSize() {
+		return pages.length;
+	}
+
+	/**
+	 * Return the pages in the file
+	 */
+	@Immutable
+	public SortedSet<Integer> getPages() {
+		TreeSet<Integer> result = new TreeSet<Integer>();
+		for (int page : pages) {
+			result.add(page);
+		}
+		return result;
+	}
+
+	/**
+	 * Return the recipe at the given page
+	 *
+	 * @return	The recipe at the given page, null if there is none
+	 * 			| if (!getPages().contains(pageNumber)) result == null
+	 * 			| else result == getCompiledRecipe(pageNumber).getRecipe()
+	 */
+	public Recipe getRecipe(int pageNumber) {
+		if (Arrays.binarySearch(pages, pageNumber) < 0) {
+			return null;
+		}
+		return getCompiledRecipe(pageNumber).getRecipe();
+	}
+
+	/**
+	 * Return the compiled program of the recipe at the given page
+	 *
+	 * @param	pageNumber
+	 * 			The page of the recipe
+	 * @return	The compiled recipe as it was written, read from the file only if it is not remembered
+	 * @throws	IllegalArgumentException
+	 * 			There is no recipe at the given page
+	 * 			| !getPages().contains(pageNumber)
+	 * @throws	IllegalStateException
+	 * 			This file is closed
+	 * 			| isClosed()
+	 * @throws	UncheckedIOException
+	 * 			The record of the page is not a valid record
+	 */
+	public CompiledRecipe getCompiledRecipe(int pageNumber) throws IllegalArgumentException, IllegalStateException, 
+				UncheckedIOException {
+		int index = Arrays.binarySearch(pages, pageNumber);
+		if (index < 0) {
+			throw new IllegalArgumentException("No recipe at page " + pageNumber);
+		}
+		synchronized (this) {
+			if (isClosed()) {
+				throw new IllegalStateException("The recipe book file is closed");
+			}
+			CompiledRecipe program = cache.get(pageNumber);
+			if (program != null) {
+				return program;
+			}
+		}
+		CompiledRecipe program = decode(recordsStart + offsets[index]);
+		synchronized (this) {
+			nbDecoded++;
+			if (!isClosed()) {
+				cache.put(pageNumber, program);
+			}
+		}
+		return program;
+	}
+
+	/**
+	 * An empty recipe to which the decoded amounts belong
+	 */
+	private static final Recipe NO_AMOUNTS = new Recipe(new ArrayList<Amount>(), new ArrayList<String>());
+
+	/**
+	 * Read the record at the given position of the file
+	 * 
+	 * @throws	IllegalStateException
+	 * 			This file is closed
+	 * @throws	UncheckedIOException
+	 * 			The record is not a valid record
+	 */
+	private CompiledRecipe decode(int position) throws IllegalStateException, UncheckedIOException {
+		MappedByteBuffer mapping = buffer;
+		if (mapping == null) {
+			throw new IllegalStateException("The recipe book file is closed");
+		}
+		try {
+			return decode(mapping.duplicate(), position);
+		} catch (RuntimeException exc) {
+			throw new UncheckedIOException(new IOException("Not a valid recipe record at " + position, exc));
+		}
+	}
+
+	/**
+	 * Read the record at the given position of the given buffer
+	 */
+	private CompiledRecipe decode(ByteBuffer record, int position) {
+		record.position(position);
+		int nbAmounts = record.getInt();
+		ArrayList<Amount> amounts = new ArrayList<Amount>(nbAmounts);
+		for (int amount = 0; amount < nbAmounts; amount++) {
+			IngredientType type = types[record.getInt()];
+			Quant unit = State.values()[record.get()].getQuantities().get(record.get());
+			amounts.add(NO_AMOUNTS.new Amount(record.getInt(), unit, type));
+		}
+		int length = record.getInt();
+		ArrayList<String> instructions = new ArrayList<String>(length);
+		for (int pc = 0; pc < length; pc++) {
+			instructions.add(INSTRUCTIONS[record.get()].getName());
+		}
+		String product = null;
+		int productLength = record.getInt();
+		if (productLength >= 0) {
+			byte[] name = new byte[productLength];
+			record.get(name);
+			product = new String(name, StandardCharsets.UTF_8);
+		}
+		return new Recipe(amounts, instructions, product).compile();
+	}
+
+	/**
+	 * Check whether this file is closed
+	 */
+	public boolean isClosed() {
+		return buffer == null;
+	}
+
+	/**
+	 * Close this file
+	 *
+	 * @post	| new.isClosed() && new.getNbCached() == 0
+	 */
+	@Override
+	public synchronized void close() {
+		buffer = null;
+		cache.clear();
+	}
+
+	/**
+	 * The instructions by number
+	 */
+	private static final Instruction[] INSTRUCTIONS = Instruction.values();
+}
@@ -0,0 +1,211 @@
+package javaproject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A cache of recipe results, keyed on the contents of the recipe, the multiplier and the ingredients the recipe takes 
+ * from the laboratory
+ * 
+ * Equal recipes share results, also when they were compiled separately or read from a file.
+ * On a hit the ingredients are still taken out of the laboratory, but the devices are skipped and a copy of the
+ * remembered result is returned. The random variance of the devices is therefore not drawn again on a hit.
+ * The least recently used result is forgotten first.
+ * 
+ * @invar	The number of remembered results never exceeds the capacity
+ * 			| getSize() <= getCapacity()
+ * 
+ * @author Jonas
+ *
+ */
+public class RecipeCache {
+	
+	/**
+	 * Initialize an empty cache remembering at most the given number of results
+	 * 
+	 * @param	capacity
+	 * 			The maximum number of remembered results
+	 * @post	| new.getCapacity() == capacity && new.getSize() == 0
+	 * @throws	IllegalArgumentException
+	 * 			The capacity is not strictly positive
+	 * 			| capacity <= 0
+	 */
+	public RecipeCache(int capacity) throws IllegalArgumentException {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be strictly positive");
+		}
+		this.capacity = capacity;
+		this.results = new LinkedHashMap<List<Object>, AlchemicIngredient>(16, 0.75f, true) {
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<List<Object>, AlchemicIngredient> eldest) {
+				if (size() > RecipeCache.this.capacity) {
+					nbEvictions++;
+					return true;
+				}
+				return false;
+			}
+			
+			private static final long serialVersionUID = 1L;
+		};
+	}
+	
+	/**
+	 * The maximum number of remembered results
+	 */
+	private final int capacity;
+	
+	/**
+	 * Return the maximum number of remembered results
+	 */
+	@Basic @Immutable
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	/**
+	 * The remembered results by fingerprint, least recently used first
+	 */
+	private final LinkedHashMap<List<Object>, AlchemicIngredient> results;
+	
+	/**
+	 * Return the number of remembered results
+	 */
+	public synchronized int getSize() {
+		return results.size();
+	}
+	
+	/**
+	 * Forget all remembered results
+	 * 
+	 * @post	| new.getSize() == 0
+	 */
+	public synchronized void clear() {
+		results.clear();
+	}
+	
+	/**
+	 * Execute the given compiled recipe in the given lab, reusing a remembered result if the inputs are the same
+	 * 
+	 * @param	lab
+	 * 			The lab in which the recipe is executed
+	 * @param	program
+	 * 			The compiled recipe
+	 * @param	multiplier
+	 * 			The factor with which the recipe is multiplied
+	 * @return	If the lab cannot execute the recipe, null and nothing changes
+	 * 			| if (!lab.canExecute(program, multiplier).isFeasible()) result == null
+	 * @return	Else, if a result is remembered for the fingerprint of the inputs, a copy of it after taking exactly the 
+	 * 			multiplied amounts the add instructions of the program would take out of the lab
+	 * 			| else if (remembered(fingerprint(lab, program, multiplier))) 
+	 * 			|	for each I in 0..program.getLength()-1 with program.getInstruction(I) == ADD:
+	 * 			|		lab.getAll(names, units, quantities, program.getOperand(I), program.getCount(I), multiplier)
+	 * 			|	&& result.getContents() is a copy of the remembered result
+	 * @return	Else the result of the lab, which is remembered if it is not null
+	 * 			| else result == lab.execute(program, multiplier)
+	 * @throws	IllegalArgumentException
+	 * 			The multiplier is not strictly positive
+	 * 			| multiplier <= 0
+	 */
+	public IngredientContainer execute(Laboratory lab, CompiledRecipe program, int multiplier) throws IllegalArgumentException {
+		if (!lab.canExecute(program, multiplier).isFeasible()) {
+			return null;
+		}
+		List<Object> fingerprint = fingerprint(lab, program, multiplier);
+		AlchemicIngredient remembered;
+		synchronized (this) {
+			remembered = results.get(fingerprint);
+			if (remembered != null) {
+				nbHits++;
+			} else {
+				nbMisses++;
+			}
+		}
+		if (remembered != null) {
+			for (int pc = 0; pc < program.getLength(); pc++) {
+				if (program.getInstruction(pc) == Instruction.ADD) {
+					for (List<IngredientContainer> pieces : lab.getAll(program.getNames(), program.getUnits(), 
+							program.getQuantities(), program.getOperand(pc), program.getCount(pc), multiplier)) {
+						for (IngredientContainer piece : pieces) {
+							piece.getContents().terminate();
+						}
+					}
+				}
+			}
+			return Device.stuffInsideBatchContainer(new AlchemicIngredient(remembered));
+		}
+		IngredientContainer result = lab.execute(program, multiplier);
+		if (result != null) {
+			synchronized (this) {
+				results.put(fingerprint, new AlchemicIngredient(result.getContents()));
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Return the fingerprint of executing the given program in the given lab: the instructions and their operands,
+	 * the product, the multiplier and, for every amount, its name, unit and quantity and the type, mix list, special name, 
+	 * state, temperature and characteristic volatility of the stored ingredient it is taken from
+	 */
+	private static List<Object> fingerprint(Laboratory lab, CompiledRecipe program, int multiplier) {
+		ArrayList<Object> fingerprint = new ArrayList<Object>(3 + 3 * program.getLength() + 10 * program.getNbAmounts());
+		fingerprint.add(program.getRecipe().getProduct());
+		fingerprint.add(multiplier);
+		fingerprint.add(program.getLength());
+		for (int pc = 0; pc < program.getLength(); pc++) {
+			fingerprint.add(program.getInstruction(pc));
+			fingerprint.add(program.getOperand(pc));
+			fingerprint.add(program.getCount(pc));
+		}
+		for (int amount = 0; amount < program.getNbAmounts(); amount++) {
+			fingerprint.add(program.getName(amount));
+			fingerprint.add(program.getUnit(amount));
+			fingerprint.add(program.getQuantity(amount));
+			AlchemicIngredient stored = lab.getStoredIngredient(program.getName(amount));
+			fingerprint.add(stored.getType());
+			fingerprint.add(stored.getMixSet());
+			fingerprint.add(stored.getSpecialName());
+			fingerprint.add(stored.getState());
+			fingerprint.add(stored.getColdness());
+			fingerprint.add(stored.getHotness());
+			fingerprint.add(stored.getCharVolatility());
+		}
+		return fingerprint;
+	}
+	
+	/***************************************************************
+	 * METRICS
+	 ***************************************************************/
+	
+	/**
+	 * The number of hits, misses and forgotten results
+	 */
+	private int nbHits = 0, nbMisses = 0, nbEvictions = 0;
+	
+	/**
+	 * Return the number of executions that reused a remembered result
+	 */
+	public synchronized int getNbHits() {
+		return nbHits;
+	}
+	
+	/**
+	 * Return the number of feasible executions that ran the devices
+	 */
+	public synchronized int getNbMisses() {
+		return nbMisses;
+	}
+	
+	/**
+	 * Return the number of results forgotten to make room
+	 */
+	public synchronized int getNbEvictions() {
+		return nbEvictions;
+	}
+}
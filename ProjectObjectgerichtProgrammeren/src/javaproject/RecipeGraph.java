@@ -0,0 +1,315 @@
+package javaproject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * The dependencies between the steps of a compiled recipe
+ *
+ * Every added amount is a source, followed by the heat and cool instructions applied to it while it is on top of the stack.
+ * Every mix joins everything on the stack at that moment, and is followed by the heat and cool instructions applied to its result.
+ * The recipe ends with a final mix of whatever is left on the stack. Chains that do not depend on each other can be executed
+ * at the same time, each on its own oven or cooling box, and meet in the kettle.
+ *
+ * @invar	The graph ends with a final mix
+ * 			| getNbMixes() >= 1
+ *
+ * @author Jonas
+ *
+ */
+public class RecipeGraph {
+
+	/**
+	 * Build the dependency graph of the given compiled recipe
+	 *
+	 * @param	program
+	 * 			The compiled recipe
+	 * @post	The program of this graph is the given program
+	 * 			| new.getProgram() == program
+	 * @throws	IllegalArgumentException
+	 * 			The recipe has no instructions
+	 * 			| program.getLength() == 0
+	 */
+	public RecipeGraph(CompiledRecipe program) throws IllegalArgumentException {
+		if (program.getLength() == 0) {
+			throw new IllegalArgumentException("An empty recipe has nothing to mix");
+		}
+		this.program = program;
+		ArrayList<Node> stack = new ArrayList<Node>();
+		for (int pc = 0; pc < program.getLength(); pc++) {
+			switch (program.getInstruction(pc)) {
+			case ADD:
+				for (int amount = program.getOperand(pc); amount < program.getOperand(pc) + program.getCount(pc); amount++) {
+					stack.add(new Node(amount, null));
+					nbSources++;
+				}
+				break;
+			case HEAT:
+				stack.get(stack.size() - 1).degrees.add(program.getOperand(pc));
+				break;
+			case COOL:
+				stack.get(stack.size() - 1).degrees.add(-program.getOperand(pc));
+				break;
+			case MIX:
+				Node mix = new Node(-1, reversed(stack));
+				stack.clear();
+				stack.add(mix);
+				nbMixes++;
+				break;
+			}
+		}
+		this.root = new Node(-1, reversed(stack));
+		nbMixes++;
+	}
+
+	/**
+	 * Return a copy of the given stack, top first, the order in which the stack machine adds it to the kettle
+	 */
+	private static List<Node> reversed(List<Node> stack) {
+		ArrayList<Node> result = new ArrayList<Node>(stack);
+		Collections.reverse(result);
+		return result;
+	}
+
+	/**
+	 * A step of the recipe: an added amount or a mix, with the temperature changes applied to its result
+	 */
+	private static class Node {
+
+		Node(int amount, List<Node> inputs) {
+			this.amount = amount;
+			this.inputs = inputs;
+		}
+
+		/**
+		 * The index of the added amount, -1 for a mix
+		 */
+		final int amount;
+
+		/**
+		 * The steps mixed by this step, null for an added amount
+		 */
+		final List<Node> inputs;
+
+		/**
+		 * The temperature changes applied in order, strictly positive to heat and strictly negative to cool
+		 */
+		final ArrayList<Integer> degrees = new ArrayList<Integer>();
+	}
+
+	/**
+	 * The compiled recipe
+	 */
+	private final CompiledRecipe program;
+
+	/**
+	 * Return the compiled recipe of this graph
+	 */
+	@Basic @Immutable
+	public CompiledRecipe getProgram() {
+		return program;
+	}
+
+	/**
+	 * The final mix
+	 */
+	private final Node root;
+
+	/**
+	 * The number of added amounts and mixes, including the final mix
+	 */
+	private int nbSources = 0, nbMixes = 0;
+
+	/**
+	 * Return the number of added amounts, each of which starts an independent chain
+	 */
+	@Basic @Immutable
+	public int getNbSources() {
+		return nbSources;
+	}
+
+	/**
+	 * Return the number of mixes, including the final mix
+	 */
+	@Basic @Immutable
+	public int getNbMixes() {
+		return nbMixes;
+	}
+
+	/**
+	 * Execute this graph in the given lab with its own devices
+	 *
+	 * @return	| result == execute(lab, multiplier, lab's oven if any, lab's cooling box if any, ForkJoinPool.commonPool())
+	 */
+	public IngredientContainer execute(Laboratory lab, int multiplier) throws IllegalArgumentException {
+		ArrayList<Oven> ovens = new ArrayList<Oven>();
+		ArrayList<CoolingBox> fridges = new ArrayList<CoolingBox>();
+		if (lab.hasValidOven()) {
+			ovens.add(lab.getOven());
+		}
+		if (lab.hasValidFridge()) {
+			fridges.add(lab.getFridge());
+		}
+		return execute(lab, multiplier, ovens, fridges, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Execute this graph, taking the ingredients from the given lab and running independent chains at the same time
+	 *
+	 * @param	lab
+	 * 			The lab from which the ingredients are taken and whose kettle mixes them
+	 * @param	multiplier
+	 * 			The factor with which every amount is multiplied
+	 * @param	ovens
+	 * 			The ovens which may be used, possibly of other labs
+	 * @param	fridges
+	 * 			The cooling boxes which may be used, possibly of other labs
+	 * @param	executor
+	 * 			The executor running the steps
+	 * @return	The container holding the final mix, as lab.execute(getProgram(), multiplier) would produce it
+	 * @return	If the lab cannot supply the ingredients, has no kettle, or no oven or cooling box is given while one is needed,
+	 * 			nothing is taken out of the lab and the result is null
+	 * 			| if (!lab.canExecute(getProgram(), multiplier).getShortfalls().isEmpty() || !lab.hasValidKettle()
+	 * 			|		|| getProgram() heats && ovens.isEmpty() || getProgram() cools && fridges.isEmpty())
+	 * 			|	result == null
+	 * @throws	IllegalArgumentException
+	 * 			The multiplier is not strictly positive
+	 * 			| multiplier <= 0
+	 * @note	The given devices and the kettle of the lab are used while this method runs and should not be used by anyone else,
+	 * 			withdrawals synchronize on the lab and mixes on the kettle
+	 */
+	public IngredientContainer execute(Laboratory lab, int multiplier, Collection<Oven> ovens, Collection<CoolingBox> fridges,
+			Executor executor) throws IllegalArgumentException {
+		FeasibilityReport report = lab.canExecute(program, multiplier);
+		if (!report.getShortfalls().isEmpty() || !lab.hasValidKettle() 
+				|| needs(Instruction.HEAT) && ovens.isEmpty() || needs(Instruction.COOL) && fridges.isEmpty()) {
+			return null;
+		}
+		Run run = new Run(lab, multiplier, new LinkedBlockingQueue<Oven>(ovens), new LinkedBlockingQueue<CoolingBox>(fridges),
+				executor);
+		try {
+			return run.evaluate(root).join();
+		} catch (CompletionException exc) {
+			if (exc.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) exc.getCause();
+			}
+			throw exc;
+		}
+	}
+
+	/**
+	 * Check whether the program contains the given instruction
+	 */
+	private boolean needs(Instruction instruction) {
+		for (int pc = 0; pc < program.getLength(); pc++) {
+			if (program.getInstruction(pc) == instruction) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * One execution of the graph
+	 */
+	private class Run {
+
+		Run(Laboratory lab, int multiplier, BlockingQueue<Oven> ovens, BlockingQueue<CoolingBox> fridges, Executor executor) {
+			this.lab = lab;
+			this.multiplier = multiplier;
+			this.ovens = ovens;
+			this.fridges = fridges;
+			this.executor = executor;
+		}
+
+		private final Laboratory lab;
+		private final int multiplier;
+		private final BlockingQueue<Oven> ovens;
+		private final BlockingQueue<CoolingBox> fridges;
+		private final Executor executor;
+
+		/**
+		 * Return the future result of the given step, started as soon as its inputs are done
+		 */
+		CompletableFuture<IngredientContainer> evaluate(Node node) {
+			if (node.inputs == null) {
+				return CompletableFuture.supplyAsync(() -> applyDegrees(node, withdraw(node.amount)), executor);
+			}
+			ArrayList<CompletableFuture<IngredientContainer>> inputs = new ArrayList<CompletableFuture<IngredientContainer>>();
+			for (Node input : node.inputs) {
+				inputs.add(evaluate(input));
+			}
+			return CompletableFuture.allOf(inputs.toArray(new CompletableFuture<?>[inputs.size()])).thenApplyAsync(ignored -> {
+				ArrayList<IngredientContainer> containers = new ArrayList<IngredientContainer>(inputs.size());
+				for (CompletableFuture<IngredientContainer> input : inputs) {
+					containers.add(input.join());
+				}
+				return applyDegrees(node, mix(containers, node == root ? program.getRecipe().getProduct() : null));
+			}, executor);
+		}
+
+		/**
+		 * Take the multiplied amount out of the lab as one container
+		 */
+		private IngredientContainer withdraw(int amount) {
+			List<IngredientContainer> pieces;
+			synchronized (lab) {
+				pieces = lab.getSplit(program.getName(amount), program.getUnit(amount), program.getQuantity(amount), multiplier);
+			}
+			if (pieces.size() == 1) {
+				return pieces.get(0);
+			}
+			return mix(pieces, null);
+		}
+
+		/**
+		 * Mix the given containers in the kettle of the lab and give the result the given special name, if any
+		 */
+		private IngredientContainer mix(List<IngredientContainer> containers, String specialName) {
+			Kettle kettle = lab.returnKettle();
+			synchronized (kettle) {
+				return ExecutiveRecipe.mixIn(kettle, containers, specialName);
+			}
+		}
+
+		/**
+		 * Apply the temperature changes of the given step, each on the first free oven or cooling box
+		 */
+		private IngredientContainer applyDegrees(Node node, IngredientContainer container) {
+			try {
+				for (int degrees : node.degrees) {
+					if (degrees > 0) {
+						Oven oven = ovens.take();
+						try {
+							container = ExecutiveRecipe.heatIn(oven, container, degrees);
+						} finally {
+							ovens.put(oven);
+						}
+					} else {
+						CoolingBox fridge = fridges.take();
+						try {
+							container = ExecutiveRecipe.coolIn(fridge, container, -degrees);
+						} finally {
+							fridges.put(fridge);
+						}
+					}
+				}
+				return container;
+			} catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+				throw new CompletionException(exc);
+			}
+		}
+	}
+}
@@ -0,0 +1,240 @@
+package javaproject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import javaproject.Recipe.Amount;
+import javaproject.exception.RecipeFormatException;
+import quantity.Quant;
+
+/**
+ * A reader of recipes written in a line-oriented text format
+ *
+ * Every line holds one declaration, empty lines and lines starting with # are skipped:
+ * <pre>
+ * type Liquid 0 20 0.0 Water
+ * type Solid 0 10 0.1 Garlic
+ * recipe
+ * amount 1 VIAL Water
+ * amount 2 SPOON Garlic
+ * add
+ * heat
+ * add
+ * end
+ * </pre>
+ * A type line gives the state, the standard temperature as coldness and hotness, the volatility and the name.
+ * An amount line gives the quantity, the unit of the state of the type and the name of a type declared before.
+ * Every other line inside a recipe is an instruction. Names are the rest of the line and may contain spaces.
+ *
+ * The recipes are read one at a time, so a file of any size can be loaded into a recipe book.
+ * Every amount of the same type refers to the same ingredient type object.
+ *
+ * @author Jonas
+ *
+ */
+public class RecipeReader {
+
+	/**
+	 * Initialize a reader of the given text without known ingredient types
+	 *
+	 * @effect	| this(in, Collections.emptyList())
+	 */
+	public RecipeReader(Reader in) {
+		this(in, Collections.<IngredientType>emptyList());
+	}
+
+	/**
+	 * Initialize a reader of the given text
+	 *
+	 * @param	in
+	 * 			The text which is read
+	 * @param	types
+	 * 			The ingredient types which recipes may use without declaring them
+	 * @post	| for each type in types: new.getTypes().get(type.getName()) == type
+	 * @post	No line has been read
+	 * 			| new.getLineNumber() == 0
+	 */
+	public RecipeReader(Reader in, Collection<IngredientType> types) {
+		this.in = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+		for (IngredientType type : types) {
+			this.types.put(type.getName(), type);
+		}
+	}
+
+	/**
+	 * The text which is read
+	 */
+	private final BufferedReader in;
+
+	/**
+	 * The known ingredient types by name
+	 */
+	private final HashMap<String, IngredientType> types = new HashMap<String, IngredientType>();
+
+	/**
+	 * Return the known ingredient types by name
+	 */
+	public Map<String, IngredientType> getTypes() {
+		return Collections.unmodifiableMap(types);
+	}
+
+	/**
+	 * The number of the last line read
+	 */
+	private int lineNumber = 0;
+
+	/**
+	 * Return the number of the last line read, starting from 1
+	 */
+	@Basic
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * An empty recipe to which the read amounts belong
+	 */
+	private static final Recipe NO_AMOUNTS = new Recipe(new ArrayList<Amount>(), new ArrayList<String>());
+
+	/**
+	 * Read the next recipe
+	 *
+	 * @return	The next recipe in the text, with the type lines before it added to the known types,
+	 * 			null if there is no recipe left
+	 * @throws	RecipeFormatException
+	 * 			A line cannot be read, an amount refers to an unknown type or unit, an instruction is unknown,
+	 * 			a type is declared twice or the text ends inside a recipe
+	 * @throws	IOException
+	 * 			The text cannot be read
+	 */
+	public Recipe next() throws RecipeFormatException, IOException {
+		ArrayList<Amount> amounts = null;
+		ArrayList<String> instructions = null;
+		String line;
+		while ((line = in.readLine()) != null) {
+			lineNumber++;
+			String trimmed = line.trim();
+			if (trimmed.isEmpty() || trimmed.charAt(0) == '#') {
+				continue;
+			}
+			int space = trimmed.indexOf(' ');
+			String keyword = space == -1 ? trimmed : trimmed.substring(0, space);
+			String rest = space == -1 ? "" : trimmed.substring(space + 1).trim();
+			if (amounts == null) {
+				if (keyword.equals("type")) {
+					readType(line, rest);
+				} else if (keyword.equals("recipe") && rest.isEmpty()) {
+					amounts = new ArrayList<Amount>();
+					instructions = new ArrayList<String>();
+				} else {
+					throw new RecipeFormatException(lineNumber, line, "Expected a type or a recipe");
+				}
+			} else if (keyword.equals("amount")) {
+				amounts.add(readAmount(line, rest));
+			} else if (keyword.equals("end") && rest.isEmpty()) {
+				return new Recipe(amounts, instructions);
+			} else {
+				try {
+					instructions.add(Instruction.parse(trimmed).getName());
+				} catch (IllegalArgumentException exc) {
+					throw new RecipeFormatException(lineNumber, line, "Unknown instruction " + trimmed);
+				}
+			}
+		}
+		if (amounts != null) {
+			throw new RecipeFormatException(lineNumber, "", "The last recipe has no end");
+		}
+		return null;
+	}
+
+	/**
+	 * Read a type declaration
+	 */
+	private void readType(String line, String rest) throws RecipeFormatException {
+		String[] fields = rest.split("\\s+", 5);
+		if (fields.length < 5) {
+			throw new RecipeFormatException(lineNumber, line, "A type needs a state, a temperature, a volatility and a name");
+		}
+		if (types.containsKey(fields[4])) {
+			throw new RecipeFormatException(lineNumber, line, "Type " + fields[4] + " is already known");
+		}
+		try {
+			State state = State.valueOf(fields[0]);
+			long[] temperature = {Long.parseLong(fields[1]), Long.parseLong(fields[2])};
+			double volatility = Double.parseDouble(fields[3]);
+			types.put(fields[4], new IngredientType(fields[4], state, temperature, volatility));
+		} catch (IllegalArgumentException exc) {
+			throw new RecipeFormatException(lineNumber, line, "Invalid type: " + exc.getMessage());
+		}
+	}
+
+	/**
+	 * Read an amount
+	 */
+	private Amount readAmount(String line, String rest) throws RecipeFormatException {
+		String[] fields = rest.split("\\s+", 3);
+		if (fields.length < 3) {
+			throw new RecipeFormatException(lineNumber, line, "An amount needs a quantity, a unit and a type");
+		}
+		IngredientType type = types.get(fields[2]);
+		if (type == null) {
+			throw new RecipeFormatException(lineNumber, line, "Unknown type " + fields[2]);
+		}
+		int quantity;
+		try {
+			quantity = Integer.parseInt(fields[0]);
+		} catch (NumberFormatException exc) {
+			throw new RecipeFormatException(lineNumber, line, "Invalid quantity " + fields[0]);
+		}
+		if (quantity <= 0) {
+			throw new RecipeFormatException(lineNumber, line, "Quantity " + quantity + " is not strictly positive");
+		}
+		for (Quant unit : type.getState().getQuantities()) {
+			if (unit.toString().equalsIgnoreCase(fields[1])) {
+				return NO_AMOUNTS.new Amount(quantity, unit, type);
+			}
+		}
+		throw new RecipeFormatException(lineNumber, line, "Unknown unit " + fields[1] + " for " + type.getState());
+	}
+
+	/**
+	 * The number of recipes added to a recipe book at once
+	 */
+	private static final int BATCH_SIZE = 256;
+
+	/**
+	 * Read all remaining recipes into the given recipe book
+	 *
+	 * @param	book
+	 * 			The recipe book to which the recipes are added
+	 * @effect	The recipes are added in order, a batch at a time, as they are read
+	 * 			| while ((recipe = next()) != null): book.addRecipe(recipe)
+	 * @return	The page of each recipe, in order
+	 * @throws	RecipeFormatException
+	 * 			A line cannot be read, the recipes before the batch holding that line have been added
+	 * @throws	IOException
+	 * 			The text cannot be read, the recipes before the batch holding that line have been added
+	 */
+	public List<Integer> readInto(RecipeBook book) throws RecipeFormatException, IOException {
+		ArrayList<Integer> pages = new ArrayList<Integer>();
+		ArrayList<Recipe> batch = new ArrayList<Recipe>(BATCH_SIZE);
+		Recipe recipe;
+		while ((recipe = next()) != null) {
+			batch.add(recipe);
+			if (batch.size() == BATCH_SIZE) {
+				pages.addAll(book.addAll(batch));
+				batch.clear();
+			}
+		}
+		pages.addAll(book.addAll(batch));
+		return pages;
+	}
+}
@@ -0,0 +1,321 @@
+package javaproject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+
+/**
+ * A scheduler executing many recipes concurrently over a number of laboratories
+ *
+ * A job reserves a whole laboratory while it runs, and with it the kettle, oven, cooling box and transmogrifier
+ * of that laboratory, so two jobs never use the same device at the same time.
+ * The laboratories should not be used directly while jobs are running.
+ *
+ * @invar	The scheduler has at least one laboratory
+ * 			| !getLabs().isEmpty()
+ *
+ * @author Jonas
+ *
+ */
+public class RecipeScheduler {
+
+	/**
+	 * Initialize a scheduler over the given laboratories
+	 *
+	 * @param	labs
+	 * 			The laboratories in which the recipes are executed
+	 * @post	The labs of this scheduler are the given labs
+	 * 			| new.getLabs().equals(labs)
+	 * @post	There are as many worker threads as labs
+	 * @throws	IllegalArgumentException
+	 * 			There are no labs or one of them is null
+	 * 			| labs.isEmpty() || labs.contains(null)
+	 */
+	public RecipeScheduler(Collection<Laboratory> labs) throws IllegalArgumentException {
+		if (labs.isEmpty() || labs.contains(null)) {
+			throw new IllegalArgumentException("The scheduler needs laboratories");
+		}
+		this.labs = Collections.unmodifiableList(new ArrayList<Laboratory>(labs));
+		this.freeLabs = new ArrayDeque<Laboratory>(labs);
+		this.pool = new ForkJoinPool(labs.size());
+	}
+
+	/**
+	 * The laboratories in which the recipes are executed
+	 */
+	private final List<Laboratory> labs;
+
+	/**
+	 * Return the laboratories in which the recipes are executed
+	 */
+	@Basic @Immutable
+	public List<Laboratory> getLabs() {
+		return labs;
+	}
+
+	/**
+	 * The laboratories which are not reserved by a job, guarded by itself
+	 */
+	private final ArrayDeque<Laboratory> freeLabs;
+
+	/**
+	 * The work-stealing pool running the jobs, with one worker per lab
+	 */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Submit a recipe to be executed
+	 *
+	 * @param	recipe
+	 * 			The recipe which is executed
+	 * @param	multiplier
+	 * 			The factor with which the recipe is multiplied
+	 * @return	| result == submit(recipe.compile().optimize(), multiplier)
+	 * @throws	IllegalArgumentException
+	 * 			The recipe cannot be compiled or the multiplier is not strictly positive
+	 * 			| recipe.compile() throws IllegalArgumentException || multiplier <= 0
+	 */
+	public CompletableFuture<IngredientContainer> submit(Recipe recipe, int multiplier) throws IllegalArgumentException {
+		return submit(recipe.compile().optimize(), multiplier);
+	}
+
+	/**
+	 * Submit a compiled recipe to be executed
+	 *
+	 * @param	program
+	 * 			The compiled recipe which is executed
+	 * @param	multiplier
+	 * 			The factor with which the recipe is multiplied
+	 * @return	A future completed with the result of executing the recipe in the first free lab that can execute it,
+	 * 			or with null if no lab can or the execution failed.
+	 * 			| result.get() == lab.execute(program, multiplier)
+	 * 			|	for some lab in getLabs() with lab.canExecute(program, multiplier).isFeasible()
+	 * @throws	IllegalArgumentException
+	 * 			The multiplier is not strictly positive
+	 * 			| multiplier <= 0
+	 */
+	public CompletableFuture<IngredientContainer> submit(CompiledRecipe program, int multiplier) throws IllegalArgumentException {
+		if (multiplier <= 0) {
+			throw new IllegalArgumentException("Multiplier must be strictly positive");
+		}
+		nbSubmitted.incrementAndGet();
+		return CompletableFuture.supplyAsync(() -> run(program, multiplier), pool);
+	}
+
+	/**
+	 * Submit a list of recipes, each with its own multiplier
+	 *
+	 * @param	recipes
+	 * 			The recipes which are executed
+	 * @param	multipliers
+	 * 			The multiplier of each recipe
+	 * @return	The future of each recipe, in order
+	 * 			| for each I in 0..recipes.size()-1: result.get(I) == submit(recipes.get(I), multipliers.get(I))
+	 * @throws	IllegalArgumentException
+	 * 			The lists differ in size, one of the recipes cannot be compiled or one of the multipliers is not strictly positive;
+	 * 			nothing is submitted
+	 */
+	public List<CompletableFuture<IngredientContainer>> submitAll(List<Recipe> recipes, List<Integer> multipliers)
+			throws IllegalArgumentException {
+		if (recipes.size() != multipliers.size()) {
+			throw new IllegalArgumentException("Every recipe needs a multiplier");
+		}
+		ArrayList<CompiledRecipe> programs = new ArrayList<CompiledRecipe>(recipes.size());
+		for (int index = 0; index < recipes.size(); index++) {
+			if (multipliers.get(index) <= 0) {
+				throw new IllegalArgumentException("Multiplier must be strictly positive");
+			}
+			programs.add(recipes.get(index).compile().optimize());
+		}
+		ArrayList<CompletableFuture<IngredientContainer>> futures = new ArrayList<CompletableFuture<IngredientContainer>>();
+		for (int index = 0; index < programs.size(); index++) {
+			futures.add(submit(programs.get(index), multipliers.get(index)));
+		}
+		return futures;
+	}
+
+	/**
+	 * Reserve a lab that can execute the given program, execute it there and release the lab
+	 *
+	 * @note	Each lab is tried exactly once: while there are labs left that have not been tried, the job waits for one
+	 * 			of them to be free, a lab that cannot execute the program is released right away
+	 * @note	A lab that can execute the program but returns null has failed, the job counts as failed and is not retried
+	 */
+	private IngredientContainer run(CompiledRecipe program, int multiplier) {
+		Set<Laboratory> tried = Collections.newSetFromMap(new IdentityHashMap<Laboratory, Boolean>());
+		try {
+			while (tried.size() < labs.size()) {
+				Laboratory lab = reserve(tried);
+				tried.add(lab);
+				try {
+					if (lab.canExecute(program, multiplier).isFeasible()) {
+						IngredientContainer result = lab.execute(program, multiplier);
+						if (result == null) {
+							nbFailed.incrementAndGet();
+						} else {
+							nbCompleted.incrementAndGet();
+						}
+						return result;
+					}
+				} finally {
+					release(lab);
+				}
+			}
+			nbInfeasible.incrementAndGet();
+			return null;
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+			throw new CompletionException(exc);
+		}
+	}
+
+	/**
+	 * Reserve a free lab which is not in the given set, waiting until there is one
+	 *
+	 * @note	The wait is managed by the pool, which may start a spare worker meanwhile so the other jobs keep running
+	 * @throws	InterruptedException
+	 * 			The thread was interrupted while waiting
+	 */
+	private Laboratory reserve(Set<Laboratory> tried) throws InterruptedException {
+		Reservation reservation = new Reservation(tried);
+		ForkJoinPool.managedBlock(reservation);
+		return reservation.lab;
+	}
+
+	/**
+	 * A blocker waiting for a free lab which has not been tried yet
+	 */
+	private class Reservation implements ForkJoinPool.ManagedBlocker {
+
+		/**
+		 * Initialize a reservation of a lab which is not in the given set
+		 */
+		Reservation(Set<Laboratory> tried) {
+			this.tried = tried;
+		}
+
+		/**
+		 * The labs which may not be reserved
+		 */
+		private final Set<Laboratory> tried;
+
+		/**
+		 * The reserved lab, null as long as none is reserved
+		 */
+		private Laboratory lab = null;
+
+		/**
+		 * Reserve a free lab which has not been tried yet, if there is one
+		 *
+		 * @return	True if and only if a lab is reserved
+		 */
+		@Override
+		public boolean isReleasable() {
+			synchronized (freeLabs) {
+				if (lab == null) {
+					Iterator<Laboratory> free = freeLabs.iterator();
+					while (free.hasNext()) {
+						Laboratory next = free.next();
+						if (!tried.contains(next)) {
+							free.remove();
+							lab = next;
+							break;
+						}
+					}
+				}
+				return lab != null;
+			}
+		}
+
+		/**
+		 * Wait until a lab is reserved
+		 *
+		 * @throws	InterruptedException
+		 * 			The thread was interrupted while waiting
+		 */
+		@Override
+		public boolean block() throws InterruptedException {
+			synchronized (freeLabs) {
+				while (!isReleasable()) {
+					freeLabs.wait();
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Release the given lab and wake up the jobs waiting for a free lab
+	 */
+	private void release(Laboratory lab) {
+		synchronized (freeLabs) {
+			freeLabs.addLast(lab);
+			freeLabs.notifyAll();
+		}
+	}
+
+	/**
+	 * Stop accepting jobs and wait until all submitted jobs are done
+	 *
+	 * @param	timeout
+	 * 			The maximum time to wait in milliseconds
+	 * @return	True if and only if all jobs are done
+	 * @throws	InterruptedException
+	 * 			The thread was interrupted while waiting
+	 */
+	public boolean shutdown(long timeout) throws InterruptedException {
+		pool.shutdown();
+		return pool.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	/***************************************************************
+	 * METRICS
+	 ***************************************************************/
+
+	/**
+	 * The number of submitted jobs, jobs that ran, jobs no lab could execute and jobs that failed in a lab
+	 */
+	private final AtomicInteger nbSubmitted = new AtomicInteger(), nbCompleted = new AtomicInteger(),
+			nbInfeasible = new AtomicInteger(), nbFailed = new AtomicInteger();
+
+	/**
+	 * Return the number of submitted jobs
+	 */
+	public int getNbSubmitted() {
+		return nbSubmitted.get();
+	}
+
+	/**
+	 * Return the number of jobs that were executed in a lab and produced a result
+	 */
+	public int getNbCompleted() {
+		return nbCompleted.get();
+	}
+
+	/**
+	 * Return the number of jobs no lab could execute
+	 */
+	public int getNbInfeasible() {
+		return nbInfeasible.get();
+	}
+
+	/**
+	 * Return the number of jobs that a lab could execute, but whose execution failed
+	 */
+	public int getNbFailed() {
+		return nbFailed.get();
+	}
+}
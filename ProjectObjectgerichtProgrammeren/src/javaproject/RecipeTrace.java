@@ -0,0 +1,415 @@
+package javaproject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import be.kuleuven.cs.som.annotate.Basic;
+import be.kuleuven.cs.som.annotate.Immutable;
+import quantity.Quant;
+
+/**
+ * A trace of the instructions executed by a laboratory, kept in a ring buffer of fixed capacity
+ *
+ * Every executed instruction gives one record with the time it took, the device it used, the amount it took from storage,
+ * the container holding its result and the exception that stopped the recipe, if any. The final mix of a recipe is recorded
+ * with the length of the program as index. When the buffer is full the oldest record is overwritten.
+ * The buffer is allocated once, recording an instruction does not create any objects.
+ *
+ * @invar	The number of buffered records never exceeds the capacity
+ * 			| getSize() <= getCapacity()
+ *
+ * @author Jonas
+ *
+ */
+public class RecipeTrace {
+
+	/**
+	 * Initialize an empty trace keeping the given number of records
+	 *
+	 * @param	capacity
+	 * 			The maximum number of buffered records
+	 * @post	| new.getCapacity() == capacity && new.getSize() == 0
+	 * @throws	IllegalArgumentException
+	 * 			The capacity is not strictly positive
+	 * 			| capacity <= 0
+	 */
+	public RecipeTrace(int capacity) throws IllegalArgumentException {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be strictly positive");
+		}
+		this.runs = new long[capacity];
+		this.programs = new CompiledRecipe[capacity];
+		this.pcs = new int[capacity];
+		this.instructions = new Instruction[capacity];
+		this.starts = new long[capacity];
+		this.durations = new long[capacity];
+		this.devices = new Device[capacity];
+		this.withdrawn = new long[capacity];
+		this.containers = new Quant[capacity];
+		this.failures = new RuntimeException[capacity];
+	}
+
+	/**
+	 * The fields of the buffered records, by slot
+	 */
+	private final long[] runs;
+	private final CompiledRecipe[] programs;
+	private final int[] pcs;
+	private final Instruction[] instructions;
+	private final long[] starts, durations;
+	private final Device[] devices;
+	private final long[] withdrawn;
+	private final Quant[] containers;
+	private final RuntimeException[] failures;
+
+	/**
+	 * The number of records ever made
+	 */
+	private long nbRecorded = 0;
+
+	/**
+	 * The number of runs ever started
+	 */
+	private long nbRuns = 0;
+
+	/**
+	 * Return the maximum number of buffered records
+	 */
+	@Basic @Immutable
+	public int getCapacity() {
+		return runs.length;
+	}
+
+	/**
+	 * Return the number of buffered records
+	 *
+	 * @return	| result == min(getNbRecorded(), getCapacity())
+	 */
+	public synchronized int getSize() {
+		return (int) Math.min(nbRecorded, runs.length);
+	}
+
+	/**
+	 * Return the number of records ever made, including the overwritten ones
+	 */
+	public synchronized long getNbRecorded() {
+		return nbRecorded;
+	}
+
+	/**
+	 * Start a new execution of a recipe
+	 *
+	 * @return	A number identifying the execution, different from all numbers returned before
+	 */
+	synchronized long startRun() {
+		return ++nbRuns;
+	}
+
+	/**
+	 * Record an executed instruction
+	 *
+	 * @param	run
+	 * 			The execution to which the instruction belongs
+	 * @param	program
+	 * 			The executed program
+	 * @param	pc
+	 * 			The index of the instruction, the length of the program for the final mix
+	 * @param	instruction
+	 * 			The instruction
+	 * @param	start
+	 * 			The value of System.nanoTime() when the instruction started
+	 * @param	end
+	 * 			The value of System.nanoTime() when the instruction ended
+	 * @param	device
+	 * 			The device used, null if none
+	 * @param	withdrawn
+	 * 			The amount taken from storage in the lowest units
+	 * @param	container
+	 * 			The capacity of the container on top of the stack afterwards, null if the stack is empty
+	 * @param	failure
+	 * 			The exception that stopped the recipe, null if the instruction succeeded
+	 * @post	The record is the newest record, the oldest record is overwritten if the buffer was full
+	 */
+	synchronized void record(long run, CompiledRecipe program, int pc, Instruction instruction, long start, long end,
+			Device device, long withdrawn, Quant container, RuntimeException failure) {
+		int slot = (int) (nbRecorded++ % runs.length);
+		this.runs[slot] = run;
+		this.programs[slot] = program;
+		this.pcs[slot] = pc;
+		this.instructions[slot] = instruction;
+		this.starts[slot] = start;
+		this.durations[slot] = end - start;
+		this.devices[slot] = device;
+		this.withdrawn[slot] = withdrawn;
+		this.containers[slot] = container;
+		this.failures[slot] = failure;
+	}
+
+	/**
+	 * Forget all buffered records
+	 *
+	 * @post	| new.getSize() == 0
+	 */
+	public synchronized void clear() {
+		nbRecorded = 0;
+		Arrays.fill(programs, null);
+		Arrays.fill(devices, null);
+		Arrays.fill(failures, null);
+	}
+
+	/**
+	 * An executed instruction
+	 */
+	public static final class Record {
+
+		private Record(RecipeTrace trace, int slot) {
+			this.run = trace.runs[slot];
+			this.program = trace.programs[slot];
+			this.pc = trace.pcs[slot];
+			this.instruction = trace.instructions[slot];
+			this.start = trace.starts[slot];
+			this.duration = trace.durations[slot];
+			this.device = trace.devices[slot];
+			this.withdrawn = trace.withdrawn[slot];
+			this.container = trace.containers[slot];
+			this.failure = trace.failures[slot];
+		}
+
+		private final long run;
+		private final CompiledRecipe program;
+		private final int pc;
+		private final Instruction instruction;
+		private final long start, duration;
+		private final Device device;
+		private final long withdrawn;
+		private final Quant container;
+		private final RuntimeException failure;
+
+		/**
+		 * Return the number of the execution to which the instruction belongs
+		 */
+		@Basic @Immutable
+		public long getRun() {
+			return run;
+		}
+
+		/**
+		 * Return the executed program
+		 */
+		@Basic @Immutable
+		public CompiledRecipe getProgram() {
+			return program;
+		}
+
+		/**
+		 * Return the index of the instruction, the length of the program for the final mix
+		 */
+		@Basic @Immutable
+		public int getPc() {
+			return pc;
+		}
+
+		/**
+		 * Return the instruction
+		 */
+		@Basic @Immutable
+		public Instruction getInstruction() {
+			return instruction;
+		}
+
+		/**
+		 * Return the value of System.nanoTime() when the instruction started
+		 */
+		@Basic @Immutable
+		public long getStart() {
+			return start;
+		}
+
+		/**
+		 * Return the time the instruction took in nanoseconds
+		 */
+		@Basic @Immutable
+		public long getDuration() {
+			return duration;
+		}
+
+		/**
+		 * Return the device used, null if none
+		 */
+		@Basic @Immutable
+		public Device getDevice() {
+			return device;
+		}
+
+		/**
+		 * Return the amount taken from storage in the lowest units
+		 */
+		@Basic @Immutable
+		public long getWithdrawn() {
+			return withdrawn;
+		}
+
+		/**
+		 * Return the capacity of the container on top of the stack afterwards, null if the stack was empty
+		 */
+		@Basic @Immutable
+		public Quant getContainer() {
+			return container;
+		}
+
+		/**
+		 * Return the exception that stopped the recipe, null if the instruction succeeded
+		 */
+		@Basic @Immutable
+		public RuntimeException getFailure() {
+			return failure;
+		}
+
+		@Override
+		public String toString() {
+			return "#" + run + " " + pc + " " + instruction.getName() + " " + duration + "ns"
+					+ (device == null ? "" : " " + device.getClass().getSimpleName())
+					+ (withdrawn == 0 ? "" : " -" + withdrawn)
+					+ (container == null ? "" : " [" + container + "]")
+					+ (failure == null ? "" : " " + failure.getClass().getSimpleName());
+		}
+	}
+
+	/**
+	 * Return the buffered records, oldest first
+	 */
+	public synchronized List<Record> getRecords() {
+		int size = getSize();
+		ArrayList<Record> result = new ArrayList<Record>(size);
+		for (long index = nbRecorded - size; index < nbRecorded; index++) {
+			result.add(new Record(this, (int) (index % runs.length)));
+		}
+		return result;
+	}
+
+	/**
+	 * Write the buffered records to the given output, one line per record, oldest first
+	 *
+	 * @param	out
+	 * 			The output to which the records are written
+	 * @throws	IOException
+	 * 			The output cannot be written
+	 */
+	public void dump(Appendable out) throws IOException {
+		for (Record record : getRecords()) {
+			out.append(record.toString()).append('\n');
+		}
+	}
+
+	/**
+	 * The records of one program added up per instruction
+	 */
+	public static final class Profile {
+
+		private Profile(CompiledRecipe program) {
+			this.program = program;
+			this.counts = new int[program.getLength() + 1];
+			this.times = new long[program.getLength() + 1];
+		}
+
+		private final CompiledRecipe program;
+		private final int[] counts;
+		private final long[] times;
+		private final HashSet<Long> runs = new HashSet<Long>();
+		private int nbFailures = 0;
+
+		private void add(Record record) {
+			counts[record.getPc()]++;
+			times[record.getPc()] += record.getDuration();
+			runs.add(record.getRun());
+			if (record.getFailure() != null) {
+				nbFailures++;
+			}
+		}
+
+		/**
+		 * Return the program of this profile
+		 */
+		@Basic @Immutable
+		public CompiledRecipe getProgram() {
+			return program;
+		}
+
+		/**
+		 * Return the number of executions with at least one buffered record
+		 */
+		@Immutable
+		public int getNbRuns() {
+			return runs.size();
+		}
+
+		/**
+		 * Return the number of instructions that stopped an execution
+		 */
+		@Basic @Immutable
+		public int getNbFailures() {
+			return nbFailures;
+		}
+
+		/**
+		 * Return the number of records of the instruction at the given index, the length of the program for the final mix
+		 */
+		@Immutable
+		public int getCount(int pc) {
+			return counts[pc];
+		}
+
+		/**
+		 * Return the total time in nanoseconds of the instruction at the given index
+		 */
+		@Immutable
+		public long getTime(int pc) {
+			return times[pc];
+		}
+
+		/**
+		 * Return the total time in nanoseconds of all instructions
+		 */
+		@Immutable
+		public long getTotalTime() {
+			long total = 0;
+			for (long time : times) {
+				total += time;
+			}
+			return total;
+		}
+
+		/**
+		 * Return the index of the instruction which took the most time in total
+		 */
+		@Immutable
+		public int getSlowest() {
+			int slowest = 0;
+			for (int pc = 1; pc < times.length; pc++) {
+				if (times[pc] > times[slowest]) {
+					slowest = pc;
+				}
+			}
+			return slowest;
+		}
+	}
+
+	/**
+	 * Return the profile of every program with buffered records
+	 *
+	 * @return	A profile per program, in the order in which the programs first appear in the records
+	 * 			| for each record in getRecords(): result.get(record.getProgram()).getCount(record.getPc()) > 0
+	 */
+	public Map<CompiledRecipe, Profile> getProfiles() {
+		LinkedHashMap<CompiledRecipe, Profile> result = new LinkedHashMap<CompiledRecipe, Profile>();
+		for (Record record : getRecords()) {
+			result.computeIfAbsent(record.getProgram(), Profile::new).add(record);
+		}
+		return result;
+	}
+}
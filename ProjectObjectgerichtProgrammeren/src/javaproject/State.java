@@ -1,6 +1,7 @@
 package javaproject;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import quantity.*;
@@ -17,14 +18,123 @@ public enum State {
 	 * @return	A List containing the conversion factors depending on the state
 	 * 			| if (this == liquid): (result == Arrays.asList(LQuant.values()))
 	 * 			| if (this == solid): (result ==  Arrays.asList(SQuant.values()))
+	 * @note	The list is shared and cannot be modified
 	 */
 	
 	public List<Quant> getQuantities() {
 		if (this == Liquid) {
-			return Arrays.asList(LQuant.values());
+			return Tables.LIQUID_QUANTITIES;
 		} else {
-			return Arrays.asList(SQuant.values());
+			return Tables.SOLID_QUANTITIES;
 		}
 				
 	}
+	
+	/**
+	 * Return the capacity of each quantity of this state expressed in its lowest unit
+	 * 
+	 * @return	The products of the conversion factors
+	 * 			| result[index] == result[index - 1] * getQuantities().get(index).getCVal()
+	 * @note	The array is shared and must not be modified
+	 */
+	private int[] getCapacities() {
+		if (this == Liquid) {
+			return Tables.LIQUID_CAPACITIES;
+		} else {
+			return Tables.SOLID_CAPACITIES;
+		}
+	}
+	
+	/**
+	 * Convert the given unit to the lowest unit of this state
+	 * 
+	 * @param	unit
+	 * 			The unit to be converted
+	 * @return	The amount of the lowest unit that makes up one unit
+	 * 			| result == product(for I in 0..getQuantities().indexOf(unit): getQuantities().get(I).getCVal())
+	 * @throws	IllegalArgumentException
+	 * 			The unit does not belong to this state
+	 * 			| unit.getType() != this
+	 */
+	public int convertToLowestUnit(Quant unit) throws IllegalArgumentException {
+		if (unit.getType() != this) {
+			throw new IllegalArgumentException("The unit does not exist for this state");
+		}
+		return getCapacities()[unit.ordinal()];
+	}
+	
+	/**
+	 * Return the capacity of the quantity at the given index in the lowest unit
+	 * 
+	 * @param	index
+	 * 			The index of the quantity
+	 * @return	result == convertToLowestUnit(getQuantities().get(index))
+	 */
+	public int getCapacityAt(int index) {
+		return getCapacities()[index];
+	}
+	
+	/**
+	 * Return the smallest container unit that can hold the given amount
+	 * 
+	 * @param	amount
+	 * 			An amount in the lowest unit of this state
+	 * @return	The smallest unit, apart from the lowest unit and the storeroom, whose capacity is at least the given amount,
+	 * 			or the largest container unit if no such unit exists
+	 * 			| if (for some unit in getQuantities().subList(1, getQuantities().size() - 1): convertToLowestUnit(unit) >= amount)
+	 * 			|		result == the first such unit
+	 * 			| else
+	 * 			|		result == getLargestContainer()
+	 */
+	public Quant getSmallestContainer(int amount) {
+		int[] capacities = getCapacities();
+		int low = 1;
+		int high = capacities.length - 2;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (capacities[middle] < amount) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return getQuantities().get(low);
+	}
+	
+	/**
+	 * Return the largest unit that can be used as a container
+	 * 
+	 * @return	The second largest unit of this state
+	 * 			| result == getQuantities().get(getQuantities().size() - 2)
+	 */
+	public Quant getLargestContainer() {
+		return getQuantities().get(getQuantities().size() - 2);
+	}
+	
+	/**
+	 * Precomputed conversion tables, built once when first used
+	 */
+	private static class Tables {
+		
+		private static final List<Quant> LIQUID_QUANTITIES = Collections.unmodifiableList(Arrays.<Quant>asList(LQuant.values()));
+		
+		private static final List<Quant> SOLID_QUANTITIES = Collections.unmodifiableList(Arrays.<Quant>asList(SQuant.values()));
+		
+		private static final int[] LIQUID_CAPACITIES = capacities(LIQUID_QUANTITIES);
+		
+		private static final int[] SOLID_CAPACITIES = capacities(SOLID_QUANTITIES);
+		
+		/**
+		 * Return the running products of the conversion factors of the given quantities
+		 */
+		private static int[] capacities(List<Quant> quantities) {
+			int[] result = new int[quantities.size()];
+			int product = 1;
+			for (int index = 0; index < result.length; index++) {
+				product *= quantities.get(index).getCVal();
+				result[index] = product;
+			}
+			return result;
+		}
+	}
 }
@@ -1,6 +1,7 @@
 package javaproject;
 
-
+import java.util.ArrayList;
+import java.util.List;
 
 import be.kuleuven.cs.som.annotate.Basic;
 import be.kuleuven.cs.som.annotate.Model;
@@ -32,11 +33,85 @@ public abstract class TempDevice extends Device {
 	 * 			| super.execute()
 	 */
 	@Override
-	public void execute() throws EmptyResultException {
+	public synchronized void execute() throws EmptyResultException {
 		super.execute();
 		setResult(pop());
 		
 	}
+	
+	/**
+	 * Bring the contents of all given containers to the given temperature in one call
+	 * 
+	 * @param	containers
+	 * 			The containers whose contents are heated or cooled
+	 * @param	temperature
+	 * 			The temperature to which this device is set
+	 * @effect	The temperature of this device is changed once to the given temperature
+	 * 			| changeTemperature(temperature)
+	 * @effect	The temperature of the contents of each container is changed as if it were executed on its own
+	 * 			| for each container in containers:
+	 * 			|	applyTemperature(container.getContents(), temperature[1] - temperature[0])
+	 * @post	All given containers are empty
+	 * 			| for each container in containers: container.getContents() == null
+	 * @return	The resulting containers, in the order of the given containers
+	 * 			| for each I in 0..containers.size() - 1:
+	 * 			|	result.get(I) == Device.stuffInsideBatchContainer(old containers.get(I).getContents())
+	 * @throws	EmptyContainerException
+	 * 			One of the containers is empty, nothing is changed
+	 * 			| for some container in containers: container.getContents() == null
+	 * @throws	IllegalArgumentException
+	 * 			One of the ingredients is terminated or this device does not sit in a valid lab, nothing is changed
+	 * 			| !isInCorrectLab() || for some container in containers: container.getContents().isTerminated()
+	 * @note	The device's own input stack and result are not used
+	 */
+	public synchronized ArrayList<IngredientContainer> executeAll(List<IngredientContainer> containers, long[] temperature) 
+			throws EmptyContainerException, IllegalArgumentException {
+		for (IngredientContainer container : containers) {
+			checkAddable(container);
+		}
+		changeTemperature(temperature);
+		return applyToAll(containers);
+	}
+	
+	/**
+	 * Bring the contents of all given containers to the given temperature, given as hotness minus coldness, in one call
+	 * 
+	 * @effect	| executeAll(containers, AlchemicIngredient.temperatureToArray(temperature))
+	 */
+	public synchronized ArrayList<IngredientContainer> executeAll(List<IngredientContainer> containers, long temperature) 
+			throws EmptyContainerException, IllegalArgumentException {
+		for (IngredientContainer container : containers) {
+			checkAddable(container);
+		}
+		changeTemperature(temperature);
+		return applyToAll(containers);
+	}
+	
+	/**
+	 * Empty the given checked containers and bring their contents to the temperature of this device
+	 */
+	private ArrayList<IngredientContainer> applyToAll(List<IngredientContainer> containers) {
+		long deviceTemperature = getTemperatureValue();
+		ArrayList<IngredientContainer> results = new ArrayList<IngredientContainer>(containers.size());
+		for (IngredientContainer container : containers) {
+			AlchemicIngredient ingredient = container.getContents();
+			container.empty();
+			applyTemperature(ingredient, deviceTemperature);
+			results.add(stuffInsideBatchContainer(ingredient));
+		}
+		return results;
+	}
+	
+	/**
+	 * Heat or cool the given ingredient according to the given device temperature
+	 * 
+	 * @param	ingredient
+	 * 			The ingredient whose temperature is changed
+	 * @param	deviceTemperature
+	 * 			The temperature of this device as hotness minus coldness
+	 */
+	@Model
+	protected abstract void applyTemperature(AlchemicIngredient ingredient, long deviceTemperature);
 
 	/**
 	 * Check whether a given number of ingredients is valid for this temperature device
@@ -52,12 +127,32 @@ public abstract class TempDevice extends Device {
 	 * The temperature of thiss temperature device
 	 */
 	
-	private long[] temperature = {0, 0};
+	private long temperature = 0;
+	
+	/**
+	 * The temperature of this temperature device as an array of coldness and hotness, made when first asked for
+	 */
+	private long[] temperatureArray = null;
 	
 	/**
 	 * Return the temperature of this temperature device
+	 * 
+	 * @return	| result == AlchemicIngredient.temperatureToArray(getTemperatureValue())
 	 */
 	public long[] getTemperature() {
+		long[] result = this.temperatureArray;
+		if (result == null) {
+			result = AlchemicIngredient.temperatureToArray(temperature);
+			this.temperatureArray = result;
+		}
+		return result;
+	}
+	
+	/**
+	 * Return the temperature of this temperature device as hotness minus coldness
+	 */
+	@Basic
+	public long getTemperatureValue() {
 		return this.temperature;
 	}
 	
@@ -65,13 +160,16 @@ public abstract class TempDevice extends Device {
 	 * Set the temperature to the given temperature
 	 * 
 	 * @param	temperature
-	 * 			The temperature which we want our temperature device to have
+	 * 			The temperature which we want our temperature device to have, as hotness minus coldness
 	 * @post	The new temperature is equal to the given temperature
-	 * 			| new.getTemperature()	== temperature
+	 * 			| new.getTemperatureValue() == temperature
 	 */
-	@Basic @Model
-	private void setTemperature(long[] temperature) {
-		this.temperature = temperature;
+	@Model
+	private void setTemperature(long temperature) {
+		if (temperature != this.temperature) {
+			this.temperature = temperature;
+			this.temperatureArray = null;
+		}
 	}
 	
 	/**
@@ -87,6 +185,20 @@ public abstract class TempDevice extends Device {
 	 */
 	
 	public void changeTemperature(long[] temperature) {
+		if (!AlchemicIngredient.isValidTemperature(temperature)) {
+			throw new IllegalArgumentException("Not a valid temperature");
+		}
+		setTemperature(AlchemicIngredient.temperatureToLong(temperature));
+	}
+	
+	/**
+	 * Change the temperature to the given temperature, given as hotness minus coldness
+	 * 
+	 * @param	temperature
+	 * 			The temperature which we want our temperature device to have
+	 * @effect	| changeTemperature(AlchemicIngredient.temperatureToArray(temperature))
+	 */
+	public void changeTemperature(long temperature) {
 		if (!AlchemicIngredient.isValidTemperature(temperature)) {
 			throw new IllegalArgumentException("Not a valid temperature");
 		}
@@ -99,10 +211,10 @@ public abstract class TempDevice extends Device {
 	 * @param	temperature
 	 * 			The temperature with which we're increasing or decreasing the temperature
 	 * @effect	Change the temperature by the given amount
-	 * 			| changeTemperature(AlchemicIngredient.temperatureToArray(getTemperature()[1] - getTemperature()[0] + temperature))
+	 * 			| changeTemperature(AlchemicIngredient.takeSumAndBringDownToMax(getTemperatureValue(), temperature))
 	 */
 	public void deltaTemperature(int temperature) {
-		changeTemperature(AlchemicIngredient.temperatureToArray(getTemperature()[1] - getTemperature()[0] + temperature));
+		changeTemperature(AlchemicIngredient.takeSumAndBringDownToMax(getTemperatureValue(), temperature));
 	}
 
 	
@@ -1,6 +1,9 @@
 package javaproject;
 
+import java.util.ArrayList;
+import java.util.List;
 
+import javaproject.exception.EmptyContainerException;
 
 public class Transmogrifier extends Device {
 
@@ -59,29 +62,68 @@ public class Transmogrifier extends Device {
 	 * 			| super.execute()
 	 * @post	The ingredient list is now empty
 	 * 			| getIngredients().isEmpty() == true
-	 * @effect	Depending on the state, the quantity of the result is set to the proper transmogrified quantity
-	 * 			| 	if (getResult().getState() == State.Liquid)
-	 *			|		getResult().setState(State.Solid);
-	 *			|	else 
-	 *			|		getResult().setState(State.Liquid);
-	 * @post	The quantity is set to the transmogrified quantity
-	 * 			| 	if (getResult().getState() == State.Liquid)
-	 * 			|		new.getResult().getQuantity() == getResult().getTransmogrifiedQuant(State.Solid)
-	 * 			| 	else
-	 * 			|		new.getResult().getQuantity() == getResult().getTransmogrifiedQuant(State.Liquid)
+	 * @effect	The result is transmogrified to the other state
+	 * 			| toggle(getResult())
 	 */
 	@Override
-	public void execute() {
+	public synchronized void execute() {
 		super.execute();
 		setResult(pop());
-		if (getResult().getState() == State.Liquid) {
-			Integer nextQuantity = getResult().getTransmogrifiedQuant(State.Solid);
-			getResult().setState(State.Solid);
-			getResult().setQuantityTo(nextQuantity);
+		toggle(getResult());
+	}
+	
+	/**
+	 * Transmogrify the contents of all given containers in one pass
+	 * 
+	 * @param	containers
+	 * 			The containers whose contents are transmogrified
+	 * @effect	The contents of each container are transmogrified to the other state
+	 * 			| for each container in containers: toggle(container.getContents())
+	 * @post	All given containers are empty
+	 * 			| for each container in containers: container.getContents() == null
+	 * @return	The resulting containers, in the order of the given containers
+	 * 			| for each I in 0..containers.size() - 1:
+	 * 			|	result.get(I) == Device.stuffInsideBatchContainer(old containers.get(I).getContents())
+	 * @throws	EmptyContainerException
+	 * 			One of the containers is empty, nothing is changed
+	 * 			| for some container in containers: container.getContents() == null
+	 * @throws	IllegalArgumentException
+	 * 			One of the ingredients is terminated or this device does not sit in a valid lab, nothing is changed
+	 * 			| !isInCorrectLab() || for some container in containers: container.getContents().isTerminated()
+	 * @note	The device's own input stack and result are not used
+	 */
+	public synchronized ArrayList<IngredientContainer> transmogrifyAll(List<IngredientContainer> containers) 
+			throws EmptyContainerException, IllegalArgumentException {
+		for (IngredientContainer container : containers) {
+			checkAddable(container);
+		}
+		ArrayList<IngredientContainer> results = new ArrayList<IngredientContainer>(containers.size());
+		for (IngredientContainer container : containers) {
+			AlchemicIngredient ingredient = container.getContents();
+			container.empty();
+			toggle(ingredient);
+			results.add(stuffInsideBatchContainer(ingredient));
+		}
+		return results;
+	}
+	
+	/**
+	 * Transmogrify the given ingredient to the other state
+	 * 
+	 * @param	ingredient
+	 * 			The ingredient to be transmogrified
+	 * @effect	Depending on the state, the ingredient is transmogrified to the other state,
+	 * 			converting its quantity exactly and keeping what is left over as remainder
+	 * 			| 	if (ingredient.getState() == State.Liquid)
+	 *			|		ingredient.transmogrify(State.Solid)
+	 *			|	else 
+	 *			|		ingredient.transmogrify(State.Liquid)
+	 */
+	private static void toggle(AlchemicIngredient ingredient) {
+		if (ingredient.getState() == State.Liquid) {
+			ingredient.transmogrify(State.Solid);
 		} else {
-			Integer nextQuantity = getResult().getTransmogrifiedQuant(State.Liquid);
-			getResult().setState(State.Liquid);
-			getResult().setQuantityTo(nextQuantity);
+			ingredient.transmogrify(State.Liquid);
 		}
 	}
 
@@ -0,0 +1,55 @@
+package javaproject.exception;
+
+public class RecipeFormatException extends RuntimeException {
+
+	/**
+	 * Serial id
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Initialize a format exception for a line of a recipe text that cannot be read
+	 *
+	 * @param	lineNumber
+	 * 			The number of the line, starting from 1
+	 * @param	line
+	 * 			The line which cannot be read
+	 * @param	reason
+	 * 			Why the line cannot be read
+	 * @post	The line number is set to the given line number
+	 * 			| new.getLineNumber() == lineNumber
+	 * @post	The line is set to the given line
+	 * 			| new.getLine() == line
+	 * @post	The message names the line number and the reason
+	 * 			| new.getMessage().equals("Line " + lineNumber + ": " + reason)
+	 */
+	public RecipeFormatException(int lineNumber, String line, String reason) {
+		super("Line " + lineNumber + ": " + reason);
+		this.lineNumber = lineNumber;
+		this.line = line;
+	}
+
+	/**
+	 * The number of the line which cannot be read
+	 */
+	private int lineNumber = 0;
+
+	/**
+	 * The line which cannot be read
+	 */
+	private String line = "";
+
+	/**
+	 * Return the number of the line which cannot be read
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Return the line which cannot be read
+	 */
+	public String getLine() {
+		return line;
+	}
+}
@@ -0,0 +1,54 @@
+package javaproject.exception;
+
+import quantity.Quant;
+
+public class StateMismatchException extends RuntimeException {
+
+	/**
+	 * Throw a state mismatch exception if an ingredient is asked for in a unit of another state
+	 *
+	 * @param	name
+	 * 			The name of the ingredient which is asked for
+	 * @param	unit
+	 * 			The unit in which the ingredient is asked for
+	 * @post	The new name is set to the given name
+	 * 			| new.getName() = name
+	 * @post	The new unit is set to the given unit
+	 * 			| new.getUnit() = unit
+	 */
+	public StateMismatchException(String name, Quant unit) {
+		super(name + " is not in the state of " + unit);
+		this.name = name;
+		this.unit = unit;
+	}
+
+	/**
+	 * The name of the ingredient which is asked for
+	 */
+	private String name = "";
+
+	/**
+	 * The unit in which the ingredient is asked for
+	 */
+	private Quant unit = null;
+
+	/**
+	 * Return the name of the ingredient which is asked for
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Return the unit in which the ingredient is asked for
+	 */
+	public Quant getUnit() {
+		return unit;
+	}
+
+	/**
+	 * Serial Id
+	 */
+	private static final long serialVersionUID = 1L;
+
+}
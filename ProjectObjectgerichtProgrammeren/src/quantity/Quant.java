@@ -18,4 +18,12 @@ public interface Quant {
 	 * Get the state of this quantity
 	 */
 	public State getType();
+	
+	/**
+	 * Return the position of this quantity in the quantities of its state
+	 * 
+	 * @return	result == getType().getQuantities().indexOf(this)
+	 * @note	Implemented by the enumerations themselves
+	 */
+	public int ordinal();
 }
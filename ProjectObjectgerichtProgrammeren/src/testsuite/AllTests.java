@@ -5,7 +5,8 @@ import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
-@SuiteClasses({ TestAlchemicIngredient.class, TestIngredientContainer.class, DeviceTest.class, LabTest.class })
+@SuiteClasses({ TestAlchemicIngredient.class, TestIngredientContainer.class, DeviceTest.class, LabTest.class, RecipeBookTest.class,
+		RecipeReaderTest.class })
 public class AllTests {
 	
 }
@@ -1,9 +1,12 @@
 package testsuite;
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -87,6 +90,108 @@ public class DeviceTest {
 		assertTrue(Boilcat.getVolatility() > 1500 && Boilcat.getVolatility()< 2300);
 	}
 	
+	@Test
+	public void boilManyCats() {
+		ArrayList<IngredientContainer> bottles = new ArrayList<IngredientContainer>();
+		for (int i = 0; i < 5; i++) {
+			bottles.add(new IngredientContainer("Bottle", LQuant.BOTTLE, new AlchemicIngredient(OneCat)));
+		}
+		bottles.add(PurpleJug);
+		ArrayList<IngredientContainer> results = ((Oven) MyLittleCatOven).executeAll(bottles, new long[] {0, 200});
+		assertEquals(results.size(), 6);
+		for (int i = 0; i < 5; i++) {
+			assertEquals(results.get(i).getCapacity(), LQuant.BOTTLE);
+			assertEquals(results.get(i).getContents().getHotness(), 200);
+			assertEquals(bottles.get(i).getContents(), null);
+		}
+		assertEquals(results.get(5).getContents(), DD1);
+		assertEquals(((Oven) MyLittleCatOven).getTemperature()[1], 200);
+	}
+	
+	@Test(expected = EmptyContainerException.class)
+	public void boilManyCats$IllegalEmpty() {
+		ArrayList<IngredientContainer> bottles = new ArrayList<IngredientContainer>();
+		bottles.add(BlueBottle);
+		bottles.add(RedVial);
+		try {
+			((Oven) MyLittleCatOven).executeAll(bottles, new long[] {0, 200});
+		} finally {
+			assertEquals(BlueBottle.getContents(), OneCat);
+		}
+	}
+	
+	@Test
+	public void mixSharesType() {
+		Kettle kettle = (Kettle) CatKettle;
+		kettle.add(new IngredientContainer("Bottle", LQuant.BOTTLE, new AlchemicIngredient(OneCat)));
+		kettle.add(new IngredientContainer("Jug", LQuant.JUG, new AlchemicIngredient(DD1)));
+		kettle.execute();
+		AlchemicIngredient first = kettle.ingredientResult();
+		kettle.add(new IngredientContainer("Jug", LQuant.JUG, new AlchemicIngredient(DD1)));
+		kettle.add(new IngredientContainer("Bottle", LQuant.BOTTLE, new AlchemicIngredient(OneCat)));
+		kettle.execute();
+		AlchemicIngredient second = kettle.ingredientResult();
+		assertSame(first.getType(), second.getType());
+		assertNull(first.getType().getName());
+		assertEquals(first.getName(), second.getName());
+		assertSame(MixedTypeRegistry.getMixList(new HashSet<IngredientType>(Arrays.asList(Cat, Devilsdelight))),
+				MixedTypeRegistry.getMixList(new HashSet<IngredientType>(Arrays.asList(Devilsdelight, Cat))));
+	}
+	
+	@Test
+	public void mixSetUnion() {
+		MixSet cats = MixSet.of(Arrays.asList(Cat));
+		MixSet both = cats.with(Devilsdelight);
+		assertSame(both, MixSet.of(Arrays.asList(Devilsdelight, Cat)));
+		assertSame(both, both.union(cats));
+		assertSame(both, cats.union(MixSet.of(Arrays.asList(Devilsdelight))));
+		assertSame(cats, cats.union(MixSet.EMPTY));
+		assertEquals(Arrays.asList("Cat", "Devils Delight"), both.getNames());
+		assertEquals("Cat mixed with Devils Delight", both.getMixedName());
+		assertSame(both.getMixedName(), both.getMixedName());
+		Kettle kettle = (Kettle) CatKettle;
+		kettle.add(new IngredientContainer("Bottle", LQuant.BOTTLE, new AlchemicIngredient(OneCat)));
+		kettle.add(new IngredientContainer("Jug", LQuant.JUG, new AlchemicIngredient(DD1)));
+		kettle.execute();
+		AlchemicIngredient mix = kettle.ingredientResult();
+		assertSame(both, mix.getMixSet());
+		assertSame(both, new AlchemicIngredient(mix).getMixSet());
+	}
+	
+	@Test
+	public void typeIdsAreReused() throws InterruptedException {
+		IngredientType rat = new IngredientType("Rat", State.Liquid, new long[] {0, 20}, 0.5);
+		int id = rat.getId();
+		MixSet rats = MixSet.of(Arrays.asList(rat, Cat));
+		rat = null;
+		System.gc();
+		assertTrue(rats.contains(IngredientType.getType(id)));
+		rats = null;
+		for (int attempt = 0; attempt < 50 && IngredientType.getType(id) != null; attempt++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assumeTrue(IngredientType.getType(id) == null);
+		int nbIds = IngredientType.getNbIds();
+		new IngredientType("Mouse", State.Liquid, new long[] {0, 20}, 0.5);
+		assertEquals(IngredientType.getNbIds(), nbIds);
+	}
+	
+	@Test
+	public void mixedTypesAreDropped() throws InterruptedException {
+		MixSet mix = MixSet.of(Arrays.asList(Cat, Devilsdelight));
+		IngredientType type = MixedTypeRegistry.getType(mix, State.Liquid, new long[] {0, 20}, 0.123);
+		assertSame(MixedTypeRegistry.getType(mix, State.Liquid, new long[] {0, 20}, 0.123), type);
+		int nbTypes = MixedTypeRegistry.getNbTypes();
+		type = null;
+		for (int attempt = 0; attempt < 50 && MixedTypeRegistry.getNbTypes() >= nbTypes; attempt++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assumeTrue(MixedTypeRegistry.getNbTypes() < nbTypes);
+		assertNotNull(MixedTypeRegistry.getType(mix, State.Liquid, new long[] {0, 20}, 0.123));
+	}
+	
 	@Test
 	public void mixTheCat() {
 		CatKettle.add(BlueBottle);
@@ -108,10 +213,158 @@ public class DeviceTest {
 		assertEquals(MixedCat.getColdness(), 0);
 	}
 	
+	@Test
+	public void parallelMixEqualsExecute() {
+		Laboratory otherLab = new Laboratory(3);
+		Kettle sequentialKettle = new Kettle(otherLab);
+		Kettle parallelKettle = (Kettle) CatKettle;
+		ArrayList<AlchemicIngredient> ingredients = new ArrayList<AlchemicIngredient>();
+		for (int i = 0; i < 1000; i++) {
+			AlchemicIngredient ingredient = new AlchemicIngredient(i % 3 + 1, LQuant.SPOON, (i % 2 == 0) ? Cat : Devilsdelight);
+			ingredient.heat(i % 7);
+			ingredients.add(ingredient);
+			sequentialKettle.add(new IngredientContainer("Spoon", LQuant.SPOON, new AlchemicIngredient(ingredient)));
+		}
+		sequentialKettle.execute();
+		parallelKettle.parallelMix(ingredients);
+		AlchemicIngredient sequential = sequentialKettle.ingredientResult();
+		AlchemicIngredient parallel = parallelKettle.ingredientResult();
+		assertEquals(sequential.getName(), parallel.getName());
+		assertEquals(sequential.giveInLowestUnit(), parallel.giveInLowestUnit());
+		assertEquals(sequential.getHotness(), parallel.getHotness());
+		assertEquals(sequential.getColdness(), parallel.getColdness());
+		assertEquals(sequential.getCharVolatility(), parallel.getCharVolatility(), 0);
+		assertEquals(sequential.getType().getVolatility(), parallel.getType().getVolatility(), 0);
+	}
+	
+	@Test
+	public void parallelMix$TerminatedAddsNothing() {
+		Kettle kettle = (Kettle) CatKettle;
+		ArrayList<AlchemicIngredient> ingredients = new ArrayList<AlchemicIngredient>();
+		ingredients.add(new AlchemicIngredient(1, LQuant.SPOON, Cat));
+		AlchemicIngredient terminated = new AlchemicIngredient(1, LQuant.SPOON, Devilsdelight);
+		terminated.terminate();
+		ingredients.add(terminated);
+		try {
+			kettle.parallelMix(ingredients);
+			fail();
+		} catch (IllegalArgumentException exc) {
+			assertTrue(kettle.isEmpty());
+		}
+	}
+	
+	@Test
+	public void offerRejectsWhenFull() {
+		MyLittleCatOven.configureInputQueue(1, InputQueue.OverflowPolicy.REJECT);
+		assertTrue(MyLittleCatOven.offer(BlueBottle));
+		assertFalse(MyLittleCatOven.offer(PurpleJug));
+		assertEquals(PurpleJug.getContents(), DD1);
+		assertEquals(MyLittleCatOven.getInputQueue().getNbRejected(), 1);
+		assertTrue(MyLittleCatOven.feed());
+		assertFalse(MyLittleCatOven.feed());
+		assertTrue(MyLittleCatOven.offer(PurpleJug));
+		MyLittleCatOven.execute();
+		assertEquals(MyLittleCatOven.result().getContents(), OneCat);
+		assertTrue(MyLittleCatOven.feed());
+		assertEquals(MyLittleCatOven.getInputQueue().getPeakDepth(), 1);
+	}
+	
+	@Test
+	public void configureInputQueueInPlace() {
+		InputQueue queue = MyLittleCatOven.getInputQueue();
+		MyLittleCatOven.configureInputQueue(2, InputQueue.OverflowPolicy.REJECT);
+		assertSame(MyLittleCatOven.getInputQueue(), queue);
+		assertEquals(queue.getCapacity(), 2);
+		assertTrue(MyLittleCatOven.offer(BlueBottle));
+		try {
+			MyLittleCatOven.configureInputQueue(1, InputQueue.OverflowPolicy.EVICT);
+			fail();
+		} catch (IllegalStateException exc) {
+			assertEquals(queue.getPolicy(), InputQueue.OverflowPolicy.REJECT);
+			assertEquals(queue.getDepth(), 1);
+		}
+	}
+	
+	@Test
+	public void offerEvictsOldest() {
+		CatTrans.configureInputQueue(1, InputQueue.OverflowPolicy.EVICT);
+		assertTrue(CatTrans.offer(BlueBottle));
+		assertTrue(CatTrans.offer(PurpleJug));
+		assertEquals(CatTrans.getInputQueue().getNbEvicted(), 1);
+		assertEquals(CatTrans.getInputQueue().poll(), DD1);
+	}
+	
+	@Test
+	public void putBlocksUntilFed() throws InterruptedException {
+		MyLittleCatOven.configureInputQueue(1, InputQueue.OverflowPolicy.BLOCK);
+		MyLittleCatOven.put(BlueBottle);
+		Thread producer = new Thread(() -> {
+			try {
+				MyLittleCatOven.put(PurpleJug);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		producer.start();
+		while (producer.getState() != Thread.State.WAITING) {
+			Thread.sleep(1);
+		}
+		assertEquals(MyLittleCatOven.getInputQueue().getDepth(), 1);
+		assertTrue(MyLittleCatOven.feed());
+		producer.join();
+		assertEquals(MyLittleCatOven.getInputQueue().getDepth(), 1);
+		assertEquals(MyLittleCatOven.getInputQueue().getNbAccepted(), 2);
+	}
+	
+	@Test
+	public void transmogrifyRoundTrip() {
+		int drops = OneCat.giveInLowestUnit();
+		ArrayList<IngredientContainer> bottles = new ArrayList<IngredientContainer>();
+		bottles.add(BlueBottle);
+		bottles.add(new IngredientContainer("Drop Vial", LQuant.VIAL, 
+				new AlchemicIngredient(Cat, new ArrayList<Integer>(Arrays.asList(1, 0, 0, 0, 0, 0, 0)))));
+		ArrayList<IngredientContainer> solids = ((Transmogrifier) CatTrans).transmogrifyAll(bottles);
+		assertEquals(solids.get(0).getContents().getState(), State.Solid);
+		assertEquals((int) solids.get(1).getContents().giveInLowestUnit(), 0);
+		assertEquals(solids.get(1).getContents().getTransmogrificationRemainder(), 6);
+		assertTrue(solids.get(1).getContents().isOnlyRemainder());
+		assertTrue(solids.get(1).getContents().isValidIngredient());
+		ArrayList<IngredientContainer> liquids = ((Transmogrifier) CatTrans).transmogrifyAll(solids);
+		assertEquals(liquids.get(0).getContents().getState(), State.Liquid);
+		assertEquals((int) liquids.get(0).getContents().giveInLowestUnit(), drops);
+		assertEquals((int) liquids.get(1).getContents().giveInLowestUnit(), 1);
+		assertEquals(liquids.get(1).getContents().getTransmogrificationRemainder(), 0);
+	}
+	
+	@Test
+	public void transmogrificationRemainderHasOneOwner() {
+		ArrayList<IngredientContainer> bottles = new ArrayList<IngredientContainer>();
+		bottles.add(BlueBottle);
+		IngredientContainer solid = ((Transmogrifier) CatTrans).transmogrifyAll(bottles).get(0);
+		int pinches = solid.getContents().giveInLowestUnit();
+		int remainder = solid.getContents().getTransmogrificationRemainder();
+		assertEquals(remainder, 6);
+		assertEquals(new AlchemicIngredient(solid.getContents()).getTransmogrificationRemainder(), 0);
+		IntermediateStore store = new IntermediateStore();
+		store.put(solid);
+		IngredientContainer first = store.take(solid.getContents().getName(), SQuant.SPOON, 1, 1);
+		IngredientContainer second = store.take(solid.getContents().getName(), SQuant.SPOON, 1, 1);
+		assertEquals(first.getContents().getTransmogrificationRemainder(), 0);
+		assertEquals(second.getContents().getTransmogrificationRemainder(), 0);
+		IngredientContainer rest = store.take(solid.getContents().getName(), SQuant.PINCH, pinches - 12, 1);
+		assertEquals((int) rest.getContents().giveInLowestUnit(), pinches - 12);
+		assertEquals(rest.getContents().getTransmogrificationRemainder(), remainder);
+	}
+	
 	@Test
 	public void TransmogrifyThenMix() {
 		CatTrans.add(PurpleJug);
-		CatTrans.add(BlueBottle);
+		try {
+			CatTrans.add(BlueBottle);
+			fail();
+		} catch (IllegalStateException exc) {
+			assertNotNull(BlueBottle.getContents());
+		}
 		CatTrans.execute();
 		IngredientContainer result = CatTrans.result();
 		assertEquals(result.getContents().getState(), State.Solid);
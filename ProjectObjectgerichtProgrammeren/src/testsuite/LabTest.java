@@ -1,6 +1,8 @@
 package testsuite;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -165,6 +167,71 @@ public class LabTest {
 		assertTrue(smallLab.hasProperIngredients());
 	}
 	
+	@Test
+	public void scheduleGroupsByTemperature() {
+		IntakeScheduler scheduler = new IntakeScheduler(lab);
+		for (int i = 0; i < 4; i++) {
+			AlchemicIngredient hotCat = new AlchemicIngredient(1, LQuant.VIAL, Cat);
+			hotCat.heat(100);
+			scheduler.schedule(new IngredientContainer("Vial", LQuant.VIAL, hotCat));
+		}
+		AlchemicIngredient coldAl = new AlchemicIngredient(1, SQuant.BOX, Al);
+		coldAl.cool(10);
+		scheduler.schedule(new IngredientContainer("Box", SQuant.BOX, coldAl));
+		scheduler.schedule(BlueBottle);
+		scheduler.flush();
+		assertEquals(scheduler.getNbPending(), 0);
+		assertEquals(scheduler.getNbReconfigurations(), 2);
+		assertEquals(scheduler.getNbTemperatureChanges(), 5);
+		assertEquals(scheduler.getNbSavedReconfigurations(), 3);
+		assertTrue(lab.hasProperIngredients());
+		assertEquals(lab.getSize(), 2);
+		lab.get("Cat", LQuant.VIAL, 5);
+		lab.get("Aluminium Powder", SQuant.BOX, 1);
+	}
 	
+	@Test
+	public void scheduleKeepsPendingOnFailure() {
+		Laboratory bare = new Laboratory(2);
+		IntakeScheduler scheduler = new IntakeScheduler(bare);
+		AlchemicIngredient hotCat = new AlchemicIngredient(1, LQuant.VIAL, Cat);
+		hotCat.heat(100);
+		scheduler.schedule(new IngredientContainer("Vial", LQuant.VIAL, hotCat));
+		scheduler.schedule(BlueBottle);
+		try {
+			scheduler.flush();
+			fail();
+		} catch (IllegalStateException exc) {
+			assertEquals(scheduler.getNbPending(), 2);
+		}
+		new CoolingBox(bare, new long[] {0, 0});
+		new Kettle(bare);
+		scheduler.flush();
+		assertEquals(scheduler.getNbPending(), 0);
+		assertEquals(bare.getSize(), 1);
+	}
 	
+	@Test
+	public void scheduleChecksCapacityBeforePreparing() {
+		IntakeScheduler scheduler = new IntakeScheduler(smallLab);
+		AlchemicIngredient hotAl = null;
+		for (int i = 0; i < 6; i++) {
+			hotAl = new AlchemicIngredient(1, SQuant.CHEST, Al);
+			hotAl.heat(100);
+			scheduler.schedule(new IngredientContainer("Chest", SQuant.CHEST, hotAl));
+		}
+		try {
+			scheduler.flush();
+			fail();
+		} catch (StorageCapacityException exc) {
+			assertEquals(scheduler.getNbPending(), 1);
+		}
+		assertEquals(scheduler.getNbTemperatureChanges(), 5);
+		assertEquals(hotAl.getTemperatureState(), AlchemicIngredient.Temperature.HEATED);
+		assertTrue(!hotAl.isTerminated());
+		assertTrue(smallLab.hasProperIngredients());
+		for (int i = 0; i < 5; i++) {
+			smallLab.get("Aluminium Powder", SQuant.CHEST, 1);
+		}
+	}
 }
@@ -0,0 +1,393 @@
+package testsuite;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javaproject.*;
+import javaproject.Recipe.Amount;
+import quantity.LQuant;
+import quantity.SQuant;
+
+public class RecipeBookTest {
+	
+	static RecipeBook book;
+	
+	static Recipe soup, stew, grog;
+	
+	static IngredientType water, garlic, rum;
+	
+	@Before
+	public void setUp() {
+		book = new RecipeBook();
+		water = new IngredientType("Water", State.Liquid, new long[] {0, 20}, 0);
+		garlic = new IngredientType("Garlic", State.Solid, new long[] {0, 10}, 0.1);
+		rum = new IngredientType("Rum", State.Liquid, new long[] {0, 20}, 0.5);
+		Recipe empty = new Recipe(new ArrayList<Amount>(), new ArrayList<String>());
+		ArrayList<Amount> amounts = new ArrayList<Amount>();
+		amounts.add(empty.new Amount(1, LQuant.VIAL, water));
+		ArrayList<String> instructions = new ArrayList<String>();
+		instructions.add("add");
+		instructions.add("heat");
+		soup = new Recipe(amounts, instructions);
+		amounts.add(empty.new Amount(2, SQuant.SPOON, garlic));
+		instructions.add("add");
+		stew = new Recipe(amounts, instructions);
+		amounts.clear();
+		amounts.add(empty.new Amount(1, LQuant.BOTTLE, rum));
+		amounts.add(empty.new Amount(1, LQuant.SPOON, water));
+		grog = new Recipe(amounts, instructions);
+	}
+	
+	@Test
+	public void addRecipe() {
+		for (int page = 1; page <= 200; page++) {
+			assertEquals(book.addRecipe(soup), page);
+		}
+		book.remove(150);
+		book.remove(3);
+		book.remove(3);
+		assertEquals(book.getSize(), 198);
+		assertEquals(book.addRecipe(soup), 3);
+		assertEquals(book.addRecipe(soup), 150);
+		assertEquals(book.addRecipe(soup), 201);
+	}
+	
+	@Test
+	public void addAll() {
+		book.addRecipe(soup);
+		book.addRecipe(soup);
+		book.remove(1);
+		List<Integer> pages = book.addAll(Collections.nCopies(1000, soup));
+		assertEquals(pages.size(), 1000);
+		assertEquals((int) pages.get(0), 1);
+		assertEquals((int) pages.get(1), 3);
+		assertEquals((int) pages.get(999), 1001);
+		assertEquals(book.getSize(), 1001);
+	}
+	
+	@Test
+	public void copy() {
+		book.addAll(Collections.nCopies(5, soup));
+		book.remove(2);
+		RecipeBook copy = new RecipeBook(book);
+		assertEquals(copy.getSize(), 4);
+		assertEquals(copy.addRecipe(soup), 2);
+		assertEquals(copy.addRecipe(soup), 6);
+		assertEquals(book.getSize(), 4);
+	}
+	
+	@Test
+	public void compiledRecipe() {
+		int page = book.addRecipe(soup);
+		CompiledRecipe program = book.getCompiledRecipe(page);
+		assertSame(book.getCompiledRecipe(page), program);
+		book.remove(page);
+		assertEquals(book.addRecipe(soup), page);
+		assertNotSame(book.getCompiledRecipe(page), program);
+	}
+	
+	@Test
+	public void index() {
+		int soupPage = book.addRecipe(soup);
+		int stewPage = book.addRecipe(stew);
+		int grogPage = book.addRecipe(grog);
+		assertEquals(book.getPagesUsing(water), new TreeSet<Integer>(Arrays.asList(soupPage, stewPage, grogPage)));
+		assertEquals(book.getPagesUsing("Garlic"), Collections.singleton(stewPage));
+		assertEquals(book.getPagesUsingAll(Arrays.asList("Water", "Rum")), Collections.singleton(grogPage));
+		assertTrue(book.getPagesUsingAll(Arrays.asList("Garlic", "Rum")).isEmpty());
+		book.remove(stewPage);
+		assertTrue(book.getPagesUsing(garlic).isEmpty());
+		
+		Laboratory lab = new Laboratory(2);
+		new Kettle(lab);
+		new Oven(lab, new long[] {0, 20});
+		lab.add(new IngredientContainer("Vial", LQuant.VIAL, new AlchemicIngredient(1, LQuant.VIAL, water)));
+		lab.add(new IngredientContainer("Bottle", LQuant.BOTTLE, new AlchemicIngredient(1, LQuant.BOTTLE, rum)));
+		assertEquals(book.getRunnablePages(lab, 1), new TreeSet<Integer>(Arrays.asList(soupPage, grogPage)));
+		assertEquals(book.getRunnablePages(lab, 2), Collections.emptySet());
+		assertEquals(book.getPagesBlockedBy("Rum", lab, 2), Collections.singleton(grogPage));
+		assertEquals(book.getPagesBlockedBy("Water", lab, 2), new TreeSet<Integer>(Arrays.asList(soupPage)));
+	}
+	
+	@Test
+	public void index$Nameless() {
+		Recipe empty = new Recipe(new ArrayList<Amount>(), new ArrayList<String>());
+		ArrayList<Amount> amounts = new ArrayList<Amount>();
+		amounts.add(empty.new Amount(1, LQuant.VIAL, new IngredientType(null, State.Liquid, new long[] {0, 20}, 0)));
+		amounts.add(empty.new Amount(1, LQuant.VIAL, null));
+		amounts.add(empty.new Amount(1, LQuant.VIAL, water));
+		int page = book.addRecipe(new Recipe(amounts, new ArrayList<String>(Arrays.asList("add"))));
+		assertEquals(book.getPagesUsing(water), Collections.singleton(page));
+		book.remove(page);
+		assertTrue(book.getPagesUsing(water).isEmpty());
+	}
+	
+	@Test
+	public void file() throws IOException {
+		book.addRecipe(soup);
+		int stewPage = book.addRecipe(stew);
+		int grogPage = book.addRecipe(grog);
+		book.remove(1);
+		Path path = Files.createTempFile("recipes", ".book");
+		try {
+			RecipeBookFile.write(book, path);
+			RecipeBookFile file = new RecipeBookFile(path, 1);
+			assertEquals(file.getPages(), new TreeSet<Integer>(Arrays.asList(stewPage, grogPage)));
+			assertEquals(file.getNbDecoded(), 0);
+			assertNull(file.getRecipe(1));
+			CompiledRecipe program = file.getCompiledRecipe(stewPage);
+			assertSame(file.getCompiledRecipe(stewPage), program);
+			assertEquals(program.getLength(), 3);
+			assertEquals(program.getInstruction(1), Instruction.HEAT);
+			assertEquals(program.getUnit(1), SQuant.SPOON);
+			assertEquals(program.getQuantity(1), 2);
+			assertEquals(program.getName(1), "Garlic");
+			assertEquals(program.getType(1).getVolatility(), 0.1, 0);
+			assertSame(file.getCompiledRecipe(grogPage).getType(1), program.getType(0));
+			assertEquals(file.getNbDecoded(), 2);
+			assertEquals(file.getNbCached(), 1);
+			file.getRecipe(stewPage);
+			assertEquals(file.getNbDecoded(), 3);
+		} finally {
+			Files.delete(path);
+		}
+	}
+	
+	@Test
+	public void file$NamelessType() throws IOException {
+		Recipe empty = new Recipe(new ArrayList<Amount>(), new ArrayList<String>());
+		ArrayList<Amount> amounts = new ArrayList<Amount>();
+		amounts.add(empty.new Amount(1, LQuant.VIAL, new IngredientType(null, State.Liquid, new long[] {0, 20}, 0)));
+		amounts.add(empty.new Amount(1, LQuant.VIAL, water));
+		int page = book.addRecipe(new Recipe(amounts, new ArrayList<String>(Arrays.asList("add"))));
+		Path path = Files.createTempFile("recipes", ".book");
+		try {
+			RecipeBookFile.write(book, path);
+			try (RecipeBookFile file = new RecipeBookFile(path, 2)) {
+				CompiledRecipe program = file.getCompiledRecipe(page);
+				assertNull(program.getType(0).getName());
+				assertEquals(program.getName(1), "Water");
+			}
+		} finally {
+			Files.delete(path);
+		}
+	}
+	
+	@Test
+	public void file$CorruptRecord() throws IOException {
+		book.addRecipe(soup);
+		int grogPage = book.addRecipe(grog);
+		Path path = Files.createTempFile("recipes", ".book");
+		try {
+			RecipeBookFile.write(book, path);
+			byte[] bytes = Files.readAllBytes(path);
+			Files.write(path, Arrays.copyOf(bytes, bytes.length - 6));
+			RecipeBookFile file = new RecipeBookFile(path, 2);
+			try {
+				file.getCompiledRecipe(grogPage);
+				fail();
+			} catch (UncheckedIOException exc) {
+				assertTrue(exc.getCause().getCause() instanceof BufferUnderflowException);
+			} finally {
+				file.close();
+			}
+			assertTrue(file.isClosed());
+			try {
+				file.getCompiledRecipe(1);
+				fail();
+			} catch (IllegalStateException exc) {
+				assertTrue(exc.getMessage().contains("closed"));
+			}
+		} finally {
+			Files.delete(path);
+		}
+	}
+	
+	@Test
+	public void materialPlan() {
+		MaterialPlan plan = new MaterialPlan();
+		plan.addAll(Arrays.asList(soup, grog, stew, soup), Arrays.asList(1, 1, 1, 1));
+		assertEquals(plan.getNbJobs(), 4);
+		assertEquals(plan.getDemand("Water"), 3 * 40 + 8);
+		assertEquals(plan.getDemand("Garlic"), 12);
+		assertEquals(plan.getDemand(1, "Rum"), 120);
+		Laboratory lab = new Laboratory(2);
+		lab.add(new IngredientContainer("Vial", LQuant.VIAL, new AlchemicIngredient(1, LQuant.VIAL, water)));
+		lab.add(new IngredientContainer("Bottle", LQuant.BOTTLE, new AlchemicIngredient(1, LQuant.BOTTLE, rum)));
+		List<FeasibilityReport.Shortfall> shortfalls = plan.getShortfalls(lab);
+		assertEquals(shortfalls.size(), 2);
+		assertEquals(shortfalls.get(0).getName(), "Water");
+		assertEquals(shortfalls.get(0).getMissing(), 3 * 40 + 8 - 40);
+		assertEquals(shortfalls.get(1).getName(), "Garlic");
+		assertEquals(shortfalls.get(1).getAvailable(), 0);
+		Map<String, List<Integer>> blocked = plan.getBlockedJobs(lab);
+		assertEquals(blocked.get("Water"), Arrays.asList(1, 2, 3));
+		assertEquals(blocked.get("Garlic"), Arrays.asList(2));
+		assertFalse(blocked.containsKey("Rum"));
+	}
+	
+	@Test
+	public void materialPlan$Incomplete() {
+		MaterialPlan plan = new MaterialPlan();
+		Recipe empty = new Recipe(new ArrayList<Amount>(), new ArrayList<String>());
+		ArrayList<Amount> amounts = new ArrayList<Amount>();
+		amounts.add(empty.new Amount(1, SQuant.SPOON, water));
+		amounts.add(empty.new Amount(1, null, rum));
+		try {
+			plan.add(new Recipe(amounts, new ArrayList<String>()), 1);
+			fail();
+		} catch (IllegalArgumentException exc) {
+			assertEquals(plan.getNbJobs(), 0);
+		}
+		plan.add(soup, 1);
+		Laboratory lab = new Laboratory(2);
+		lab.add(new IngredientContainer("Barrel", LQuant.BARREL, new AlchemicIngredient(1, LQuant.BARREL, water)));
+		assertFalse(plan.getShortfalls(lab).stream().anyMatch(shortfall -> shortfall.getName().equals("Water")));
+	}
+	
+	@Test
+	public void productionGraph() {
+		IngredientType stock = new IngredientType("Stock", State.Liquid, new long[] {0, 20}, 0);
+		Recipe empty = new Recipe(new ArrayList<Amount>(), new ArrayList<String>());
+		ArrayList<Amount> amounts = new ArrayList<Amount>();
+		amounts.add(empty.new Amount(1, LQuant.VIAL, water));
+		ArrayList<String> instructions = new ArrayList<String>();
+		instructions.add("add");
+		int stockPage = book.addRecipe(new Recipe(amounts, instructions, "Stock"));
+		amounts.clear();
+		amounts.add(empty.new Amount(1, LQuant.VIAL, stock));
+		amounts.add(empty.new Amount(1, LQuant.BOTTLE, rum));
+		instructions.add("add");
+		int brothPage = book.addRecipe(new Recipe(amounts, instructions));
+		int soupPage = book.addRecipe(soup);
+		ProductionGraph graph = new ProductionGraph(book);
+		assertEquals((int) graph.getProducer("Stock"), stockPage);
+		assertEquals(graph.getDependencies(brothPage), Collections.singleton(stockPage));
+		assertEquals(graph.getConsumers("Stock").size(), 1);
+		assertEquals(graph.getLayers().size(), 2);
+		assertEquals(graph.getLayers().get(0), new TreeSet<Integer>(Arrays.asList(stockPage, soupPage)));
+		assertEquals(graph.getLayer(brothPage), 1);
+		
+		Laboratory lab = new Laboratory(2);
+		new Kettle(lab);
+		lab.add(new IngredientContainer("Vial", LQuant.VIAL, new AlchemicIngredient(1, LQuant.VIAL, water)));
+		lab.add(new IngredientContainer("Bottle", LQuant.BOTTLE, new AlchemicIngredient(1, LQuant.BOTTLE, rum)));
+		IntermediateStore intermediates = new IntermediateStore();
+		Map<Integer, IngredientContainer> results = graph.run(Arrays.asList(lab), Arrays.asList(brothPage), 1, intermediates);
+		assertEquals(results.keySet(), Collections.singleton(brothPage));
+		assertEquals((int) results.get(brothPage).getContents().giveInLowestUnit(), 40 + 120);
+		assertTrue(intermediates.getNames().isEmpty());
+		assertEquals(lab.find("Stock"), -1);
+		assertEquals(lab.find("Water"), -1);
+	}
+	
+	@Test
+	public void execute$IntermediateInOtherState() {
+		Recipe empty = new Recipe(new ArrayList<Amount>(), new ArrayList<String>());
+		ArrayList<Amount> amounts = new ArrayList<Amount>();
+		amounts.add(empty.new Amount(1, LQuant.VIAL, water));
+		amounts.add(empty.new Amount(1, SQuant.SPOON, garlic));
+		Recipe broth = new Recipe(amounts, new ArrayList<String>(Arrays.asList("add", "add")));
+		Laboratory other = new Laboratory(2);
+		Device transmogrifier = new Transmogrifier(other);
+		transmogrifier.add(new IngredientContainer("Box", SQuant.BOX, new AlchemicIngredient(1, SQuant.BOX, garlic)));
+		transmogrifier.execute();
+		IntermediateStore intermediates = new IntermediateStore();
+		intermediates.put(transmogrifier.result());
+		Laboratory lab = new Laboratory(2);
+		new Kettle(lab);
+		lab.add(new IngredientContainer("Vial", LQuant.VIAL, new AlchemicIngredient(1, LQuant.VIAL, water)));
+		assertNull(lab.execute(broth.compile(), 1, intermediates));
+		assertEquals((int) lab.get("Water", LQuant.VIAL, 1).getContents().giveInLowestUnit(), 40);
+		assertTrue(intermediates.contains("Garlic"));
+	}
+	
+	@Test
+	public void execute$SplitWithoutKettle() {
+		Recipe empty = new Recipe(new ArrayList<Amount>(), new ArrayList<String>());
+		ArrayList<Amount> amounts = new ArrayList<Amount>();
+		amounts.add(empty.new Amount(2, LQuant.BARREL, water));
+		Recipe flood = new Recipe(amounts, new ArrayList<String>(Arrays.asList("add")));
+		Laboratory lab = new Laboratory(5);
+		lab.add(new BatchContainer("Barrels", new AlchemicIngredient(2, LQuant.BARREL, water)));
+		assertNull(lab.execute(flood.compile(), 1));
+		assertEquals(lab.getSplit("Water", LQuant.BARREL, 2, 1).size(), 2);
+	}
+	
+	@Test
+	public void execute$IntermediatesGoBackToTheStore() {
+		IngredientType stock = new IngredientType("Stock", State.Liquid, new long[] {0, 20}, 0);
+		Recipe empty = new Recipe(new ArrayList<Amount>(), new ArrayList<String>());
+		ArrayList<Amount> amounts = new ArrayList<Amount>();
+		amounts.add(empty.new Amount(1, LQuant.VIAL, stock));
+		amounts.add(empty.new Amount(1, LQuant.BOTTLE, rum));
+		Recipe broth = new Recipe(amounts, new ArrayList<String>(Arrays.asList("add", "add")));
+		IntermediateStore intermediates = new IntermediateStore();
+		AlchemicIngredient hotStock = new AlchemicIngredient(2, LQuant.VIAL, stock);
+		hotStock.heat(30);
+		intermediates.put(new IngredientContainer("Vial", LQuant.JUG, hotStock));
+		Laboratory lab = new Laboratory(2);
+		new Kettle(lab);
+		assertNull(lab.execute(broth.compile(), 1, intermediates));
+		assertEquals(intermediates.getQuantity("Stock"), 2 * 40);
+		assertEquals(lab.find("Stock"), -1);
+		assertEquals(intermediates.take("Stock", LQuant.VIAL, 2, 1).getContents().getTemperatureValue(), 50);
+	}
+	
+	@Test
+	public void file$Products() throws IOException {
+		IngredientType stock = new IngredientType("Stock", State.Liquid, new long[] {0, 20}, 0);
+		Recipe empty = new Recipe(new ArrayList<Amount>(), new ArrayList<String>());
+		ArrayList<String> instructions = new ArrayList<String>(Arrays.asList("add"));
+		int stockPage = book.addRecipe(new Recipe(new ArrayList<Amount>(Arrays.asList(empty.new Amount(1, LQuant.VIAL, water))), 
+				instructions, "Stock"));
+		int brothPage = book.addRecipe(new Recipe(new ArrayList<Amount>(Arrays.asList(empty.new Amount(1, LQuant.VIAL, stock))), 
+				instructions));
+		Path path = Files.createTempFile("recipes", ".book");
+		try {
+			RecipeBookFile.write(book, path);
+			RecipeBookFile file = new RecipeBookFile(path, 2);
+			assertEquals(file.getRecipe(stockPage).getProduct(), "Stock");
+			assertNull(file.getRecipe(brothPage).getProduct());
+			RecipeBook read = new RecipeBook();
+			for (int page : file.getPages()) {
+				assertEquals(read.addRecipe(file.getRecipe(page)), page);
+			}
+			ProductionGraph graph = new ProductionGraph(read);
+			assertEquals((int) graph.getProducer("Stock"), stockPage);
+			assertEquals(graph.getDependencies(brothPage), Collections.singleton(stockPage));
+		} finally {
+			Files.delete(path);
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void productionGraph$Cycle() {
+		IngredientType first = new IngredientType("First", State.Liquid, new long[] {0, 20}, 0);
+		IngredientType second = new IngredientType("Second", State.Liquid, new long[] {0, 20}, 0);
+		Recipe empty = new Recipe(new ArrayList<Amount>(), new ArrayList<String>());
+		ArrayList<String> instructions = new ArrayList<String>(Arrays.asList("add"));
+		book.addRecipe(new Recipe(new ArrayList<Amount>(Arrays.asList(empty.new Amount(1, LQuant.DROP, second))), instructions, "First"));
+		book.addRecipe(new Recipe(new ArrayList<Amount>(Arrays.asList(empty.new Amount(1, LQuant.DROP, first))), instructions, "Second"));
+		new ProductionGraph(book);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void compiledRecipe$NoRecipe() {
+		book.getCompiledRecipe(1);
+	}
+}
@@ -0,0 +1,86 @@
+package testsuite;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import javaproject.*;
+import javaproject.exception.RecipeFormatException;
+import quantity.LQuant;
+import quantity.SQuant;
+
+public class RecipeReaderTest {
+
+	static final String TYPES = "type Liquid 0 20 0.0 Water\n"
+			+ "type Solid 0 10 0.1 Garlic\n"
+			+ "# a comment\n"
+			+ "\n";
+
+	static final String STEW = "recipe\n"
+			+ "amount 1 VIAL Water\n"
+			+ "amount 2 spoon Garlic\n"
+			+ "add\n"
+			+ "heat\n"
+			+ "add\n"
+			+ "end\n";
+
+	@Test
+	public void next() throws IOException {
+		RecipeReader reader = new RecipeReader(new StringReader(TYPES + STEW + STEW));
+		CompiledRecipe first = reader.next().compile();
+		assertEquals(first.getLength(), 3);
+		assertEquals(first.getInstruction(1), Instruction.HEAT);
+		assertEquals(first.getUnit(0), LQuant.VIAL);
+		assertEquals(first.getUnit(1), SQuant.SPOON);
+		assertEquals(first.getQuantity(1), 2);
+		assertEquals(first.getType(1).getVolatility(), 0.1, 0);
+		assertEquals(reader.getLineNumber(), 11);
+		CompiledRecipe second = reader.next().compile();
+		assertSame(second.getType(0), first.getType(0));
+		assertNull(reader.next());
+	}
+
+	@Test
+	public void knownTypes() throws IOException {
+		IngredientType rum = new IngredientType("Dark Rum", State.Liquid, new long[] {0, 20}, 0.5);
+		RecipeReader reader = new RecipeReader(new StringReader("recipe\namount 1 BOTTLE Dark Rum\nadd\nend\n"), Arrays.asList(rum));
+		assertSame(reader.next().compile().getType(0), rum);
+	}
+
+	@Test
+	public void readInto() throws IOException {
+		StringBuilder text = new StringBuilder(TYPES);
+		for (int index = 0; index < 10000; index++) {
+			text.append(STEW);
+		}
+		RecipeBook book = new RecipeBook();
+		List<Integer> pages = new RecipeReader(new StringReader(text.toString())).readInto(book);
+		assertEquals(pages.size(), 10000);
+		assertEquals(book.getSize(), 10000);
+		assertEquals(book.getPagesUsing("Garlic").size(), 10000);
+	}
+
+	@Test
+	public void errors() throws IOException {
+		String[] texts = {TYPES + "recipe\namount 1 BARREL Garlic\nend\n",
+				TYPES + "recipe\namount 1 VIAL Salt\nend\n",
+				TYPES + "recipe\nstir\nend\n",
+				TYPES + "type Liquid 0 20 0.0 Water\n",
+				TYPES + "recipe\n",
+				TYPES + "recipe\namount 1 VIAL Water\namount 0 SPOON Garlic\nend\n"};
+		int[] lines = {6, 6, 6, 5, 5, 7};
+		for (int index = 0; index < texts.length; index++) {
+			try {
+				new RecipeReader(new StringReader(texts[index])).next();
+				fail();
+			} catch (RecipeFormatException exc) {
+				assertEquals(exc.getLineNumber(), lines[index]);
+			}
+		}
+	}
+}
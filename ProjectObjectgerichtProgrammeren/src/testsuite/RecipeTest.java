@@ -1,12 +1,25 @@
 package testsuite;
 
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.*;
 
 import javaproject.*;
 import javaproject.Recipe.Amount;
+import javaproject.exception.ExceedsStorageException;
 import quantity.LQuant;
 import quantity.SQuant;
 
@@ -94,4 +107,241 @@ public class RecipeTest {
 	public void execute() {
 		lab.execute(recipeForDisaster, 5);
 	}
+	
+	@Test
+	public void trace() {
+		RecipeTrace trace = new RecipeTrace(64);
+		lab.setTrace(trace);
+		CompiledRecipe program = recipeForDisaster.compile().optimize();
+		assertNotNull(lab.execute(program, 1));
+		assertEquals(trace.getSize(), program.getLength() + 1);
+		RecipeTrace.Record first = trace.getRecords().get(0);
+		assertEquals(first.getInstruction(), Instruction.ADD);
+		assertEquals(first.getWithdrawn(), 3);
+		assertNull(first.getDevice());
+		assertNull(first.getFailure());
+		assertTrue(trace.getRecords().get(1).getDevice() instanceof CoolingBox);
+		RecipeTrace.Record last = trace.getRecords().get(program.getLength());
+		assertEquals(last.getPc(), program.getLength());
+		assertTrue(last.getDevice() instanceof Kettle);
+		assertNull(lab.execute(program, 1000));
+		assertTrue(trace.getRecords().get(trace.getSize() - 1).getFailure() instanceof ExceedsStorageException);
+		assertEquals(trace.getRecords().get(trace.getSize() - 1).getWithdrawn(), 0);
+		RecipeTrace.Profile profile = trace.getProfiles().get(program);
+		assertEquals(profile.getNbRuns(), 2);
+		assertEquals(profile.getNbFailures(), 1);
+		assertEquals(profile.getCount(0), 2);
+		lab.setTrace(null);
+		lab.execute(program, 1);
+		assertEquals(trace.getNbRecorded(), program.getLength() + 2);
+	}
+	
+	@Test
+	public void executiveStack() {
+		for (int index = 0; index < 20; index++) {
+			recipe.push(index % 2 == 0 ? chest1 : chest2);
+		}
+		assertEquals(recipe.getNbCurrentItems(), 20);
+		assertSame(recipe.getLastCurrentElement(), chest2);
+		assertSame(recipe.pop(), chest2);
+		assertSame(recipe.pop(), chest1);
+		recipe.nextAmount();
+		recipe.reset(recipeForDisaster);
+		assertEquals(recipe.getNbCurrentItems(), 0);
+		assertEquals(recipe.getIndexAmount(), 0);
+		assertSame(recipe.getRecipe(), recipeForDisaster);
+		assertSame(recipe.getCurrentAmount().getIngredientType(), MercurialAcid);
+	}
+	
+	@Test
+	public void compile() {
+		CompiledRecipe program = recipeForDisaster.compile();
+		assertEquals(program.getLength(), 16);
+		assertEquals(program.getInstruction(1), Instruction.COOL);
+		assertEquals(program.getOperand(12), 4);
+		assertEquals(program.getName(4), "Black Lotus");
+		assertEquals(program.getUnit(1), LQuant.VIAL);
+	}
+	
+	@Test
+	public void optimize() {
+		ArrayList<Amount> amounts = new ArrayList<Amount>();
+		amounts.add(recipeForDisaster.new Amount(3, LQuant.DROP, MercurialAcid));
+		amounts.add(recipeForDisaster.new Amount(1, LQuant.VIAL, Water));
+		ArrayList<String> instructions = new ArrayList<String>();
+		for (String instruction : new String[] {"add", "add", "heat", "cool", "heat", "heat", "cool", "heat", "mix"}) {
+			instructions.add(instruction);
+		}
+		CompiledRecipe program = new Recipe(amounts, instructions).compile().optimize();
+		assertEquals(program.getLength(), 2);
+		assertEquals(program.getInstruction(0), Instruction.ADD);
+		assertEquals(program.getOperand(0), 0);
+		assertEquals(program.getCount(0), 2);
+		assertEquals(program.getInstruction(1), Instruction.HEAT);
+		assertEquals(program.getOperand(1), 100);
+		assertEquals(recipeForDisaster.compile().optimize().getLength(), 15);
+	}
+	
+	@Test
+	public void getAll$Atomic() {
+		int before = lab.getStorageIterator().getNbElements();
+		try {
+			lab.getAll(new String[] {"Water", "Mercurial Acid"}, new LQuant[] {LQuant.VIAL, LQuant.DROP}, new int[] {1, 5}, 0, 2, 1);
+			fail();
+		} catch (ExceedsStorageException e) {
+			assertEquals(e.getAmountAsked(), 5);
+		}
+		assertEquals(lab.get("Mercurial Acid", LQuant.DROP, 4).getContents().giveInLowestUnit(), Integer.valueOf(4));
+		assertEquals(lab.getStorageIterator().getNbElements(), before - 1);
+	}
+	
+	@Test
+	public void execute$Multiplied() {
+		lab.add(new IngredientContainer("7", LQuant.BARREL, new AlchemicIngredient(1, LQuant.BARREL, Water)));
+		lab.add(new IngredientContainer("8", LQuant.BARREL, new AlchemicIngredient(1, LQuant.BARREL, Water)));
+		ArrayList<Amount> amounts = new ArrayList<Amount>();
+		amounts.add(recipeForDisaster.new Amount(1, LQuant.JUG, Water));
+		ArrayList<String> instructions = new ArrayList<String>();
+		instructions.add("add");
+		Recipe jug = new Recipe(amounts, instructions);
+		assertEquals(lab.getSplit("Water", LQuant.JUG, 1, 30).size(), 3);
+		lab.add(new IngredientContainer("9", LQuant.BARREL, new AlchemicIngredient(12, LQuant.JUG, Water)));
+		lab.add(new IngredientContainer("10", LQuant.BARREL, new AlchemicIngredient(12, LQuant.JUG, Water)));
+		lab.add(new IngredientContainer("11", LQuant.BARREL, new AlchemicIngredient(6, LQuant.JUG, Water)));
+		IngredientContainer result = lab.execute(jug, 30);
+		assertEquals((int) result.getContents().giveInLowestUnit(), 30 * H2O.convertToLowestUnit(LQuant.JUG));
+		assertTrue(IngredientContainer.isValidCapacity(result.getCapacity()));
+		assertTrue(result.canHaveAsContents(result.getContents()));
+		assertEquals(((BatchContainer) result).getNbContainers(), 3);
+		List<IngredientContainer> pieces = ((BatchContainer) result).split();
+		assertEquals(pieces.size(), 3);
+		assertNull(result.getContents());
+		for (IngredientContainer piece : pieces) {
+			assertTrue(IngredientContainer.isValidCapacity(piece.getCapacity()));
+			assertTrue(piece.canHaveAsContents(piece.getContents()));
+		}
+		assertEquals((int) pieces.get(2).getContents().giveInLowestUnit(), 6 * H2O.convertToLowestUnit(LQuant.JUG));
+		assertEquals((int) lab.get("Water", LQuant.JUG, 6).getContents().giveInLowestUnit(), 
+				6 * H2O.convertToLowestUnit(LQuant.JUG));
+	}
+	
+	@Test
+	public void scheduleAcrossLabs() throws Exception {
+		Laboratory other = new Laboratory(3);
+		new Kettle(other);
+		other.add(new IngredientContainer("10", LQuant.BARREL, new AlchemicIngredient(1, LQuant.BARREL, Water)));
+		ArrayList<Amount> amounts = new ArrayList<Amount>();
+		amounts.add(recipeForDisaster.new Amount(1, LQuant.BOTTLE, Water));
+		ArrayList<String> instructions = new ArrayList<String>();
+		instructions.add("add");
+		Recipe bottle = new Recipe(amounts, instructions);
+		RecipeScheduler scheduler = new RecipeScheduler(Arrays.asList(lab, other));
+		ArrayList<CompletableFuture<IngredientContainer>> futures = new ArrayList<CompletableFuture<IngredientContainer>>();
+		for (int i = 0; i < 40; i++) {
+			futures.add(scheduler.submit(bottle, 2));
+		}
+		int produced = 0;
+		for (CompletableFuture<IngredientContainer> future : futures) {
+			if (future.get() != null) {
+				assertEquals((int) future.get().getContents().giveInLowestUnit(), 2 * H2O.convertToLowestUnit(LQuant.BOTTLE));
+				produced++;
+			}
+		}
+		assertTrue(scheduler.shutdown(1000));
+		assertEquals(produced, scheduler.getNbCompleted());
+		assertEquals(scheduler.getNbFailed(), 0);
+		assertEquals(produced + scheduler.getNbInfeasible() + scheduler.getNbFailed(), 40);
+		assertEquals(produced, 40);
+	}
+	
+	@Test
+	public void graph() {
+		ArrayList<Amount> amounts = new ArrayList<Amount>();
+		amounts.add(recipeForDisaster.new Amount(1, LQuant.VIAL, Water));
+		amounts.add(recipeForDisaster.new Amount(1, LQuant.SPOON, ImpGas));
+		amounts.add(recipeForDisaster.new Amount(1, LQuant.SPOON, Mustard));
+		ArrayList<String> instructions = new ArrayList<String>();
+		for (String instruction : new String[] {"add", "heat", "add", "cool", "mix", "add", "heat"}) {
+			instructions.add(instruction);
+		}
+		RecipeGraph graph = new RecipeGraph(new Recipe(amounts, instructions).compile());
+		assertEquals(graph.getNbSources(), 3);
+		assertEquals(graph.getNbMixes(), 2);
+		Laboratory other = new Laboratory(1);
+		Oven secondOven = new Oven(other, new long[] {0, 20});
+		IngredientContainer result = graph.execute(lab, 3, Arrays.asList((Oven) MyLittleCatOven, secondOven), 
+				Arrays.asList((CoolingBox) MyLittleDogFridge), ForkJoinPool.commonPool());
+		assertEquals((int) result.getContents().giveInLowestUnit(), 3 * (40 + 8 + 8));
+		assertEquals(graph.execute(new Laboratory(1), 1), null);
+		RecipeGraph named = new RecipeGraph(new Recipe(amounts, instructions, "Mustard Gas").compile());
+		result = named.execute(lab, 1, Arrays.asList((Oven) MyLittleCatOven), Arrays.asList((CoolingBox) MyLittleDogFridge), 
+				ForkJoinPool.commonPool());
+		assertEquals(result.getContents().getSpecialName(), "Mustard Gas");
+	}
+	
+	@Test
+	public void cache() {
+		ArrayList<Amount> amounts = new ArrayList<Amount>();
+		amounts.add(recipeForDisaster.new Amount(1, LQuant.BOTTLE, Water));
+		amounts.add(recipeForDisaster.new Amount(1, LQuant.SPOON, ImpGas));
+		ArrayList<String> instructions = new ArrayList<String>();
+		instructions.add("add");
+		instructions.add("heat");
+		instructions.add("add");
+		CompiledRecipe program = new Recipe(amounts, instructions).compile().optimize();
+		CompiledRecipe other = recipeForDisaster.compile();
+		RecipeCache cache = new RecipeCache(1);
+		IngredientContainer first = cache.execute(lab, program, 1);
+		long water = lab.canExecute(program, 100000).getShortfalls().get(0).getAvailable();
+		IngredientContainer second = cache.execute(lab, program, 1);
+		assertEquals(cache.getNbMisses(), 1);
+		assertEquals(cache.getNbHits(), 1);
+		assertEquals(second.getContents().giveInLowestUnit(), first.getContents().giveInLowestUnit());
+		assertEquals(second.getContents().getHotness(), first.getContents().getHotness());
+		assertEquals(lab.canExecute(program, 100000).getShortfalls().get(0).getAvailable(), 
+				water - H2O.convertToLowestUnit(LQuant.BOTTLE));
+		cache.execute(lab, new Recipe(amounts, instructions).compile().optimize(), 1);
+		assertEquals(cache.getNbHits(), 2);
+		cache.execute(lab, other, 1);
+		assertEquals(cache.getNbEvictions(), 1);
+		assertEquals(cache.execute(lab, program, 1000), null);
+		assertEquals(cache.getNbMisses(), 2);
+	}
+	
+	@Test
+	public void canExecute() {
+		int before = lab.getStorageIterator().getNbElements();
+		FeasibilityReport report = lab.canExecute(recipeForDisaster, 1);
+		assertTrue(report.isFeasible());
+		report = lab.canExecute(recipeForDisaster, 2);
+		assertFalse(report.isFeasible());
+		assertEquals(report.getShortfalls().size(), 1);
+		assertEquals(report.getShortfalls().get(0).getName(), "Mercurial Acid");
+		assertEquals(report.getShortfalls().get(0).getRequired(), 6);
+		assertEquals(report.getShortfalls().get(0).getAvailable(), 4);
+		assertEquals(lab.getStorageIterator().getNbElements(), before);
+	}
+	
+	@Test
+	public void canExecute$MissingDevices() {
+		FeasibilityReport report = new Laboratory(1).canExecute(recipeForDisaster, 1);
+		assertEquals(report.getShortfalls().size(), 6);
+		assertEquals(report.getMissingDevices().size(), 3);
+		assertTrue(report.getMissingDevices().contains(Kettle.class));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void compile$UnknownInstruction() {
+		ArrayList<String> instructions = new ArrayList<String>();
+		instructions.add("add");
+		instructions.add("stir");
+		new Recipe(new ArrayList<Amount>(), instructions).compile();
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void compile$TooManyAdds() {
+		ArrayList<String> instructions = new ArrayList<String>();
+		instructions.add("add");
+		new Recipe(new ArrayList<Amount>(), instructions).compile();
+	}
 }
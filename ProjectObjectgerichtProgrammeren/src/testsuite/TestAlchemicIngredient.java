@@ -3,6 +3,7 @@ package testsuite;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 
 import org.junit.*;
@@ -127,11 +128,42 @@ public class TestAlchemicIngredient {
 		assertEquals(TodaysDD.getTemperatureState(), Temperature.COOLED);
 	}
 	
+	@Test
+	public void testTemperatureValue() {
+		assertEquals(TodaysDD.getTemperatureValue(), 66);
+		assertEquals(Devilsdelight.getStandardTemperatureValue(), 66);
+		TodaysDD.cool(100);
+		assertEquals(TodaysDD.getTemperatureValue(), -34);
+		assertArrayEquals(TodaysDD.getTemperature(), new long[] {34, 0});
+		assertEquals(AlchemicIngredient.temperatureToLong(TodaysDD.getTemperature()), -34);
+		TodaysDD.changeTempTo(50);
+		assertEquals(TodaysDD.getTemperatureValue(), 50);
+		assertEquals(AlchemicIngredient.takeSumAndBringDownToMax(Long.MAX_VALUE, 1), Long.MAX_VALUE);
+		assertEquals(AlchemicIngredient.takeSumAndBringDownToMax(Long.MIN_VALUE, -1), Long.MIN_VALUE);
+		assertEquals(AlchemicIngredient.takeSumAndBringDownToMax(-5, 3), -2);
+	}
+	
 	@Test
 	public void testVolatility() {
 		assertTrue(TodaysDD.getCharVolatility() > 0.89);
 	}
 	
+	@Test
+	public void testVolatilityCache() {
+		double standard = TodaysDD.getStandardVolatility();
+		assertEquals(TodaysDD.getVolatility(), standard, 0.0001);
+		TodaysDD.heat(66);
+		assertEquals(TodaysDD.getVolatility(), standard + 300 * TodaysDD.getCharVolatility(), 0.0001);
+		TodaysDD.cool(66);
+		assertEquals(TodaysDD.getVolatility(), standard, 0.0001);
+		assertEquals(TodaysDD.getVolatilityState(), AlchemicIngredient.Volatility.NONE);
+		long max = AlchemicIngredient.getMaxTemperature();
+		AlchemicIngredient.setMaxTemperature(max - 1);
+		AlchemicIngredient.refreshVolatilities(Arrays.asList(TodaysDD));
+		assertEquals(TodaysDD.getStandardVolatility(), standard, 0.0001);
+		AlchemicIngredient.setMaxTemperature(max);
+	}
+	
 	@Test
 	public void numberTests() {
 		int three = 3;
@@ -63,4 +63,17 @@ public class TestIngredientContainer {
 		assertTrue(BlueBottle.canHaveAsContents(OneCat));
 		assertFalse(IngredientContainer.isValidCapacity(SQuant.STOREROOM));
 	}
+	
+	@Test
+	public void smallestContainer() {
+		assertEquals(State.Liquid.getSmallestContainer(1), LQuant.SPOON);
+		assertEquals(State.Liquid.getSmallestContainer(8), LQuant.SPOON);
+		assertEquals(State.Liquid.getSmallestContainer(9), LQuant.VIAL);
+		assertEquals(State.Liquid.getSmallestContainer(State.Liquid.convertToLowestUnit(LQuant.BARREL)), LQuant.BARREL);
+		assertEquals(State.Liquid.getSmallestContainer(Integer.MAX_VALUE), LQuant.BARREL);
+		assertEquals(State.Solid.getSmallestContainer(43), SQuant.BOX);
+		IngredientContainer result = Device.stuffInsideContainer(OneCat);
+		assertEquals(result.getCapacity(), LQuant.BOTTLE);
+		assertEquals(result.getName(), "Result");
+	}
 }